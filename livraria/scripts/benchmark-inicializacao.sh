@@ -0,0 +1,57 @@
+#!/usr/bin/env bash
+# Mede o tempo até a primeira requisição respondida e a memória com a aplicação ociosa.
+#
+# Uso: scripts/benchmark-inicializacao.sh [jvm|inicio-rapido] [url]
+#   jvm           -> target/livros-0.0.1-SNAPSHOT.jar com a configuração padrão
+#   inicio-rapido -> target/inicio-rapido (./mvnw -Pinicio-rapido package), com AOT e CDS
+# Variáveis: OCIOSO (segundos de espera antes de medir a memória, padrão 10), JAVA (binário java)
+set -euo pipefail
+
+MODO=${1:-jvm}
+URL=${2:-http://localhost:8080/favoritos/populares}
+OCIOSO=${OCIOSO:-10}
+JAVA=${JAVA:-java}
+DIR=$(cd "$(dirname "$0")/.." && pwd)
+JAR=livros-0.0.1-SNAPSHOT.jar
+
+case "$MODO" in
+    jvm)
+        CMD=("$JAVA" -jar "$DIR/target/$JAR")
+        ;;
+    inicio-rapido)
+        CMD=("$JAVA" -XX:SharedArchiveFile="$DIR/target/inicio-rapido/livros.jsa" -Xshare:auto
+             -Dspring.aot.enabled=true -Dspring.profiles.active=inicio-rapido
+             -jar "$DIR/target/inicio-rapido/$JAR")
+        ;;
+    *)
+        echo "modo desconhecido: $MODO (use jvm ou inicio-rapido)" >&2
+        exit 2
+        ;;
+esac
+
+LOG=$(mktemp)
+inicio=$(date +%s%N)
+"${CMD[@]}" > "$LOG" 2>&1 &
+PID=$!
+trap 'kill $PID 2>/dev/null || true; wait $PID 2>/dev/null || true; rm -f "$LOG"' EXIT
+
+until curl -sf -o /dev/null "$URL"; do
+    if ! kill -0 "$PID" 2>/dev/null; then
+        echo "a aplicação terminou antes de responder; log:" >&2
+        tail -n 40 "$LOG" >&2
+        exit 1
+    fi
+    sleep 0.02
+done
+fim=$(date +%s%N)
+
+sleep "$OCIOSO"
+rss_kb=$(awk '/^VmRSS/ {print $2}' "/proc/$PID/status")
+
+echo "modo: $MODO"
+echo "tempo até a primeira requisição: $(( (fim - inicio) / 1000000 )) ms"
+echo "inicialização reportada pelo Spring: $(grep -o 'Started LivrosApplication in [0-9.]* seconds' "$LOG" || echo '?')"
+echo "RSS ocioso após ${OCIOSO}s: $(( rss_kb / 1024 )) MB"
+if command -v jcmd > /dev/null; then
+    jcmd "$PID" GC.heap_info 2>/dev/null | grep -E 'total|used' | head -n 3 || true
+fi
@@ -0,0 +1,92 @@
+#!/usr/bin/env bash
+# Compara o executável nativo (GraalVM) com a JVM na mesma carga: tempo até a primeira
+# requisição, RSS ocioso, vazão em regime e RSS sob carga.
+#
+# Pré-requisitos: ./mvnw -DskipTests package (jar) e ./mvnw -Pnative native:compile (target/livros),
+# o mesmo banco MySQL acessível para os dois e o gerador de carga "hey" no PATH.
+#
+# Uso: scripts/comparar-nativo-jvm.sh [url ...]
+# Variáveis: DURACAO (carga medida, padrão 30s), AQUECIMENTO (padrão 15s), CONEXOES (padrão 32),
+#            OCIOSO (segundos antes de medir o RSS ocioso, padrão 10), JAVA, PORTA (padrão 8080)
+set -euo pipefail
+
+DURACAO=${DURACAO:-30s}
+AQUECIMENTO=${AQUECIMENTO:-15s}
+CONEXOES=${CONEXOES:-32}
+OCIOSO=${OCIOSO:-10}
+JAVA=${JAVA:-java}
+PORTA=${PORTA:-8080}
+DIR=$(cd "$(dirname "$0")/.." && pwd)
+BASE="http://localhost:$PORTA"
+
+if [ "$#" -gt 0 ]; then
+    URLS=("$@")
+else
+    URLS=("$BASE/livros" "$BASE/livros/busca?query=a" "$BASE/favoritos/populares")
+fi
+
+command -v hey > /dev/null || { echo "instale o hey: go install github.com/rakyll/hey@latest" >&2; exit 2; }
+
+rss_mb() {
+    echo $(( $(awk '/^VmRSS/ {print $2}' "/proc/$1/status") / 1024 ))
+}
+
+medir() {
+    local nome=$1
+    shift
+    local log
+    log=$(mktemp)
+    local inicio fim pid
+    inicio=$(date +%s%N)
+    "$@" --server.port="$PORTA" > "$log" 2>&1 &
+    pid=$!
+    until curl -sf -o /dev/null "${URLS[0]}"; do
+        if ! kill -0 "$pid" 2>/dev/null; then
+            echo "$nome terminou antes de responder; log:" >&2
+            tail -n 40 "$log" >&2
+            exit 1
+        fi
+        sleep 0.01
+    done
+    fim=$(date +%s%N)
+    sleep "$OCIOSO"
+    local rss_ocioso
+    rss_ocioso=$(rss_mb "$pid")
+
+    # Aquecimento (JIT na JVM) seguido da medição, repartindo as conexões entre as URLs
+    local por_url=$(( CONEXOES / ${#URLS[@]} > 0 ? CONEXOES / ${#URLS[@]} : 1 ))
+    local geradores=()
+    for url in "${URLS[@]}"; do
+        hey -z "$AQUECIMENTO" -c "$por_url" "$url" > /dev/null &
+        geradores+=($!)
+    done
+    wait "${geradores[@]}"
+
+    local total_rps=0 saida rps
+    local resultados=()
+    geradores=()
+    for url in "${URLS[@]}"; do
+        saida=$(mktemp)
+        hey -z "$DURACAO" -c "$por_url" "$url" > "$saida" &
+        geradores+=($!)
+        resultados+=("$saida")
+    done
+    sleep 2
+    local rss_carga
+    rss_carga=$(rss_mb "$pid")
+    wait "${geradores[@]}"
+    for saida in "${resultados[@]}"; do
+        rps=$(awk '/Requests\/sec/ {print int($2)}' "$saida")
+        total_rps=$(( total_rps + rps ))
+        rm -f "$saida"
+    done
+
+    kill "$pid"
+    wait "$pid" 2>/dev/null || true
+    rm -f "$log"
+    printf '%-8s %12s %14s %14s %14s\n' "$nome" "$(( (fim - inicio) / 1000000 ))" "$rss_ocioso" "$total_rps" "$rss_carga"
+}
+
+printf '%-8s %12s %14s %14s %14s\n' modo "1a req (ms)" "RSS ocioso MB" "req/s" "RSS carga MB"
+medir jvm "$JAVA" -jar "$DIR/target/livros-0.0.1-SNAPSHOT.jar"
+medir nativo "$DIR/target/livros"
@@ -0,0 +1,80 @@
+#!/usr/bin/env bash
+# Latência das primeiras requisições depois de um deploy, com e sem o aquecimento.
+#
+# Para cada modo, sobe a aplicação, espera /actuator/health/readiness responder 200 (o que o
+# balanceador faria) e dispara REQUISICOES requisições sequenciais, alternando entre as URLs.
+# Grava o traço em target/latencia-<modo>.csv (ordem, url, ms) e imprime p50/p90/p99/máx por bloco.
+#
+# Uso: scripts/latencia-pos-deploy.sh [com-aquecimento|sem-aquecimento|ambos]
+# Variáveis: REQUISICOES (padrão 500), BLOCO (requisições por linha do resumo, padrão 100),
+#            PORTA (padrão 8080), JAVA, INICIAR (comando que sobe a aplicação; padrão: o jar em target/)
+set -euo pipefail
+
+MODOS=${1:-ambos}
+REQUISICOES=${REQUISICOES:-500}
+BLOCO=${BLOCO:-100}
+PORTA=${PORTA:-8080}
+JAVA=${JAVA:-java}
+DIR=$(cd "$(dirname "$0")/.." && pwd)
+BASE="http://localhost:$PORTA"
+INICIAR=${INICIAR:-"$JAVA -jar $DIR/target/livros-0.0.1-SNAPSHOT.jar"}
+
+URLS=("$BASE/livros" "$BASE/livros/busca?query=a" "$BASE/livros/navegar" "$BASE/favoritos/populares"
+      "$BASE/favoritos/device/latencia" "$BASE/livros/favoritos/device/latencia")
+
+percentis() {
+    sort -n | awk '{ v[NR] = $1 } END {
+        printf "p50=%7.1f  p90=%7.1f  p99=%7.1f  máx=%7.1f\n",
+            v[int(NR * 0.50) + 1], v[int(NR * 0.90) + 1], v[int(NR * 0.99) + 1], v[NR] }'
+}
+
+medir() {
+    local modo=$1 habilitado=$2
+    local csv="$DIR/target/latencia-$modo.csv" log
+    log=$(mktemp)
+    # shellcheck disable=SC2086
+    $INICIAR --server.port="$PORTA" --livraria.aquecimento.habilitado="$habilitado" > "$log" 2>&1 &
+    local pid=$!
+    local inicio=$(date +%s%N)
+    until [ "$(curl -s -o /dev/null -w '%{http_code}' "$BASE/actuator/health/readiness")" = "200" ]; do
+        if ! kill -0 "$pid" 2>/dev/null; then
+            echo "a aplicação terminou antes de ficar pronta; log:" >&2
+            tail -n 40 "$log" >&2
+            exit 1
+        fi
+        sleep 0.05
+    done
+    local pronto=$(( ($(date +%s%N) - inicio) / 1000000 ))
+
+    echo "ordem,url,ms" > "$csv"
+    for ((i = 0; i < REQUISICOES; i++)); do
+        local url=${URLS[$((i % ${#URLS[@]}))]}
+        local segundos
+        segundos=$(curl -s -o /dev/null -H 'Accept-Encoding: gzip' -w '%{time_total}' "$url")
+        echo "$i,$url,$(awk -v s="$segundos" 'BEGIN { printf "%.2f", s * 1000 }')" >> "$csv"
+    done
+
+    kill "$pid" 2>/dev/null || true
+    wait "$pid" 2>/dev/null || true
+    rm -f "$log"
+
+    echo "== $modo: pronto em $pronto ms; traço em $csv"
+    for ((inicio_bloco = 0; inicio_bloco < REQUISICOES; inicio_bloco += BLOCO)); do
+        printf "  requisições %4d-%4d  " "$inicio_bloco" $((inicio_bloco + BLOCO - 1))
+        awk -F, -v a="$inicio_bloco" -v b=$((inicio_bloco + BLOCO)) 'NR > 1 && $1 >= a && $1 < b { print $3 }' "$csv" \
+            | percentis
+    done
+}
+
+case "$MODOS" in
+    com-aquecimento) medir com-aquecimento true ;;
+    sem-aquecimento) medir sem-aquecimento false ;;
+    ambos)
+        medir sem-aquecimento false
+        medir com-aquecimento true
+        ;;
+    *)
+        echo "modo desconhecido: $MODOS (use com-aquecimento, sem-aquecimento ou ambos)" >&2
+        exit 2
+        ;;
+esac
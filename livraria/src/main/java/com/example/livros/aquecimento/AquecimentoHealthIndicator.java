@@ -0,0 +1,28 @@
+package com.example.livros.aquecimento;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Indicador "aquecimento": fora de serviço até o AquecimentoService terminar. Faz parte do grupo
+ * readiness (/actuator/health/readiness), então o balanceador só envia tráfego a instâncias aquecidas.
+ */
+@Component
+public class AquecimentoHealthIndicator implements HealthIndicator {
+
+    @Autowired
+    private AquecimentoService aquecimentoService;
+
+    @Override
+    public Health health() {
+        if (!aquecimentoService.isConcluido()) {
+            return Health.outOfService().withDetail("requisicoes", aquecimentoService.getRequisicoes()).build();
+        }
+        return Health.up()
+                .withDetail("duracaoMs", aquecimentoService.getDuracaoMs())
+                .withDetail("requisicoes", aquecimentoService.getRequisicoes())
+                .build();
+    }
+}
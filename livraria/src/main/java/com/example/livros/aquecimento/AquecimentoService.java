@@ -0,0 +1,240 @@
+package com.example.livros.aquecimento;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import com.example.livros.dto.TokensDTO;
+import com.example.livros.seguranca.TokenService;
+import com.example.livros.service.CatalogoCacheService;
+import com.example.livros.sharding.ShardRouter;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Aquecimento depois da inicialização, antes de a instância receber tráfego.
+ *
+ * Abre as conexões mínimas de cada pool, espera o snapshot do catálogo e faz requisições sintéticas
+ * de leitura contra a própria aplicação (HTTP de verdade: filtros, Spring MVC, Hibernate e Jackson),
+ * para que o JIT, os planos de consulta e os serializadores já estejam prontos. Até terminar,
+ * o AquecimentoHealthIndicator mantém o grupo readiness fora de serviço.
+ */
+@Service
+@Lazy(false)
+public class AquecimentoService {
+
+    private static final Logger log = LoggerFactory.getLogger(AquecimentoService.class);
+
+    // deviceId das requisições sintéticas; o AtividadeService não registra eventos dele
+    public static final String DISPOSITIVO = "livraria-aquecimento";
+
+    private static final Pattern IDS = Pattern.compile("\"id\":(\\d+)");
+    private static final Pattern GOOGLE_BOOKS_IDS = Pattern.compile("\"googleBooksId\":\"([^\"]+)\"");
+
+    @Autowired
+    private ShardRouter router;
+
+    @Autowired
+    private CatalogoCacheService catalogoCacheService;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private Environment environment;
+
+    @Value("${livraria.aquecimento.habilitado:true}")
+    private boolean habilitado;
+
+    @Value("${livraria.aquecimento.iteracoes:300}")
+    private int iteracoes;
+
+    @Value("${livraria.aquecimento.tempo-maximo-segundos:120}")
+    private long tempoMaximoSegundos;
+
+    private volatile boolean concluido;
+    private volatile long duracaoMs = -1;
+    private final AtomicLong requisicoes = new AtomicLong();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void iniciar() {
+        if (!habilitado) {
+            concluido = true;
+            return;
+        }
+        Thread thread = new Thread(this::aquecer, "aquecimento");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public boolean isConcluido() {
+        return concluido;
+    }
+
+    public long getDuracaoMs() {
+        return duracaoMs;
+    }
+
+    public long getRequisicoes() {
+        return requisicoes.get();
+    }
+
+    private void aquecer() {
+        long inicio = System.nanoTime();
+        long prazo = inicio + Duration.ofSeconds(tempoMaximoSegundos).toNanos();
+        try {
+            abrirConexoes();
+            esperarCatalogo(prazo);
+            String porta = environment.getProperty("local.server.port");
+            if (porta != null) {
+                requisitar("http://localhost:" + porta, prazo);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            // O aquecimento é só uma otimização: uma falha não pode impedir a instância de ficar pronta
+            log.warn("Falha no aquecimento; liberando o tráfego mesmo assim", e);
+        } finally {
+            duracaoMs = (System.nanoTime() - inicio) / 1_000_000;
+            concluido = true;
+            log.info("Aquecimento concluído em {} ms ({} requisições sintéticas)", duracaoMs, requisicoes.get());
+        }
+    }
+
+    // ========== Etapas ==========
+
+    /**
+     * Abre ao mesmo tempo o mínimo de conexões de cada shard, em vez de deixar o pool crescer sob carga
+     */
+    private void abrirConexoes() {
+        for (int shard = 0; shard < router.total(); shard++) {
+            DataSource dataSource = router.dataSource(shard);
+            int quantidade = 1;
+            if (dataSource instanceof HikariDataSource hikari) {
+                quantidade = Math.max(1, Math.min(hikari.getMinimumIdle(), hikari.getMaximumPoolSize()));
+            }
+            List<Connection> conexoes = new ArrayList<>(quantidade);
+            try {
+                for (int i = 0; i < quantidade; i++) {
+                    Connection conexao = dataSource.getConnection();
+                    conexoes.add(conexao);
+                    conexao.isValid(1);
+                }
+            } catch (SQLException e) {
+                log.warn("Não foi possível abrir as conexões do shard {}", shard, e);
+            } finally {
+                for (Connection conexao : conexoes) {
+                    try {
+                        conexao.close();
+                    } catch (SQLException e) {
+                        log.debug("Falha ao devolver conexão ao pool", e);
+                    }
+                }
+            }
+        }
+    }
+
+    private void esperarCatalogo(long prazo) throws InterruptedException {
+        while (catalogoCacheService.pagina(null) == null && System.nanoTime() < prazo) {
+            Thread.sleep(50);
+        }
+    }
+
+    /**
+     * Repete as leituras principais até o JIT compilar os caminhos quentes; nenhuma requisição escreve no banco
+     */
+    private void requisitar(String base, long prazo) throws InterruptedException {
+        HttpClient cliente = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        TokensDTO tokens = tokenService.emitirPar(0L, DISPOSITIVO);
+        String autorizacao = "Bearer " + tokens.getTokenAcesso();
+        try {
+            String catalogo = get(cliente, base + "/livros?pagina=0", autorizacao, false);
+            List<String> ids = extrair(IDS, catalogo, 10);
+            String populares = get(cliente, base + "/favoritos/populares", autorizacao, false);
+            List<String> googleBooksIds = extrair(GOOGLE_BOOKS_IDS, populares, 10);
+            if (googleBooksIds.isEmpty()) {
+                googleBooksIds = List.of(DISPOSITIVO);
+            }
+
+            List<String> urls = new ArrayList<>();
+            urls.add(base + "/livros");
+            urls.add(base + "/livros?pagina=0");
+            urls.add(base + "/livros/navegar");
+            urls.add(base + "/livros/busca?deviceId=" + DISPOSITIVO + "&tamanho=20");
+            urls.add(base + "/livros/busca?deviceId=" + DISPOSITIVO + "&query=a");
+            urls.add(base + "/livros/favoritos/device/" + DISPOSITIVO);
+            urls.add(base + "/favoritos/device/" + DISPOSITIVO);
+            urls.add(base + "/favoritos/populares");
+            urls.add(base + "/auth/eu");
+            for (String id : ids) {
+                urls.add(base + "/livros/" + id + "?deviceId=" + DISPOSITIVO);
+            }
+            if (ids.size() > 1) {
+                urls.add(base + "/livros?ids=" + String.join(",", ids));
+            }
+            for (String googleBooksId : googleBooksIds) {
+                urls.add(base + "/favoritos/check?deviceId=" + DISPOSITIVO + "&googleBooksId=" + googleBooksId);
+                urls.add(base + "/livros/" + googleBooksId + "/relacionados");
+            }
+
+            for (int i = 0; i < iteracoes && System.nanoTime() < prazo; i++) {
+                for (String url : urls) {
+                    get(cliente, url, autorizacao, true);
+                }
+            }
+        } finally {
+            TokenService.Claims acesso = tokenService.validar(tokens.getTokenAcesso(), TokenService.ACESSO);
+            tokenService.revogar(acesso.jti, acesso.exp);
+            TokenService.Claims renovacao = tokenService.validar(tokens.getTokenRenovacao(), TokenService.RENOVACAO);
+            tokenService.revogarRenovacao(renovacao.jti, renovacao.exp);
+        }
+    }
+
+    private String get(HttpClient cliente, String url, String autorizacao, boolean gzip) throws InterruptedException {
+        HttpRequest.Builder requisicao = HttpRequest.newBuilder(URI.create(url))
+                .header("Authorization", autorizacao)
+                .timeout(Duration.ofSeconds(10))
+                .GET();
+        if (gzip) {
+            // Como os apps: exercita também o caminho comprimido do cache do catálogo
+            requisicao.header("Accept-Encoding", "gzip");
+        }
+        try {
+            requisicoes.incrementAndGet();
+            return cliente.send(requisicao.build(), HttpResponse.BodyHandlers.ofString()).body();
+        } catch (IOException e) {
+            log.debug("Requisição de aquecimento falhou: {}", url, e);
+            return "";
+        }
+    }
+
+    private static List<String> extrair(Pattern padrao, String json, int limite) {
+        List<String> valores = new ArrayList<>();
+        Matcher matcher = padrao.matcher(json);
+        while (matcher.find() && valores.size() < limite) {
+            valores.add(matcher.group(1));
+        }
+        return valores;
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.livros.atividade;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Buffer circular limitado, sem locks, com vários produtores e um único consumidor.
+ *
+ * Cada posição tem um número de sequência: igual ao índice de escrita quando está livre e
+ * índice + 1 quando já tem um elemento publicado. Produtores disputam a cauda com CAS; o
+ * consumidor é único, então a cabeça é um long comum. Com o anel cheio, offer devolve false
+ * em vez de esperar.
+ */
+public final class AnelMpsc<E> {
+
+    private final int mascara;
+    private final AtomicReferenceArray<E> elementos;
+    private final AtomicLongArray sequencias;
+    private final AtomicLong cauda = new AtomicLong();
+
+    // Só acessada pela thread consumidora
+    private long cabeca;
+
+    public AnelMpsc(int capacidadeMinima) {
+        int capacidade = Integer.highestOneBit(Math.max(2, capacidadeMinima) - 1) << 1;
+        this.mascara = capacidade - 1;
+        this.elementos = new AtomicReferenceArray<>(capacidade);
+        this.sequencias = new AtomicLongArray(capacidade);
+        for (int i = 0; i < capacidade; i++) {
+            sequencias.set(i, i);
+        }
+    }
+
+    public int capacidade() {
+        return mascara + 1;
+    }
+
+    /**
+     * Publica um elemento; devolve false se o anel estiver cheio
+     */
+    public boolean offer(E elemento) {
+        long posicao = cauda.get();
+        while (true) {
+            int indice = (int) (posicao & mascara);
+            long diferenca = sequencias.get(indice) - posicao;
+            if (diferenca == 0) {
+                if (cauda.compareAndSet(posicao, posicao + 1)) {
+                    elementos.lazySet(indice, elemento);
+                    sequencias.lazySet(indice, posicao + 1);
+                    return true;
+                }
+                posicao = cauda.get();
+            } else if (diferenca < 0) {
+                // A posição ainda guarda um elemento da volta anterior: anel cheio
+                return false;
+            } else {
+                posicao = cauda.get();
+            }
+        }
+    }
+
+    /**
+     * Retira o próximo elemento, ou null se não houver nenhum publicado (somente a thread consumidora)
+     */
+    public E poll() {
+        int indice = (int) (cabeca & mascara);
+        if (sequencias.get(indice) != cabeca + 1) {
+            return null;
+        }
+        E elemento = elementos.get(indice);
+        elementos.lazySet(indice, null);
+        sequencias.lazySet(indice, cabeca + mascara + 1);
+        cabeca++;
+        return elemento;
+    }
+
+    /**
+     * Entrega ao consumidor até "maximo" elementos; devolve quantos foram entregues
+     */
+    public int drenar(Consumer<E> consumidor, int maximo) {
+        int entregues = 0;
+        E elemento;
+        while (entregues < maximo && (elemento = poll()) != null) {
+            consumidor.accept(elemento);
+            entregues++;
+        }
+        return entregues;
+    }
+
+    public boolean vazio() {
+        return sequencias.get((int) (cabeca & mascara)) != cabeca + 1;
+    }
+}
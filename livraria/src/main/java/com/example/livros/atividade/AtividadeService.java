@@ -0,0 +1,255 @@
+package com.example.livros.atividade;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.livros.aquecimento.AquecimentoService;
+import com.example.livros.events.FavoritoAlteradoEvent;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Registra favoritos, buscas e visualizações no log de atividade para análise posterior.
+ *
+ * Quem registra só publica o evento em um anel em memória (sem locks e sem I/O); uma única thread
+ * drena o anel em lotes para o log. Se o disco ficar lento e o anel encher, os eventos novos são
+ * descartados e contados em vez de atrasar a requisição.
+ */
+@Service
+@Lazy(false)
+public class AtividadeService {
+
+    private static final Logger log = LoggerFactory.getLogger(AtividadeService.class);
+
+    private static final int LOTE_MAXIMO = 1024;
+    private static final long ESPERA_OCIOSA_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    // Depois de tantas esperas curtas sem eventos a escritora dorme até ser acordada por registrar
+    private static final int ESPERAS_ANTES_DE_DORMIR = 50;
+    // Limite do sono, para o fsync por intervalo e a retenção seguirem sem tráfego
+    private static final long SONO_MAXIMO_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
+    private static final long INTERVALO_RETENCAO_MS = 60_000L;
+
+    /**
+     * Quando forçar as páginas mapeadas para o disco: após cada lote, a cada intervalo, ou
+     * nunca (fica a cargo do sistema operacional)
+     */
+    public enum PoliticaFsync {
+        LOTE, INTERVALO, NUNCA
+    }
+
+    @Value("${livraria.atividade.habilitada:true}")
+    private boolean habilitada;
+
+    @Value("${livraria.atividade.diretorio:data/atividade}")
+    private String diretorio;
+
+    @Value("${livraria.atividade.capacidade-anel:65536}")
+    private int capacidadeAnel;
+
+    @Value("${livraria.atividade.tamanho-segmento-mb:64}")
+    private int tamanhoSegmentoMb;
+
+    @Value("${livraria.atividade.fsync:INTERVALO}")
+    private PoliticaFsync politicaFsync;
+
+    @Value("${livraria.atividade.intervalo-fsync-ms:1000}")
+    private long intervaloFsyncMs;
+
+    @Value("${livraria.atividade.retencao.segmentos:50}")
+    private int retencaoSegmentos;
+
+    @Value("${livraria.atividade.retencao.horas:168}")
+    private long retencaoHoras;
+
+    private AnelMpsc<EventoAtividade> anel;
+    private LogAtividade logAtividade;
+    private Thread escritor;
+    private volatile boolean ativo;
+    private volatile boolean dormindo;
+
+    private final LongAdder descartados = new LongAdder();
+    private final LongAdder gravados = new LongAdder();
+    private final LongAdder falhas = new LongAdder();
+
+    @PostConstruct
+    public void iniciar() {
+        if (!habilitada) {
+            return;
+        }
+        // Em long: em int, 2048 MB ou mais estourariam; um segmento mapeado tem no máximo 2 GB
+        long tamanhoSegmento = tamanhoSegmentoMb * 1024L * 1024L;
+        if (tamanhoSegmento > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(
+                    "livraria.atividade.tamanho-segmento-mb deve ser menor que 2048: " + tamanhoSegmentoMb);
+        }
+        try {
+            logAtividade = new LogAtividade(Paths.get(diretorio), (int) tamanhoSegmento,
+                    retencaoSegmentos, Duration.ofHours(retencaoHoras));
+        } catch (IOException e) {
+            log.warn("Não foi possível abrir o log de atividade em {}; atividade não será registrada", diretorio, e);
+            return;
+        }
+        anel = new AnelMpsc<>(capacidadeAnel);
+        ativo = true;
+        escritor = new Thread(this::escrever, "atividade-escritor");
+        escritor.setDaemon(true);
+        escritor.start();
+    }
+
+    /**
+     * Para a thread escritora depois de gravar o que ainda está no anel
+     */
+    @PreDestroy
+    public void encerrar() throws InterruptedException {
+        if (escritor == null) {
+            return;
+        }
+        ativo = false;
+        LockSupport.unpark(escritor);
+        escritor.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    // ========== Registro ==========
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFavoritoAlterado(FavoritoAlteradoEvent event) {
+        // Favoritos feitos em outra instância são registrados no log dela
+        if (event.isRemoto()) {
+            return;
+        }
+        registrar(event.isAdicionado() ? TipoAtividade.FAVORITO_ADICIONADO : TipoAtividade.FAVORITO_REMOVIDO,
+                event.getDeviceId(), event.getGoogleBooksId());
+    }
+
+    public void registrarBusca(String deviceId, String termo) {
+        registrar(TipoAtividade.BUSCA, deviceId, termo);
+    }
+
+    public void registrarVisualizacao(String deviceId, Long livroId) {
+        registrar(TipoAtividade.VISUALIZACAO, deviceId, String.valueOf(livroId));
+    }
+
+    private void registrar(TipoAtividade tipo, String deviceId, String valor) {
+        AnelMpsc<EventoAtividade> destino = anel;
+        // Requisições sintéticas do aquecimento não são atividade de usuário
+        if (destino == null || !ativo || AquecimentoService.DISPOSITIVO.equals(deviceId)) {
+            return;
+        }
+        if (!destino.offer(new EventoAtividade(System.currentTimeMillis(), tipo, deviceId, valor))) {
+            descartados.increment();
+        } else if (dormindo) {
+            // Só quem encontra a escritora dormindo paga o unpark; com tráfego ela nunca chega a dormir
+            LockSupport.unpark(escritor);
+        }
+    }
+
+    // ========== Leitura ==========
+
+    /**
+     * Reproduz, em ordem, os eventos gravados a partir do timestamp informado
+     */
+    public void reproduzir(long desde, Consumer<EventoAtividade> consumidor) {
+        try {
+            LogAtividade.reproduzir(Path.of(diretorio), desde, consumidor);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public long getDescartados() {
+        return descartados.sum();
+    }
+
+    public long getGravados() {
+        return gravados.sum();
+    }
+
+    public long getFalhas() {
+        return falhas.sum();
+    }
+
+    // ========== Thread escritora ==========
+
+    private void escrever() {
+        long ultimoFsync = System.currentTimeMillis();
+        long ultimaRetencao = 0;
+        boolean pendente = false;
+        int ociosas = 0;
+        try {
+            while (ativo || !anel.vazio()) {
+                int lote = anel.drenar(this::anexar, LOTE_MAXIMO);
+                pendente |= lote > 0;
+                long agora = System.currentTimeMillis();
+
+                if (pendente && (politicaFsync == PoliticaFsync.LOTE
+                        || (politicaFsync == PoliticaFsync.INTERVALO && agora - ultimoFsync >= intervaloFsyncMs))) {
+                    logAtividade.forcar();
+                    ultimoFsync = agora;
+                    pendente = false;
+                }
+                if (agora - ultimaRetencao >= INTERVALO_RETENCAO_MS) {
+                    aplicarRetencao();
+                    ultimaRetencao = agora;
+                }
+                if (lote > 0) {
+                    ociosas = 0;
+                } else if (++ociosas < ESPERAS_ANTES_DE_DORMIR) {
+                    LockSupport.parkNanos(ESPERA_OCIOSA_NANOS);
+                } else {
+                    // Anuncia o sono antes de conferir o anel de novo: um evento publicado depois da
+                    // conferência vê dormindo = true e acorda a thread; se escapar, o sono é limitado
+                    dormindo = true;
+                    if (anel.vazio() && ativo) {
+                        LockSupport.parkNanos(SONO_MAXIMO_NANOS);
+                    }
+                    dormindo = false;
+                }
+            }
+        } finally {
+            try {
+                logAtividade.close();
+            } catch (IOException e) {
+                log.warn("Falha ao fechar o log de atividade", e);
+            }
+        }
+    }
+
+    private void anexar(EventoAtividade evento) {
+        try {
+            logAtividade.anexar(evento);
+            gravados.increment();
+        } catch (IOException | RuntimeException e) {
+            // Um evento perdido não pode derrubar a thread escritora
+            if (falhas.sum() == 0) {
+                log.warn("Falha ao gravar no log de atividade", e);
+            }
+            falhas.increment();
+        }
+    }
+
+    private void aplicarRetencao() {
+        try {
+            int apagados = logAtividade.aplicarRetencao();
+            if (apagados > 0) {
+                log.info("Retenção do log de atividade: {} segmentos apagados", apagados);
+            }
+        } catch (IOException e) {
+            log.warn("Falha ao aplicar a retenção do log de atividade", e);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.livros.atividade;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Um evento do log de atividade: quando, o quê, qual dispositivo (se conhecido) e um valor
+ * (googleBooksId, termo de busca ou ID do livro visualizado).
+ *
+ * Formato em disco (big-endian): timestamp (8), tipo (1), deviceId e valor como
+ * tamanho (2, -1 para nulo) seguido dos bytes UTF-8.
+ */
+public final class EventoAtividade {
+
+    // Textos maiores são truncados; mantém cada registro pequeno e com tamanho previsível
+    static final int MAXIMO_BYTES_TEXTO = 1024;
+
+    private final long timestamp;
+    private final TipoAtividade tipo;
+    private final String deviceId;
+    private final String valor;
+
+    public EventoAtividade(long timestamp, TipoAtividade tipo, String deviceId, String valor) {
+        this.timestamp = timestamp;
+        this.tipo = tipo;
+        this.deviceId = deviceId;
+        this.valor = valor;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public TipoAtividade getTipo() {
+        return tipo;
+    }
+
+    public String getDeviceId() {
+        return deviceId;
+    }
+
+    public String getValor() {
+        return valor;
+    }
+
+    // ========== Codificação ==========
+
+    int tamanhoMaximoCodificado() {
+        return 8 + 1 + 2 + MAXIMO_BYTES_TEXTO + 2 + MAXIMO_BYTES_TEXTO;
+    }
+
+    void codificar(ByteBuffer destino) {
+        destino.putLong(timestamp);
+        destino.put(tipo.codigo());
+        escreverTexto(destino, deviceId);
+        escreverTexto(destino, valor);
+    }
+
+    static EventoAtividade decodificar(ByteBuffer origem) {
+        long timestamp = origem.getLong();
+        TipoAtividade tipo = TipoAtividade.deCodigo(origem.get());
+        String deviceId = lerTexto(origem);
+        String valor = lerTexto(origem);
+        return new EventoAtividade(timestamp, tipo, deviceId, valor);
+    }
+
+    private static void escreverTexto(ByteBuffer destino, String texto) {
+        if (texto == null) {
+            destino.putShort((short) -1);
+            return;
+        }
+        byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+        int tamanho = Math.min(bytes.length, MAXIMO_BYTES_TEXTO);
+        // Não corta um caractere multibyte ao meio: recua enquanto o próximo byte for de continuação (10xxxxxx)
+        while (tamanho < bytes.length && (bytes[tamanho] & 0xC0) == 0x80) {
+            tamanho--;
+        }
+        destino.putShort((short) tamanho);
+        destino.put(bytes, 0, tamanho);
+    }
+
+    private static String lerTexto(ByteBuffer origem) {
+        short tamanho = origem.getShort();
+        if (tamanho < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[tamanho];
+        origem.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String toString() {
+        return "EventoAtividade{" + timestamp + ", " + tipo + ", " + deviceId + ", " + valor + "}";
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.livros.atividade;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Log de atividade append-only em segmentos mapeados em memória (atividade-NNNN.log).
+ *
+ * A escrita é feita por uma única thread (ver AtividadeService); a leitura pode acontecer a
+ * qualquer momento a partir de outras threads, pois só enxerga registros completos.
+ */
+public final class LogAtividade implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(LogAtividade.class);
+
+    private static final Pattern NOME_SEGMENTO = Pattern.compile("atividade-(\\d{20})\\.log");
+
+    private final Path diretorio;
+    private final int tamanhoSegmento;
+    private final int maximoSegmentos;
+    private final Duration retencao;
+
+    private final ByteBuffer codificacao;
+    private final CRC32C crc = new CRC32C();
+
+    private Segmento atual;
+
+    public LogAtividade(Path diretorio, int tamanhoSegmento, int maximoSegmentos, Duration retencao) throws IOException {
+        this.diretorio = diretorio;
+        this.tamanhoSegmento = tamanhoSegmento;
+        this.maximoSegmentos = Math.max(1, maximoSegmentos);
+        this.retencao = retencao;
+        EventoAtividade exemplo = new EventoAtividade(0, TipoAtividade.BUSCA, null, null);
+        if (tamanhoSegmento < Segmento.CABECALHO_REGISTRO + exemplo.tamanhoMaximoCodificado()) {
+            throw new IllegalArgumentException("Segmento pequeno demais: " + tamanhoSegmento + " bytes");
+        }
+        this.codificacao = ByteBuffer.allocate(exemplo.tamanhoMaximoCodificado());
+
+        Files.createDirectories(diretorio);
+        List<Path> existentes = segmentos(diretorio);
+        long numero = existentes.isEmpty() ? 1 : numero(existentes.get(existentes.size() - 1));
+        atual = Segmento.abrirParaEscrita(arquivo(numero), numero, tamanhoSegmento);
+    }
+
+    /**
+     * Anexa o evento ao segmento atual, abrindo um novo quando não couber
+     */
+    public void anexar(EventoAtividade evento) throws IOException {
+        codificacao.clear();
+        evento.codificar(codificacao);
+        codificacao.flip();
+        if (!atual.cabe(codificacao.remaining())) {
+            rolar();
+        }
+        atual.anexar(codificacao, crc);
+    }
+
+    /**
+     * Garante que o que foi anexado até aqui está no disco (fsync das páginas mapeadas)
+     */
+    public void forcar() {
+        atual.forcar();
+    }
+
+    private void rolar() throws IOException {
+        long proximo = atual.getNumero() + 1;
+        atual.close();
+        atual = Segmento.abrirParaEscrita(arquivo(proximo), proximo, tamanhoSegmento);
+    }
+
+    /**
+     * Apaga os segmentos fechados mais antigos além do limite de quantidade ou de idade
+     */
+    public int aplicarRetencao() throws IOException {
+        List<Path> fechados = segmentos(diretorio);
+        fechados.remove(atual.getArquivo());
+        int excedentes = Math.max(0, fechados.size() + 1 - maximoSegmentos);
+        FileTime limite = FileTime.fromMillis(System.currentTimeMillis() - retencao.toMillis());
+        int apagados = 0;
+        for (int i = 0; i < fechados.size(); i++) {
+            Path segmento = fechados.get(i);
+            if (i < excedentes || Files.getLastModifiedTime(segmento).compareTo(limite) < 0) {
+                Files.deleteIfExists(segmento);
+                apagados++;
+            }
+        }
+        return apagados;
+    }
+
+    public long getSegmentoAtual() {
+        return atual.getNumero();
+    }
+
+    @Override
+    public void close() throws IOException {
+        atual.close();
+    }
+
+    private Path arquivo(long numero) {
+        return diretorio.resolve(String.format("atividade-%020d.log", numero));
+    }
+
+    // ========== Leitura ==========
+
+    /**
+     * Reproduz, em ordem, os eventos gravados no diretório com timestamp >= desde.
+     * Segmentos apagados pela retenção durante a leitura são simplesmente pulados.
+     */
+    public static void reproduzir(Path diretorio, long desde, Consumer<EventoAtividade> consumidor) throws IOException {
+        if (!Files.isDirectory(diretorio)) {
+            return;
+        }
+        for (Path segmento : segmentos(diretorio)) {
+            try {
+                Segmento.ler(segmento, evento -> {
+                    if (evento.getTimestamp() >= desde) {
+                        consumidor.accept(evento);
+                    }
+                });
+            } catch (NoSuchFileException e) {
+                log.debug("Segmento {} removido durante a leitura", segmento);
+            }
+        }
+    }
+
+    static List<Path> segmentos(Path diretorio) throws IOException {
+        List<Path> segmentos = new ArrayList<>();
+        try (Stream<Path> arquivos = Files.list(diretorio)) {
+            arquivos.filter(arquivo -> NOME_SEGMENTO.matcher(arquivo.getFileName().toString()).matches())
+                    .sorted()
+                    .forEach(segmentos::add);
+        }
+        return segmentos;
+    }
+
+    private static long numero(Path segmento) {
+        Matcher matcher = NOME_SEGMENTO.matcher(segmento.getFileName().toString());
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Não é um segmento do log: " + segmento);
+        }
+        return Long.parseLong(matcher.group(1));
+    }
+}
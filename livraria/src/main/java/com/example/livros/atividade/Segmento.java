@@ -0,0 +1,172 @@
+package com.example.livros.atividade;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Um arquivo do log, de tamanho fixo e mapeado em memória.
+ *
+ * Cada registro é tamanho (4) + CRC32C do conteúdo (4) + conteúdo. O arquivo nasce zerado,
+ * então um tamanho 0 marca o fim do que foi escrito; um CRC que não confere marca um registro
+ * incompleto (queda no meio da escrita) e também encerra a leitura.
+ *
+ * Os mapeamentos são liberados assim que o segmento é fechado ou lido, sem esperar o GC coletar o
+ * buffer: com segmentos grandes e rotação frequente, mapeamentos mortos ocupariam espaço de endereçamento
+ * e manteriam ocupado o espaço em disco de arquivos já apagados pela retenção.
+ */
+final class Segmento implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(Segmento.class);
+
+    static final int CABECALHO_REGISTRO = 8;
+
+    // Unsafe.invokeCleaner(ByteBuffer), ou null se indisponível (aí o mapeamento só some com o GC)
+    private static final MethodHandle LIBERAR_MAPEAMENTO = localizarLiberador();
+
+    private final Path arquivo;
+    private final long numero;
+    private final FileChannel canal;
+    private final MappedByteBuffer buffer;
+
+    private Segmento(Path arquivo, long numero, FileChannel canal, MappedByteBuffer buffer) {
+        this.arquivo = arquivo;
+        this.numero = numero;
+        this.canal = canal;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Abre (ou cria) o segmento para escrita, posicionado logo após o último registro válido
+     */
+    static Segmento abrirParaEscrita(Path arquivo, long numero, int tamanho) throws IOException {
+        FileChannel canal = FileChannel.open(arquivo,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long tamanhoMapeado = Math.max(tamanho, canal.size());
+        MappedByteBuffer buffer = canal.map(FileChannel.MapMode.READ_WRITE, 0, tamanhoMapeado);
+        Segmento segmento = new Segmento(arquivo, numero, canal, buffer);
+        buffer.position(percorrer(buffer.duplicate(), evento -> { }));
+        return segmento;
+    }
+
+    /**
+     * Lê todos os registros válidos do arquivo, em ordem
+     */
+    static void ler(Path arquivo, Consumer<EventoAtividade> consumidor) throws IOException {
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+            try {
+                // Os eventos decodificados copiam os bytes, então nada referencia o buffer depois daqui
+                percorrer(buffer, consumidor);
+            } finally {
+                liberar(buffer);
+            }
+        }
+    }
+
+    /**
+     * Percorre os registros a partir do início e devolve a posição logo após o último válido
+     */
+    private static int percorrer(ByteBuffer buffer, Consumer<EventoAtividade> consumidor) {
+        CRC32C crc = new CRC32C();
+        int posicao = 0;
+        while (posicao + CABECALHO_REGISTRO <= buffer.limit()) {
+            int tamanho = buffer.getInt(posicao);
+            if (tamanho <= 0 || posicao + CABECALHO_REGISTRO + tamanho > buffer.limit()) {
+                break;
+            }
+            ByteBuffer conteudo = buffer.slice(posicao + CABECALHO_REGISTRO, tamanho);
+            crc.reset();
+            crc.update(conteudo.duplicate());
+            if ((int) crc.getValue() != buffer.getInt(posicao + 4)) {
+                break;
+            }
+            consumidor.accept(EventoAtividade.decodificar(conteudo));
+            posicao += CABECALHO_REGISTRO + tamanho;
+        }
+        return posicao;
+    }
+
+    boolean cabe(int tamanhoConteudo) {
+        return buffer.remaining() >= CABECALHO_REGISTRO + tamanhoConteudo;
+    }
+
+    /**
+     * Anexa um registro com o conteúdo entre position e limit do buffer informado
+     */
+    void anexar(ByteBuffer conteudo, CRC32C crc) {
+        int tamanho = conteudo.remaining();
+        crc.reset();
+        crc.update(conteudo.duplicate());
+        int inicio = buffer.position();
+        // O tamanho é gravado por último: um leitor concorrente nunca vê um registro pela metade
+        buffer.position(inicio + CABECALHO_REGISTRO);
+        buffer.put(conteudo);
+        buffer.putInt(inicio + 4, (int) crc.getValue());
+        buffer.putInt(inicio, tamanho);
+    }
+
+    void forcar() {
+        buffer.force();
+    }
+
+    Path getArquivo() {
+        return arquivo;
+    }
+
+    long getNumero() {
+        return numero;
+    }
+
+    int getPosicao() {
+        return buffer.position();
+    }
+
+    /**
+     * Fecha o segmento e libera o mapeamento; o segmento não pode mais ser usado
+     */
+    @Override
+    public void close() throws IOException {
+        buffer.force();
+        canal.close();
+        liberar(buffer);
+    }
+
+    private static void liberar(MappedByteBuffer buffer) {
+        if (LIBERAR_MAPEAMENTO == null) {
+            return;
+        }
+        try {
+            LIBERAR_MAPEAMENTO.invokeExact((ByteBuffer) buffer);
+        } catch (Throwable e) {
+            log.debug("Não foi possível liberar o mapeamento", e);
+        }
+    }
+
+    private static MethodHandle localizarLiberador() {
+        try {
+            Class<?> classe = Class.forName("sun.misc.Unsafe");
+            Field instancia = classe.getDeclaredField("theUnsafe");
+            instancia.setAccessible(true);
+            return MethodHandles.lookup()
+                    .findVirtual(classe, "invokeCleaner", MethodType.methodType(void.class, ByteBuffer.class))
+                    .bindTo(instancia.get(null));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.info("Mapeamentos do log de atividade serão liberados pelo GC: {}", e.toString());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.livros.atividade;
+
+/**
+ * Tipos de evento gravados no log de atividade. O código é o byte gravado em disco:
+ * novos tipos só podem ser acrescentados ao final.
+ */
+public enum TipoAtividade {
+
+    FAVORITO_ADICIONADO,
+    FAVORITO_REMOVIDO,
+    BUSCA,
+    VISUALIZACAO;
+
+    private static final TipoAtividade[] VALORES = values();
+
+    byte codigo() {
+        return (byte) ordinal();
+    }
+
+    static TipoAtividade deCodigo(byte codigo) {
+        if (codigo < 0 || codigo >= VALORES.length) {
+            throw new IllegalArgumentException("Tipo de atividade desconhecido: " + codigo);
+        }
+        return VALORES[codigo];
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.livros.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.example.livros.invalidacao.InvalidacaoBus;
+import com.example.livros.invalidacao.MemoriaInvalidacaoBus;
+import com.example.livros.invalidacao.OutboxInvalidacaoBus;
+import com.example.livros.sharding.ShardRouter;
+
+/**
+ * Transporte do barramento de invalidação: outbox no banco principal (padrão, para várias instâncias)
+ * ou memória (uma instância só, testes)
+ */
+@Configuration
+public class InvalidacaoConfig {
+
+    @Bean
+    public InvalidacaoBus invalidacaoBus(ShardRouter shardRouter,
+                                         @Value("${livraria.invalidacao.transporte:outbox}") String transporte) {
+        return switch (transporte) {
+            // Direto no shard 0, fora das transações de JPA: cada leitura enxerga o que já foi confirmado
+            case "outbox" -> new OutboxInvalidacaoBus(shardRouter.dataSource(0));
+            case "memoria" -> new MemoriaInvalidacaoBus();
+            default -> throw new IllegalStateException(
+                    "livraria.invalidacao.transporte inválido: " + transporte + " (use outbox ou memoria)");
+        };
+    }
+}
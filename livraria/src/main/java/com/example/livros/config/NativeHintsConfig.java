@@ -0,0 +1,51 @@
+package com.example.livros.config;
+
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+
+import com.example.livros.dto.LivroDTO;
+import com.example.livros.dto.LoginDTO;
+import com.example.livros.dto.LoteLivrosDTO;
+import com.example.livros.dto.NavegacaoDTO;
+import com.example.livros.dto.PopularidadeDTO;
+import com.example.livros.dto.RecomendacaoDTO;
+import com.example.livros.dto.TokensDTO;
+import com.example.livros.entities.Dispositivo;
+import com.example.livros.entities.Favorito;
+import com.example.livros.entities.Livro;
+import com.example.livros.entities.Usuario;
+import com.example.livros.seguranca.TokenService;
+
+/**
+ * Metadados de alcance para a imagem nativa (GraalVM).
+ *
+ * O Spring AOT já infere os tipos de retorno declarados nos controllers, mas vários endpoints
+ * devolvem ResponseEntity&lt;?&gt;, então entidades e DTOs serializados pelo Jackson são registrados aqui.
+ */
+@Configuration
+@ImportRuntimeHints(NativeHintsConfig.LivrariaRuntimeHints.class)
+@RegisterReflectionForBinding({ Livro.class, Favorito.class, LivroDTO.class, LoginDTO.class,
+        LoteLivrosDTO.class, NavegacaoDTO.class, PopularidadeDTO.class, RecomendacaoDTO.class,
+        TokensDTO.class, TokenService.Claims.class })
+public class NativeHintsConfig {
+
+    static class LivrariaRuntimeHints implements RuntimeHintsRegistrar {
+
+        @Override
+        public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            // Entidades JPA: o Hibernate instancia e preenche os campos por reflexão
+            for (Class<?> entidade : new Class<?>[] { Livro.class, Favorito.class, Usuario.class, Dispositivo.class }) {
+                hints.reflection().registerType(entidade, MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+                        MemberCategory.DECLARED_FIELDS, MemberCategory.INVOKE_PUBLIC_METHODS);
+            }
+            hints.resources().registerPattern("db/migration/*.sql");
+            // Segmento libera os mapeamentos do log de atividade com Unsafe.invokeCleaner
+            hints.reflection().registerTypeIfPresent(classLoader, "sun.misc.Unsafe",
+                    MemberCategory.DECLARED_FIELDS, MemberCategory.INVOKE_PUBLIC_METHODS);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.livros.config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.flywaydb.core.Flyway;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+
+import com.example.livros.sharding.ShardRouter;
+import com.example.livros.sharding.ShardRoutingDataSource;
+import com.example.livros.sharding.ShardingProperties;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Datasources dos shards de favoritos. Sem livraria.sharding.shards configurado existe um único
+ * shard (o datasource principal) e o comportamento é o mesmo de antes.
+ *
+ * Com mais de um shard, os IDs precisam ser únicos entre eles (as buscas por ID consultam todos): no
+ * MySQL cada conexão do shard i recebe auto_increment_offset = i + 1 e auto_increment_increment =
+ * livraria.sharding.passo-ids.
+ */
+@Configuration
+@EnableConfigurationProperties(ShardingProperties.class)
+public class ShardingConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardingConfig.class);
+
+    @Bean(destroyMethod = "close")
+    public ShardRouter shardRouter(DataSourceProperties principal, ShardingProperties sharding, Environment environment) {
+        List<DataSource> dataSources = new ArrayList<>();
+
+        HikariDataSource shardPrincipal = principal.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(shardPrincipal));
+        dataSources.add(shardPrincipal);
+
+        for (ShardingProperties.Shard shard : sharding.getShards()) {
+            HikariDataSource dataSource = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .url(shard.getUrl())
+                    .username(shard.getUsername())
+                    .password(shard.getPassword())
+                    .driverClassName(shard.getDriverClassName() != null
+                            ? shard.getDriverClassName() : principal.determineDriverClassName())
+                    .build();
+            dataSource.setPoolName("shard-" + dataSources.size());
+            dataSources.add(dataSource);
+        }
+        if (dataSources.size() > 1) {
+            separarIds(dataSources, sharding.getPassoIds());
+        }
+        return new ShardRouter(dataSources, sharding.getTotalAnterior());
+    }
+
+    private static void separarIds(List<DataSource> dataSources, int passo) {
+        if (dataSources.size() > passo) {
+            throw new IllegalStateException("livraria.sharding.passo-ids (" + passo
+                    + ") precisa ser pelo menos a quantidade de shards (" + dataSources.size() + ")");
+        }
+        for (int i = 0; i < dataSources.size(); i++) {
+            HikariDataSource hikari = (HikariDataSource) dataSources.get(i);
+            String url = hikari.getJdbcUrl();
+            if (url != null && (url.startsWith("jdbc:mysql:") || url.startsWith("jdbc:mariadb:"))) {
+                hikari.setConnectionInitSql("SET SESSION auto_increment_increment = " + passo
+                        + ", auto_increment_offset = " + (i + 1));
+            } else {
+                log.warn("Shard {} ({}) não é MySQL: os IDs gerados podem coincidir com os de outro shard, "
+                        + "e buscas por ID ambíguas serão recusadas", i, url);
+            }
+        }
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardRouter shardRouter) {
+        return new ShardRoutingDataSource(shardRouter);
+    }
+
+    /**
+     * O Flyway do Spring Boot migra o datasource principal (shard 0); os demais shards
+     * recebem as mesmas migrações em seguida
+     */
+    @Bean
+    public FlywayMigrationStrategy flywayMigrationStrategy(ShardRouter shardRouter) {
+        return flyway -> {
+            flyway.migrate();
+            for (int i = 1; i < shardRouter.total(); i++) {
+                Flyway.configure()
+                        .configuration(flyway.getConfiguration())
+                        .dataSource(shardRouter.dataSource(i))
+                        .load()
+                        .migrate();
+            }
+        };
+    }
+}
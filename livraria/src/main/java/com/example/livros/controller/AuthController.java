@@ -0,0 +1,84 @@
+package com.example.livros.controller;
+
+import com.example.livros.dto.LoginDTO;
+import com.example.livros.dto.TokensDTO;
+import com.example.livros.entities.Usuario;
+import com.example.livros.seguranca.TokenInvalidoException;
+import com.example.livros.seguranca.UsuarioAutenticado;
+import com.example.livros.service.AuthService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/auth")
+@CrossOrigin(origins = "*")
+@Tag(name = "Autenticação", description = "Cadastro, login e renovação de tokens")
+public class AuthController {
+
+    @Autowired
+    private AuthService authService;
+
+    @Operation(summary = "Cadastra um novo usuário")
+    @PostMapping("/registrar")
+    public ResponseEntity<?> registrar(@RequestBody LoginDTO login) {
+        try {
+            Usuario usuario = authService.registrar(login.getEmail(), login.getSenha());
+            return ResponseEntity.status(HttpStatus.CREATED)
+                    .body(Map.of("id", usuario.getId(), "email", usuario.getEmail()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        }
+    }
+
+    @Operation(summary = "Autentica com email e senha e devolve os tokens de acesso e de renovação")
+    @PostMapping("/login")
+    public ResponseEntity<?> login(@RequestBody LoginDTO login) {
+        Optional<TokensDTO> tokens = authService.login(login.getEmail(), login.getSenha());
+        if (tokens.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Email ou senha inválidos");
+        }
+        return ResponseEntity.ok(tokens.get());
+    }
+
+    @Operation(summary = "Troca um token de renovação por um novo par de tokens (o token usado deixa de valer)")
+    @PostMapping("/renovar")
+    public ResponseEntity<?> renovar(@RequestBody Map<String, String> payload) {
+        String tokenRenovacao = payload.get("tokenRenovacao");
+        if (tokenRenovacao == null) {
+            return ResponseEntity.badRequest().body("tokenRenovacao é obrigatório");
+        }
+        try {
+            return ResponseEntity.ok(authService.renovar(tokenRenovacao));
+        } catch (TokenInvalidoException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(e.getMessage());
+        }
+    }
+
+    @Operation(summary = "Revoga o token de acesso atual e, opcionalmente, o token de renovação")
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout(@AuthenticationPrincipal UsuarioAutenticado usuario,
+                                    @RequestBody(required = false) Map<String, String> payload) {
+        try {
+            authService.logout(usuario, payload == null ? null : payload.get("tokenRenovacao"));
+            return ResponseEntity.noContent().build();
+        } catch (TokenInvalidoException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(e.getMessage());
+        }
+    }
+
+    @Operation(summary = "Devolve o usuário autenticado pelo token de acesso")
+    @GetMapping("/eu")
+    public ResponseEntity<?> eu(@AuthenticationPrincipal UsuarioAutenticado usuario) {
+        return ResponseEntity.ok(Map.of("id", usuario.getId(), "email", usuario.getEmail()));
+    }
+}
@@ -1,7 +1,9 @@
 package com.example.livros.controller;
 
+import com.example.livros.dto.PopularidadeDTO;
 import com.example.livros.entities.Favorito;
 import com.example.livros.service.FavoritoService;
+import com.example.livros.service.RankingFavoritosService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -22,6 +24,9 @@ public class FavoritoController {
     @Autowired
     private FavoritoService favoritoService;
 
+    @Autowired
+    private RankingFavoritosService rankingFavoritosService;
+
     @Operation(summary = "Busca todos os favoritos de um dispositivo")
     @GetMapping("/device/{deviceId}")
     public ResponseEntity<List<Favorito>> findByDevice(@PathVariable String deviceId) {
@@ -29,6 +34,12 @@ public class FavoritoController {
         return ResponseEntity.ok(favoritos);
     }
 
+    @Operation(summary = "Busca todos os favoritos de um livro do Google Books (em todos os dispositivos)")
+    @GetMapping("/livro/{googleBooksId}")
+    public ResponseEntity<List<Favorito>> findByGoogleBooksId(@PathVariable String googleBooksId) {
+        return ResponseEntity.ok(favoritoService.findByGoogleBooksId(googleBooksId));
+    }
+
     @Operation(summary = "Verifica se um livro do Google Books é favorito para um dispositivo")
     @GetMapping("/check")
     public ResponseEntity<Boolean> isLivroFavorito(
@@ -56,7 +67,9 @@ public class FavoritoController {
         try {
             Favorito favorito = favoritoService.adicionarFavorito(
                 deviceId, googleBooksId, titulo, autor, imagemUrl, descricao, dataPublicacao);
-            return ResponseEntity.status(HttpStatus.CREATED).body(favorito);
+            // Sem ID: aceito pela escrita adiada, ainda não gravado no banco
+            HttpStatus status = favorito.getId() == null ? HttpStatus.ACCEPTED : HttpStatus.CREATED;
+            return ResponseEntity.status(status).body(favorito);
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
         }
@@ -75,20 +88,39 @@ public class FavoritoController {
         }
     }
 
-    @Operation(summary = "Busca um favorito por ID")
+    @Operation(summary = "Lista os livros mais favoritados na janela informada (1h, 24h, 7d ou total)")
+    @GetMapping("/populares")
+    public ResponseEntity<?> listarPopulares(
+            @RequestParam(defaultValue = "total") String janela,
+            @RequestParam(defaultValue = "10") int limite) {
+        try {
+            List<PopularidadeDTO> populares = rankingFavoritosService.listarPopulares(janela, limite);
+            return ResponseEntity.ok(populares);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @Operation(summary = "Busca um favorito por ID (com deviceId, só no shard do dispositivo)")
     @GetMapping("/{id}")
-    public ResponseEntity<?> findById(@PathVariable Long id) {
-        Optional<Favorito> favorito = favoritoService.findById(id);
-        return favorito.map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<?> findById(@PathVariable Long id, @RequestParam(required = false) String deviceId) {
+        try {
+            Optional<Favorito> favorito = favoritoService.findById(id, deviceId);
+            return favorito.<ResponseEntity<?>>map(ResponseEntity::ok)
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        }
     }
 
-    @Operation(summary = "Remove um favorito por ID")
+    @Operation(summary = "Remove um favorito por ID (com deviceId, só no shard do dispositivo)")
     @DeleteMapping("/{id}")
-    public ResponseEntity<?> delete(@PathVariable Long id) {
+    public ResponseEntity<?> delete(@PathVariable Long id, @RequestParam(required = false) String deviceId) {
         try {
-            favoritoService.delete(id);
+            favoritoService.delete(id, deviceId);
             return ResponseEntity.noContent().build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
         }
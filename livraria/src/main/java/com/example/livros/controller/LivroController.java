@@ -1,29 +1,52 @@
 package com.example.livros.controller;
 
+import java.io.IOException;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.example.livros.atividade.AtividadeService;
 import com.example.livros.dto.LivroDTO;
+import com.example.livros.dto.LoteLivrosDTO;
+import com.example.livros.dto.RecomendacaoDTO;
 import com.example.livros.entities.Livro;
+import com.example.livros.service.CatalogoCacheService;
 import com.example.livros.service.LivroService;
+import com.example.livros.service.RecomendacaoService;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 
 @RestController
 @RequestMapping("/livros")
@@ -34,23 +57,123 @@ public class LivroController {
     @Autowired
     private LivroService livroService;
 
+    @Autowired
+    private RecomendacaoService recomendacaoService;
+
+    @Autowired
+    private CatalogoCacheService catalogoCacheService;
+
+    @Autowired
+    private AtividadeService atividadeService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @Operation(summary = "Cria um novo livro")
     @PostMapping
     public LivroDTO criarLivro(@RequestBody LivroDTO livroDTO) {
         return livroService.criarLivro(livroDTO);
     }
 
-    @Operation(summary = "Lista todos os livros")
+    @Operation(summary = "Lista todos os livros (ou uma página do catálogo, com ?pagina=N)")
+    @ApiResponse(responseCode = "200", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+            array = @ArraySchema(schema = @Schema(implementation = LivroDTO.class))))
     @GetMapping
-    public List<LivroDTO> listarLivros() {
-        return livroService.listarLivros();
+    public void listarLivros(@RequestParam(required = false) Integer pagina,
+                             HttpServletRequest request, HttpServletResponse response) throws IOException {
+        CatalogoCacheService.Pagina cache = catalogoCacheService.pagina(pagina);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        if (cache == null) {
+            // Cache ainda não montado (logo após a inicialização): serializa normalmente
+            List<LivroDTO> livros = livroService.listarLivros();
+            if (pagina != null) {
+                // Em long: pagina * tamanhoPagina estoura int para páginas muito altas
+                int inicio = (int) Math.max(0, Math.min((long) pagina * catalogoCacheService.getTamanhoPagina(), livros.size()));
+                livros = livros.subList(inicio, Math.min(inicio + catalogoCacheService.getTamanhoPagina(), livros.size()));
+            }
+            objectMapper.writeValue(response.getOutputStream(), livros);
+            return;
+        }
+
+        // Bytes já serializados e comprimidos, escritos direto na resposta; cada codificação tem o seu ETag
+        boolean gzip = aceitaGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        String etag = cache.getEtag(gzip);
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (correspondeEtag(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setStatus(HttpStatus.NOT_MODIFIED.value());
+            return;
+        }
+        byte[] corpo;
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            corpo = cache.getGzip();
+        } else {
+            corpo = cache.getJson();
+        }
+        response.setContentLength(corpo.length);
+        response.getOutputStream().write(corpo);
+    }
+
+    @Operation(summary = "Busca vários livros por ID de uma só vez (ex.: /livros?ids=1,2,3)")
+    @GetMapping(params = "ids")
+    public ResponseEntity<?> buscarLivrosPorIds(@RequestParam List<Long> ids) {
+        try {
+            LoteLivrosDTO lote = livroService.buscarLivrosPorIds(ids);
+            return ResponseEntity.ok(lote);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        }
+    }
+
+    @Operation(summary = "Navega pelo catálogo por gênero e data de publicação, com contagens por gênero e década")
+    @GetMapping("/navegar")
+    public ResponseEntity<?> navegar(
+            @RequestParam(required = false) String genero,
+            @Parameter(description = "Publicados a partir desta data (inclusive)", example = "1990-01-01")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate de,
+            @Parameter(description = "Publicados até esta data (inclusive)", example = "1999-12-31")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate ate,
+            @Parameter(description = "Cursor devolvido em proximaPagina pela página anterior")
+            @RequestParam(required = false) String apos,
+            @RequestParam(defaultValue = "20") int limite) {
+        try {
+            return ResponseEntity.ok(livroService.navegar(genero, de, ate, apos, limite));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
     @Operation(summary = "Busca um livro por ID")
     @GetMapping("/{id}")
-    public ResponseEntity<LivroDTO> buscarLivroPorId(@PathVariable Long id) {
-        Optional<LivroDTO> livroDTO = livroService.buscarLivroPorId(id);
-        return livroDTO.map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build());
+    public ResponseEntity<?> buscarLivroPorId(@PathVariable Long id,
+                                              @RequestParam(required = false) String deviceId) {
+        Optional<LivroDTO> livroDTO;
+        try {
+            livroDTO = livroService.buscarLivroPorId(id);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        }
+        if (livroDTO.isPresent()) {
+            atividadeService.registrarVisualizacao(deviceId, id);
+        }
+        return livroDTO.<ResponseEntity<?>>map(dto -> ResponseEntity.ok().eTag(String.valueOf(dto.getVersao())).body(dto))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @Operation(summary = "Lista livros favoritados pelos mesmos dispositivos que favoritaram este livro do Google Books")
+    @GetMapping("/{googleBooksId}/relacionados")
+    public ResponseEntity<?> buscarRelacionados(
+            @PathVariable String googleBooksId,
+            @RequestParam(defaultValue = "10") int limite) {
+        try {
+            List<RecomendacaoDTO> relacionados = recomendacaoService.buscarRelacionados(googleBooksId, limite);
+            return ResponseEntity.ok(relacionados);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
     @Operation(summary = "Atualiza um livro por ID")
@@ -63,6 +186,49 @@ public class LivroController {
         return ResponseEntity.notFound().build();
     }
 
+    @Operation(summary = "Atualiza parcialmente um livro por ID (exige If-Match com a versão atual)")
+    @PatchMapping(value = "/{id}", consumes = { MediaType.APPLICATION_JSON_VALUE, "application/merge-patch+json" })
+    public ResponseEntity<?> atualizarParcialmente(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestBody Map<String, Object> alteracoes) {
+        if (ifMatch == null) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_REQUIRED)
+                    .body("Cabeçalho If-Match com a versão do livro é obrigatório");
+        }
+        Long versao = versaoDoETag(ifMatch);
+        if (versao == null) {
+            return ResponseEntity.badRequest().body("If-Match inválido: " + ifMatch);
+        }
+        try {
+            Optional<Long> novaVersao = livroService.atualizarParcialmente(id, versao, alteracoes);
+            if (novaVersao.isPresent()) {
+                return ResponseEntity.noContent().eTag(String.valueOf(novaVersao.get())).build();
+            }
+            return ResponseEntity.notFound().build();
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // Aceita 3, "3" ou W/"3"
+    private Long versaoDoETag(String etag) {
+        String valor = etag.trim();
+        if (valor.startsWith("W/")) {
+            valor = valor.substring(2);
+        }
+        if (valor.length() >= 2 && valor.startsWith("\"") && valor.endsWith("\"")) {
+            valor = valor.substring(1, valor.length() - 1);
+        }
+        try {
+            return Long.valueOf(valor);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
     @Operation(summary = "Deleta um livro por ID")
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deletarLivro(@PathVariable Long id) {
@@ -125,10 +291,74 @@ public class LivroController {
         }
     }
     
-    @Operation(summary = "Busca livros por título ou autor")
+    @Operation(summary = "Busca livros por título ou autor (sem query, lista o catálogo paginado por ID)")
     @GetMapping("/busca")
-    public ResponseEntity<List<Livro>> buscarPorTituloOuAutor(@RequestParam(required = false) String query) {
-        List<Livro> livros = livroService.buscarPorTituloOuAutor(query);
-        return ResponseEntity.ok(livros);
+    public ResponseEntity<?> buscarPorTituloOuAutor(
+            @RequestParam(required = false) String query,
+            @RequestParam(required = false) String deviceId,
+            @Parameter(description = "Sem query: ID do último livro da página anterior")
+            @RequestParam(required = false) Long apos,
+            @Parameter(description = "Sem query: tamanho da página")
+            @RequestParam(defaultValue = "20") int tamanho) {
+        try {
+            List<Livro> livros = livroService.buscarPorTituloOuAutor(query, apos, tamanho);
+            atividadeService.registrarBusca(deviceId, query);
+            return ResponseEntity.ok(livros);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * Interpreta o Accept-Encoding com os valores de q: "gzip;q=0" recusa gzip, e "*" vale
+     * para gzip quando ele não aparece explicitamente
+     */
+    static boolean aceitaGzip(String aceita) {
+        if (aceita == null) {
+            return false;
+        }
+        Double qGzip = null;
+        Double qCuringa = null;
+        for (String item : aceita.split(",")) {
+            String[] partes = item.split(";");
+            String codificacao = partes[0].trim().toLowerCase(Locale.ROOT);
+            double q = 1;
+            for (int i = 1; i < partes.length; i++) {
+                String parametro = partes[i].trim();
+                if (parametro.regionMatches(true, 0, "q=", 0, 2)) {
+                    try {
+                        q = Double.parseDouble(parametro.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+            if (codificacao.equals("gzip") || codificacao.equals("x-gzip")) {
+                qGzip = q;
+            } else if (codificacao.equals("*")) {
+                qCuringa = q;
+            }
+        }
+        double q = qGzip != null ? qGzip : qCuringa != null ? qCuringa : 0;
+        return q > 0;
+    }
+
+    /**
+     * If-None-Match pode trazer uma lista de ETags, fracos (W/) ou "*"
+     */
+    static boolean correspondeEtag(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidato : ifNoneMatch.split(",")) {
+            String valor = candidato.trim();
+            if (valor.startsWith("W/")) {
+                valor = valor.substring(2);
+            }
+            if (valor.equals("*") || valor.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
     }
 }
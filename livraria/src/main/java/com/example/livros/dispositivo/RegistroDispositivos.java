@@ -0,0 +1,189 @@
+package com.example.livros.dispositivo;
+
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.livros.entities.Favorito;
+import com.example.livros.entities.Livro;
+import com.example.livros.repository.DispositivoRepository;
+import com.example.livros.sharding.ShardContext;
+import com.example.livros.sharding.ShardExecutor;
+import com.example.livros.sharding.ShardRouter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Traduz o deviceId externo para a chave BIGINT de tb_dispositivos, e de volta.
+ *
+ * O registro é por shard (fica junto dos favoritos do dispositivo), então os métodos usam o shard da
+ * transação atual e precisam rodar dentro de um ShardExecutor; registrar é a exceção e roda antes dela. Como uma linha do registro nunca muda
+ * nem é removida, os dois sentidos ficam em caches limitados sem invalidação; só consultas que acham o
+ * dispositivo são guardadas, para que um registro feito em outra instância apareça na próxima leitura.
+ */
+@Component
+public class RegistroDispositivos {
+
+    @Autowired
+    private DispositivoRepository dispositivoRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ShardExecutor shardExecutor;
+
+    @Autowired
+    private ShardRouter router;
+
+    @Value("${livraria.dispositivos.cache.tamanho-maximo:200000}")
+    private long tamanhoMaximoCache;
+
+    private Cache<ChaveDevice, Long> idsPorDevice;
+    private Cache<ChaveId, String> devicesPorId;
+
+    @PostConstruct
+    public void iniciar() {
+        idsPorDevice = Caffeine.newBuilder().maximumSize(tamanhoMaximoCache).build();
+        devicesPorId = Caffeine.newBuilder().maximumSize(tamanhoMaximoCache).build();
+    }
+
+    /**
+     * Chave do dispositivo no shard atual; vazio se ele nunca favoritou nada aqui
+     */
+    public Optional<Long> buscar(String deviceId) {
+        int shard = shardAtual();
+        Long id = idsPorDevice.getIfPresent(new ChaveDevice(shard, deviceId));
+        if (id != null) {
+            return Optional.of(id);
+        }
+        Optional<Long> doBanco = dispositivoRepository.findIdByDeviceId(deviceId);
+        doBanco.ifPresent(encontrado -> lembrar(shard, deviceId, encontrado));
+        return doBanco;
+    }
+
+    /**
+     * Chave do dispositivo no shard dele, registrando-o se for a primeira vez.
+     *
+     * Precisa ser chamado antes de abrir a transação da operação: o registro usa uma transação curta
+     * própria, com a única conexão da requisição, e a chave só entra no cache depois do commit. Assim uma
+     * rajada de dispositivos novos não deixa cada requisição segurando uma conexão à espera de outra, e um
+     * rollback da operação não deixa no cache uma chave sem linha (no máximo sobra um dispositivo sem
+     * favoritos). Se outra requisição registrar o mesmo dispositivo ao mesmo tempo, a releitura roda em
+     * outra transação, que enxerga a linha confirmada.
+     */
+    public long registrar(String deviceId) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("O registro do dispositivo precisa acontecer antes da transação da operação");
+        }
+        int shard = router.shardDoDevice(deviceId);
+        Long emCache = idsPorDevice.getIfPresent(new ChaveDevice(shard, deviceId));
+        if (emCache != null) {
+            return emCache;
+        }
+        long id;
+        try {
+            id = shardExecutor.noShard(shard, false,
+                    () -> dispositivoRepository.findIdByDeviceId(deviceId).orElseGet(() -> inserir(deviceId)));
+        } catch (DuplicateKeyException e) {
+            // Outra requisição (ou instância) registrou o mesmo dispositivo ao mesmo tempo
+            id = shardExecutor.noShard(shard, true, () -> dispositivoRepository.findIdByDeviceId(deviceId))
+                    .orElseThrow(() -> e);
+        }
+        lembrar(shard, deviceId, id);
+        return id;
+    }
+
+    private long inserir(String deviceId) {
+        GeneratedKeyHolder chave = new GeneratedKeyHolder();
+        jdbcTemplate.update(conexao -> {
+            PreparedStatement insert = conexao.prepareStatement(
+                    "INSERT INTO tb_dispositivos (device_id, data_criacao) VALUES (?, ?)",
+                    Statement.RETURN_GENERATED_KEYS);
+            insert.setString(1, deviceId);
+            insert.setTimestamp(2, Timestamp.valueOf(LocalDateTime.now()));
+            return insert;
+        }, chave);
+        return chave.getKey().longValue();
+    }
+
+    /**
+     * Preenche o deviceId (transiente) de favoritos lidos do shard atual
+     */
+    public void preencherFavoritos(Collection<Favorito> favoritos) {
+        preencher(favoritos, Favorito::getDispositivoId, Favorito::setDeviceId);
+    }
+
+    /**
+     * Preenche o deviceId (transiente) de livros lidos do shard atual; linhas de catálogo ficam sem dispositivo
+     */
+    public void preencherLivros(Collection<Livro> livros) {
+        preencher(livros, Livro::getDispositivoId, Livro::setDeviceId);
+    }
+
+    private <T> void preencher(Collection<T> itens, Function<T, Long> chave, BiConsumer<T, String> destino) {
+        int shard = shardAtual();
+        Map<Long, String> deviceIds = new HashMap<>();
+        Set<Long> faltando = new HashSet<>();
+        for (T item : itens) {
+            Long id = chave.apply(item);
+            if (id == null || deviceIds.containsKey(id)) {
+                continue;
+            }
+            String deviceId = devicesPorId.getIfPresent(new ChaveId(shard, id));
+            if (deviceId != null) {
+                deviceIds.put(id, deviceId);
+            } else {
+                faltando.add(id);
+            }
+        }
+        if (!faltando.isEmpty()) {
+            // Uma única consulta para todas as chaves que não estavam no cache
+            for (Object[] par : dispositivoRepository.findDeviceIdsByIds(faltando)) {
+                lembrar(shard, (String) par[1], (Long) par[0]);
+                deviceIds.put((Long) par[0], (String) par[1]);
+            }
+        }
+        for (T item : itens) {
+            Long id = chave.apply(item);
+            if (id != null) {
+                destino.accept(item, deviceIds.get(id));
+            }
+        }
+    }
+
+    private void lembrar(int shard, String deviceId, long id) {
+        idsPorDevice.put(new ChaveDevice(shard, deviceId), id);
+        devicesPorId.put(new ChaveId(shard, id), deviceId);
+    }
+
+    private static int shardAtual() {
+        Integer atual = ShardContext.atual();
+        return atual == null ? 0 : atual;
+    }
+
+    private record ChaveDevice(int shard, String deviceId) {
+    }
+
+    private record ChaveId(int shard, long id) {
+    }
+}
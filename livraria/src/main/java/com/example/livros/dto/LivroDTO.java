@@ -28,6 +28,10 @@ public class LivroDTO {
     @Schema(description = "Descrição do livro", example = "Uma épica aventura pela Terra Média.")
     private String descricao;
 
+    @Schema(description = "Versão do livro, usada no cabeçalho If-Match das atualizações parciais", example = "3",
+            accessMode = Schema.AccessMode.READ_ONLY)
+    private Long versao;
+
     // Getters e Setters
 
     public Long getId() {
@@ -86,5 +90,12 @@ public class LivroDTO {
         this.descricao = descricao;
     }
 
+    public Long getVersao() {
+        return versao;
+    }
+
+    public void setVersao(Long versao) {
+        this.versao = versao;
+    }
 
 }
@@ -0,0 +1,41 @@
+package com.example.livros.dto;
+
+import java.util.List;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Resultado de uma busca de livros por lista de IDs")
+public class LoteLivrosDTO {
+
+    @Schema(description = "Livros encontrados, na ordem em que os IDs foram pedidos")
+    private List<LivroDTO> livros;
+
+    @Schema(description = "IDs pedidos que não existem", example = "[42]")
+    private List<Long> naoEncontrados;
+
+    public LoteLivrosDTO() {
+    }
+
+    public LoteLivrosDTO(List<LivroDTO> livros, List<Long> naoEncontrados) {
+        this.livros = livros;
+        this.naoEncontrados = naoEncontrados;
+    }
+
+    // Getters e Setters
+
+    public List<LivroDTO> getLivros() {
+        return livros;
+    }
+
+    public void setLivros(List<LivroDTO> livros) {
+        this.livros = livros;
+    }
+
+    public List<Long> getNaoEncontrados() {
+        return naoEncontrados;
+    }
+
+    public void setNaoEncontrados(List<Long> naoEncontrados) {
+        this.naoEncontrados = naoEncontrados;
+    }
+}
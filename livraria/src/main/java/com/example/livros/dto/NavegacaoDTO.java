@@ -0,0 +1,66 @@
+package com.example.livros.dto;
+
+import java.util.List;
+import java.util.Map;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Uma página da navegação do catálogo por gênero e data de publicação, com as facetas")
+public class NavegacaoDTO {
+
+    @Schema(description = "Livros da página, do mais recente para o mais antigo")
+    private List<LivroDTO> livros;
+
+    @Schema(description = "Cursor da próxima página (parâmetro 'apos'); nulo na última página", example = "MjAyMC0wMS0wMVQwMDowMCwxMg")
+    private String proximaPagina;
+
+    @Schema(description = "Quantidade de livros por gênero", example = "{\"Romance\": 120, \"Fantasia\": 80}")
+    private Map<String, Long> generos;
+
+    @Schema(description = "Quantidade de livros por década de publicação, dentro do gênero filtrado", example = "{\"1990\": 15, \"2000\": 42}")
+    private Map<String, Long> decadas;
+
+    public NavegacaoDTO() {
+    }
+
+    public NavegacaoDTO(List<LivroDTO> livros, String proximaPagina, Map<String, Long> generos, Map<String, Long> decadas) {
+        this.livros = livros;
+        this.proximaPagina = proximaPagina;
+        this.generos = generos;
+        this.decadas = decadas;
+    }
+
+    // Getters e Setters
+
+    public List<LivroDTO> getLivros() {
+        return livros;
+    }
+
+    public void setLivros(List<LivroDTO> livros) {
+        this.livros = livros;
+    }
+
+    public String getProximaPagina() {
+        return proximaPagina;
+    }
+
+    public void setProximaPagina(String proximaPagina) {
+        this.proximaPagina = proximaPagina;
+    }
+
+    public Map<String, Long> getGeneros() {
+        return generos;
+    }
+
+    public void setGeneros(Map<String, Long> generos) {
+        this.generos = generos;
+    }
+
+    public Map<String, Long> getDecadas() {
+        return decadas;
+    }
+
+    public void setDecadas(Map<String, Long> decadas) {
+        this.decadas = decadas;
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.livros.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Posição de um livro do Google Books no ranking de favoritos")
+public class PopularidadeDTO {
+
+    @Schema(description = "ID do livro no Google Books", example = "zyTCAlFPjgYC")
+    private String googleBooksId;
+
+    @Schema(description = "Quantidade de favoritos na janela consultada", example = "42")
+    private long favoritos;
+
+    public PopularidadeDTO() {
+    }
+
+    public PopularidadeDTO(String googleBooksId, long favoritos) {
+        this.googleBooksId = googleBooksId;
+        this.favoritos = favoritos;
+    }
+
+    // Getters e Setters
+
+    public String getGoogleBooksId() {
+        return googleBooksId;
+    }
+
+    public void setGoogleBooksId(String googleBooksId) {
+        this.googleBooksId = googleBooksId;
+    }
+
+    public long getFavoritos() {
+        return favoritos;
+    }
+
+    public void setFavoritos(long favoritos) {
+        this.favoritos = favoritos;
+    }
+}
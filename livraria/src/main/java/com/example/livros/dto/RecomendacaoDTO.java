@@ -0,0 +1,51 @@
+package com.example.livros.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Livro relacionado, favoritado pelos mesmos dispositivos")
+public class RecomendacaoDTO {
+
+    @Schema(description = "ID do livro relacionado no Google Books", example = "zyTCAlFPjgYC")
+    private String googleBooksId;
+
+    @Schema(description = "Similaridade (cosseno) entre os livros, de 0 a 1", example = "0.42")
+    private double pontuacao;
+
+    @Schema(description = "Quantidade de dispositivos que favoritaram os dois livros", example = "17")
+    private int coocorrencias;
+
+    public RecomendacaoDTO() {
+    }
+
+    public RecomendacaoDTO(String googleBooksId, double pontuacao, int coocorrencias) {
+        this.googleBooksId = googleBooksId;
+        this.pontuacao = pontuacao;
+        this.coocorrencias = coocorrencias;
+    }
+
+    // Getters e Setters
+
+    public String getGoogleBooksId() {
+        return googleBooksId;
+    }
+
+    public void setGoogleBooksId(String googleBooksId) {
+        this.googleBooksId = googleBooksId;
+    }
+
+    public double getPontuacao() {
+        return pontuacao;
+    }
+
+    public void setPontuacao(double pontuacao) {
+        this.pontuacao = pontuacao;
+    }
+
+    public int getCoocorrencias() {
+        return coocorrencias;
+    }
+
+    public void setCoocorrencias(int coocorrencias) {
+        this.coocorrencias = coocorrencias;
+    }
+}
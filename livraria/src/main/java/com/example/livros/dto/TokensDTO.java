@@ -0,0 +1,62 @@
+package com.example.livros.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Par de tokens emitido no login e na renovação")
+public class TokensDTO {
+
+    @Schema(description = "Token de acesso, enviado em Authorization: Bearer <token>")
+    private String tokenAcesso;
+
+    @Schema(description = "Token de renovação, trocado por um novo par em POST /auth/renovar (uso único)")
+    private String tokenRenovacao;
+
+    @Schema(description = "Tipo do token de acesso", example = "Bearer")
+    private String tipo = "Bearer";
+
+    @Schema(description = "Validade do token de acesso, em segundos", example = "900")
+    private long expiraEm;
+
+    public TokensDTO() {
+    }
+
+    public TokensDTO(String tokenAcesso, String tokenRenovacao, long expiraEm) {
+        this.tokenAcesso = tokenAcesso;
+        this.tokenRenovacao = tokenRenovacao;
+        this.expiraEm = expiraEm;
+    }
+
+    // Getters e Setters
+
+    public String getTokenAcesso() {
+        return tokenAcesso;
+    }
+
+    public void setTokenAcesso(String tokenAcesso) {
+        this.tokenAcesso = tokenAcesso;
+    }
+
+    public String getTokenRenovacao() {
+        return tokenRenovacao;
+    }
+
+    public void setTokenRenovacao(String tokenRenovacao) {
+        this.tokenRenovacao = tokenRenovacao;
+    }
+
+    public String getTipo() {
+        return tipo;
+    }
+
+    public void setTipo(String tipo) {
+        this.tipo = tipo;
+    }
+
+    public long getExpiraEm() {
+        return expiraEm;
+    }
+
+    public void setExpiraEm(long expiraEm) {
+        this.expiraEm = expiraEm;
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.livros.entities;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
@@ -11,8 +13,13 @@ public class Favorito {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
     
-    // ID do dispositivo (para identificar usuário sem precisar de login/perfil)
-    @Column(nullable = false, length = 500)
+    // Chave do dispositivo em tb_dispositivos; ver RegistroDispositivos
+    @Column(nullable = false)
+    private Long dispositivoId;
+
+    // ID do dispositivo (para identificar usuário sem precisar de login/perfil), preenchido a partir
+    // do registro de dispositivos; não é gravado
+    @Transient
     private String deviceId;
     
     // ID do livro no Google Books API
@@ -65,6 +72,15 @@ public class Favorito {
         this.id = id;
     }
 
+    @JsonIgnore
+    public Long getDispositivoId() {
+        return dispositivoId;
+    }
+
+    public void setDispositivoId(Long dispositivoId) {
+        this.dispositivoId = dispositivoId;
+    }
+
     public String getDeviceId() {
         return deviceId;
     }
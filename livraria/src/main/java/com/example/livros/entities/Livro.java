@@ -1,5 +1,7 @@
 package com.example.livros.entities;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
@@ -28,7 +30,12 @@ public class Livro  {
     private String descricao;
     
     // Campos adicionados da tabela Favorito
-    @Column(length = 500)
+
+    // Chave do dispositivo em tb_dispositivos (nula nas linhas de catálogo); ver RegistroDispositivos
+    private Long dispositivoId;
+
+    // deviceId externo, preenchido a partir do registro de dispositivos (não é gravado)
+    @Transient
     private String deviceId;
     
     @Column(length = 500)
@@ -44,6 +51,11 @@ public class Livro  {
     
     @Column(nullable = false)
     private LocalDateTime dataCriacao = LocalDateTime.now();
+    
+    // Controle otimista de concorrência; exposto como ETag nas respostas de /livros/{id}
+    @Version
+    @Column(nullable = false)
+    private Long versao;
 
     public Livro() {
     }
@@ -128,6 +140,15 @@ public class Livro  {
         this.descricao = descricao;
     }
 
+    @JsonIgnore
+    public Long getDispositivoId() {
+        return dispositivoId;
+    }
+
+    public void setDispositivoId(Long dispositivoId) {
+        this.dispositivoId = dispositivoId;
+    }
+
     public String getDeviceId() {
         return deviceId;
     }
@@ -175,4 +196,12 @@ public class Livro  {
     public void setDataCriacao(LocalDateTime dataCriacao) {
         this.dataCriacao = dataCriacao;
     }
+
+    public Long getVersao() {
+        return versao;
+    }
+
+    public void setVersao(Long versao) {
+        this.versao = versao;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,148 @@
+package com.example.livros.escritaadiada;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Diário local das operações ainda não gravadas no banco.
+ *
+ * Mesmo formato de registro do log de atividade: tamanho (4) + CRC32C do conteúdo (4) + conteúdo.
+ * Um registro incompleto no fim (queda no meio da escrita) encerra a leitura. Depois de cada descarga,
+ * o diário é reescrito só com o que continua pendente, então o arquivo não cresce indefinidamente.
+ * O EscritaAdiadaService serializa anexar e reescrever; forcar pode rodar junto com anexar.
+ */
+final class DiarioFavoritos implements Closeable {
+
+    private static final int CABECALHO_REGISTRO = 8;
+
+    private final Path arquivo;
+    private FileChannel canal;
+
+    private DiarioFavoritos(Path arquivo, FileChannel canal) {
+        this.arquivo = arquivo;
+        this.canal = canal;
+    }
+
+    /**
+     * Abre o diário para anexar, descartando um eventual registro incompleto no fim
+     */
+    static DiarioFavoritos abrir(Path arquivo, long tamanhoValido) throws IOException {
+        Files.createDirectories(arquivo.toAbsolutePath().getParent());
+        FileChannel canal = FileChannel.open(arquivo,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        canal.truncate(tamanhoValido);
+        canal.position(tamanhoValido);
+        return new DiarioFavoritos(arquivo, canal);
+    }
+
+    /**
+     * Lê as operações válidas do diário, em ordem; devolve também onde termina o último registro válido
+     */
+    static Leitura ler(Path arquivo) throws IOException {
+        List<OperacaoFavorito> operacoes = new ArrayList<>();
+        if (!Files.exists(arquivo)) {
+            return new Leitura(operacoes, 0);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(arquivo));
+        CRC32C crc = new CRC32C();
+        int posicao = 0;
+        while (posicao + CABECALHO_REGISTRO <= buffer.limit()) {
+            int tamanho = buffer.getInt(posicao);
+            if (tamanho <= 0 || posicao + CABECALHO_REGISTRO + tamanho > buffer.limit()) {
+                break;
+            }
+            crc.reset();
+            crc.update(buffer.array(), posicao + CABECALHO_REGISTRO, tamanho);
+            if ((int) crc.getValue() != buffer.getInt(posicao + 4)) {
+                break;
+            }
+            operacoes.add(OperacaoFavorito.decodificar(new DataInputStream(
+                    new ByteArrayInputStream(buffer.array(), posicao + CABECALHO_REGISTRO, tamanho))));
+            posicao += CABECALHO_REGISTRO + tamanho;
+        }
+        return new Leitura(operacoes, posicao);
+    }
+
+    void anexar(OperacaoFavorito operacao) throws IOException {
+        ByteBuffer registro = registro(operacao);
+        while (registro.hasRemaining()) {
+            canal.write(registro);
+        }
+    }
+
+    /**
+     * Força para o disco tudo o que já foi anexado
+     */
+    void forcar() throws IOException {
+        canal.force(false);
+    }
+
+    /**
+     * Substitui o conteúdo do diário pelas operações informadas (arquivo temporário + move atômico).
+     * O canal novo é aberto no temporário e acompanha o arquivo no move; o canal antigo só é trocado
+     * depois que o move deu certo, então uma falha aqui deixa o diário anterior intacto e utilizável.
+     */
+    void reescrever(Collection<OperacaoFavorito> operacoes) throws IOException {
+        Path temporario = arquivo.resolveSibling(arquivo.getFileName() + ".tmp");
+        FileChannel novo = FileChannel.open(temporario, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            for (OperacaoFavorito operacao : operacoes) {
+                ByteBuffer registro = registro(operacao);
+                while (registro.hasRemaining()) {
+                    novo.write(registro);
+                }
+            }
+            novo.force(false);
+            Files.move(temporario, arquivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            novo.close();
+            Files.deleteIfExists(temporario);
+            throw e;
+        }
+        FileChannel antigo = canal;
+        canal = novo;
+        antigo.close();
+        forcarDiretorio();
+    }
+
+    /**
+     * Força a entrada do diretório, para o move sobreviver a uma queda (sem suporte em alguns sistemas)
+     */
+    private void forcarDiretorio() {
+        try (FileChannel diretorio = FileChannel.open(arquivo.toAbsolutePath().getParent(), StandardOpenOption.READ)) {
+            diretorio.force(true);
+        } catch (IOException e) {
+            // Windows não abre diretórios como canal; lá o move já é durável o suficiente
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        canal.close();
+    }
+
+    private static ByteBuffer registro(OperacaoFavorito operacao) {
+        byte[] conteudo = operacao.codificar();
+        CRC32C crc = new CRC32C();
+        crc.update(conteudo);
+        ByteBuffer registro = ByteBuffer.allocate(CABECALHO_REGISTRO + conteudo.length);
+        registro.putInt(conteudo.length).putInt((int) crc.getValue()).put(conteudo).flip();
+        return registro;
+    }
+
+    record Leitura(List<OperacaoFavorito> operacoes, long tamanhoValido) {
+    }
+}
@@ -0,0 +1,401 @@
+package com.example.livros.escritaadiada;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.example.livros.dispositivo.RegistroDispositivos;
+import com.example.livros.entities.Favorito;
+import com.example.livros.events.FavoritoAlteradoEvent;
+import com.example.livros.repository.FavoritoRepository;
+import com.example.livros.sharding.ShardExecutor;
+import com.example.livros.sharding.ShardRouter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Escrita adiada (write-behind) dos favoritos, opcional.
+ *
+ * Cada toque no coração vira o estado desejado do par (deviceId, googleBooksId) em memória e é anexado
+ * ao diário local antes da resposta; toques seguidos no mesmo par se fundem (adicionar + remover não
+ * chega a gravar nada). Uma descarga periódica aplica os pares pendentes em uma transação por shard.
+ * As leituras por dispositivo passam por aqui e enxergam as próprias escritas ainda não descarregadas.
+ *
+ * O diário é por instância: use com afinidade de dispositivo no balanceador (ou uma única instância).
+ */
+@Service
+@Lazy(false)
+public class EscritaAdiadaService {
+
+    private static final Logger log = LoggerFactory.getLogger(EscritaAdiadaService.class);
+
+    @Autowired
+    private FavoritoRepository favoritoRepository;
+
+    @Autowired
+    private ShardExecutor shardExecutor;
+
+    @Autowired
+    private ShardRouter router;
+
+    @Autowired
+    private RegistroDispositivos dispositivos;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${livraria.favoritos.escrita-adiada.habilitada:false}")
+    private boolean habilitada;
+
+    @Value("${livraria.favoritos.escrita-adiada.diario:data/favoritos-pendentes.log}")
+    private String arquivoDiario;
+
+    @Value("${livraria.favoritos.escrita-adiada.fsync:true}")
+    private boolean fsync;
+
+    @Value("${livraria.favoritos.escrita-adiada.maximo-pendentes:100000}")
+    private int maximoPendentes;
+
+    @Value("${livraria.favoritos.escrita-adiada.tamanho-lote:500}")
+    private int tamanhoLote;
+
+    // deviceId -> (googleBooksId -> operação pendente); protegido por "trava"
+    private final Map<String, Map<String, OperacaoFavorito>> pendentes = new HashMap<>();
+    // Operações retiradas para a descarga em andamento: continuam visíveis às leituras até o commit
+    private final Map<String, Map<String, OperacaoFavorito>> emDescarga = new HashMap<>();
+    private int quantidadePendentes;
+
+    private final Object trava = new Object();
+    // Leitura: forçar o diário para o disco; escrita: reescrevê-lo (troca o arquivo)
+    private final ReentrantReadWriteLock travaDiario = new ReentrantReadWriteLock();
+    private final Object travaDescarga = new Object();
+
+    private DiarioFavoritos diario;
+    private Counter recebidas;
+    private Counter gravadas;
+    private Counter fundidas;
+    private Counter sincronas;
+
+    @PostConstruct
+    public void iniciar() {
+        if (!habilitada) {
+            return;
+        }
+        recebidas = meterRegistry.counter("livraria.favoritos.escrita-adiada.operacoes", "resultado", "recebida");
+        gravadas = meterRegistry.counter("livraria.favoritos.escrita-adiada.operacoes", "resultado", "gravada");
+        fundidas = meterRegistry.counter("livraria.favoritos.escrita-adiada.operacoes", "resultado", "fundida");
+        sincronas = meterRegistry.counter("livraria.favoritos.escrita-adiada.operacoes", "resultado", "sincrona");
+        meterRegistry.gauge("livraria.favoritos.escrita-adiada.pendentes", this, s -> s.getQuantidadePendentes());
+        Path caminho = Paths.get(arquivoDiario);
+        try {
+            // Recuperação: o que ficou no diário de uma execução anterior volta a ficar pendente
+            DiarioFavoritos.Leitura leitura = DiarioFavoritos.ler(caminho);
+            for (OperacaoFavorito operacao : leitura.operacoes()) {
+                colocar(pendentes, operacao);
+            }
+            quantidadePendentes = contar(pendentes);
+            diario = DiarioFavoritos.abrir(caminho, leitura.tamanhoValido());
+            if (!leitura.operacoes().isEmpty()) {
+                log.info("Escrita adiada: {} favoritos pendentes recuperados do diário {}", quantidadePendentes, caminho);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Não foi possível abrir o diário de favoritos " + caminho, e);
+        }
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        if (diario == null) {
+            return;
+        }
+        try {
+            descarregar();
+        } catch (RuntimeException e) {
+            log.warn("Falha na última descarga; os favoritos pendentes continuam no diário", e);
+        }
+        try {
+            diario.close();
+        } catch (IOException e) {
+            log.debug("Falha ao fechar o diário de favoritos", e);
+        }
+    }
+
+    public boolean isHabilitada() {
+        return habilitada;
+    }
+
+    public int getQuantidadePendentes() {
+        synchronized (trava) {
+            return quantidadePendentes;
+        }
+    }
+
+    // ========== Escrita ==========
+
+    /**
+     * Registra o favorito para gravação posterior e devolve o favorito como ficará (sem ID);
+     * vazio se o buffer estiver cheio, e então quem chamou deve gravar de forma síncrona
+     */
+    public Optional<Favorito> adicionar(String deviceId, String googleBooksId, String titulo, String autor,
+                                        String imagemUrl, String descricao, String dataPublicacao) {
+        OperacaoFavorito operacao = OperacaoFavorito.adicionar(
+                deviceId, googleBooksId, titulo, autor, imagemUrl, descricao, dataPublicacao);
+        return registrar(operacao) ? Optional.of(operacao.paraFavorito()) : Optional.empty();
+    }
+
+    /**
+     * Registra a remoção para gravação posterior; false se o buffer estiver cheio
+     */
+    public boolean remover(String deviceId, String googleBooksId) {
+        return registrar(OperacaoFavorito.remover(deviceId, googleBooksId));
+    }
+
+    private boolean registrar(OperacaoFavorito operacao) {
+        synchronized (trava) {
+            boolean novoPar = !pendentes.getOrDefault(operacao.deviceId(), Map.of()).containsKey(operacao.googleBooksId());
+            // Um par em descarga também conta como pendente: gravá-lo direto no banco concorreria com a descarga,
+            // que poderia sobrescrevê-lo depois com o estado antigo
+            boolean emAndamento = emDescarga.getOrDefault(operacao.deviceId(), Map.of()).containsKey(operacao.googleBooksId());
+            if (novoPar && !emAndamento && quantidadePendentes >= maximoPendentes) {
+                // Um par já pendente sempre cabe (só troca de estado); um par novo além do limite vai direto ao banco
+                sincronas.increment();
+                return false;
+            }
+            try {
+                diario.anexar(operacao);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Falha ao gravar no diário de favoritos", e);
+            }
+            colocar(pendentes, operacao);
+            if (novoPar) {
+                quantidadePendentes++;
+            } else {
+                fundidas.increment();
+            }
+            recebidas.increment();
+        }
+        if (fsync) {
+            // Fora da trava: várias requisições simultâneas são forçadas pelo mesmo fsync
+            travaDiario.readLock().lock();
+            try {
+                diario.forcar();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Falha ao forçar o diário de favoritos", e);
+            } finally {
+                travaDiario.readLock().unlock();
+            }
+        }
+        return true;
+    }
+
+    // ========== Leitura ==========
+
+    /**
+     * Aplica as operações pendentes do dispositivo sobre os favoritos lidos do banco
+     */
+    public List<Favorito> sobreporFavoritos(String deviceId, List<Favorito> doBanco) {
+        Map<String, OperacaoFavorito> doDispositivo = operacoesDoDispositivo(deviceId);
+        if (doDispositivo.isEmpty()) {
+            return doBanco;
+        }
+        List<Favorito> resultado = new ArrayList<>(doBanco.size() + doDispositivo.size());
+        for (Favorito favorito : doBanco) {
+            OperacaoFavorito operacao = doDispositivo.remove(favorito.getGoogleBooksId());
+            if (operacao == null || operacao.adicionado()) {
+                resultado.add(favorito);
+            }
+        }
+        for (OperacaoFavorito operacao : doDispositivo.values()) {
+            if (operacao.adicionado()) {
+                resultado.add(operacao.paraFavorito());
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Estado pendente do par, se houver (true = adicionado, false = removido)
+     */
+    public Optional<Boolean> estadoPendente(String deviceId, String googleBooksId) {
+        synchronized (trava) {
+            OperacaoFavorito operacao = pendentes.getOrDefault(deviceId, Map.of()).get(googleBooksId);
+            if (operacao == null) {
+                operacao = emDescarga.getOrDefault(deviceId, Map.of()).get(googleBooksId);
+            }
+            return Optional.ofNullable(operacao).map(OperacaoFavorito::adicionado);
+        }
+    }
+
+    private Map<String, OperacaoFavorito> operacoesDoDispositivo(String deviceId) {
+        synchronized (trava) {
+            Map<String, OperacaoFavorito> resultado = new LinkedHashMap<>(emDescarga.getOrDefault(deviceId, Map.of()));
+            resultado.putAll(pendentes.getOrDefault(deviceId, Map.of()));
+            return resultado;
+        }
+    }
+
+    // ========== Descarga ==========
+
+    @Scheduled(fixedDelayString = "${livraria.favoritos.escrita-adiada.intervalo-ms:500}")
+    public void descarregarPeriodicamente() {
+        if (diario != null) {
+            try {
+                descarregar();
+            } catch (RuntimeException e) {
+                log.warn("Falha ao descarregar os favoritos pendentes; nova tentativa no próximo ciclo", e);
+            }
+        }
+    }
+
+    /**
+     * Grava no banco tudo o que está pendente (uma transação por shard e por lote) e devolve quantas
+     * linhas mudaram de fato. Em caso de falha, as operações voltam a ficar pendentes.
+     */
+    public int descarregar() {
+        if (diario == null) {
+            return 0;
+        }
+        synchronized (travaDescarga) {
+            List<OperacaoFavorito> lote;
+            synchronized (trava) {
+                if (quantidadePendentes == 0) {
+                    return 0;
+                }
+                emDescarga.putAll(pendentes);
+                pendentes.clear();
+                quantidadePendentes = 0;
+                lote = new ArrayList<>();
+                emDescarga.values().forEach(doDispositivo -> lote.addAll(doDispositivo.values()));
+            }
+            int alteradas = 0;
+            try {
+                alteradas = gravar(lote);
+            } catch (RuntimeException e) {
+                synchronized (trava) {
+                    // O que chegou durante a descarga é mais novo e prevalece
+                    emDescarga.forEach((deviceId, doDispositivo) -> doDispositivo.forEach((googleBooksId, operacao) ->
+                            pendentes.computeIfAbsent(deviceId, k -> new HashMap<>()).putIfAbsent(googleBooksId, operacao)));
+                    emDescarga.clear();
+                    quantidadePendentes = contar(pendentes);
+                }
+                throw e;
+            }
+            synchronized (trava) {
+                emDescarga.clear();
+                List<OperacaoFavorito> restantes = new ArrayList<>(quantidadePendentes);
+                pendentes.values().forEach(doDispositivo -> restantes.addAll(doDispositivo.values()));
+                travaDiario.writeLock().lock();
+                try {
+                    diario.reescrever(restantes);
+                } catch (IOException e) {
+                    // O diário antigo continua válido: só contém operações a mais, que são idempotentes
+                    log.warn("Falha ao compactar o diário de favoritos", e);
+                } finally {
+                    travaDiario.writeLock().unlock();
+                }
+            }
+            gravadas.increment(lote.size());
+            return alteradas;
+        }
+    }
+
+    private int gravar(List<OperacaoFavorito> lote) {
+        // Os dispositivos novos são registrados antes de abrir as transações de gravação (ver RegistroDispositivos)
+        Map<String, Long> chaves = new HashMap<>();
+        for (OperacaoFavorito operacao : lote) {
+            if (operacao.adicionado()) {
+                chaves.computeIfAbsent(operacao.deviceId(), dispositivos::registrar);
+            }
+        }
+        if (router.emMigracao()) {
+            // Durante o resharding o par pode estar em dois shards: uma operação por vez, pelo caminho completo
+            int alteradas = 0;
+            for (OperacaoFavorito operacao : lote) {
+                String deviceId = operacao.deviceId();
+                if (operacao.adicionado()) {
+                    boolean noShardAnterior = shardExecutor.noShardAnterior(deviceId, () -> dispositivos.buscar(deviceId)
+                            .map(id -> favoritoRepository.existsByDispositivoIdAndGoogleBooksId(id, operacao.googleBooksId()))
+                            .orElse(false), false);
+                    if (!noShardAnterior) {
+                        alteradas += shardExecutor.doDevice(deviceId, false, () -> aplicar(operacao, chaves));
+                    }
+                } else {
+                    alteradas += shardExecutor.noShardAnterior(deviceId, false, () -> aplicar(operacao, chaves), 0);
+                    alteradas += shardExecutor.doDevice(deviceId, false, () -> aplicar(operacao, chaves));
+                }
+            }
+            return alteradas;
+        }
+        Map<Integer, List<OperacaoFavorito>> porShard = new HashMap<>();
+        for (OperacaoFavorito operacao : lote) {
+            porShard.computeIfAbsent(router.shardDoDevice(operacao.deviceId()), k -> new ArrayList<>()).add(operacao);
+        }
+        int alteradas = 0;
+        for (Map.Entry<Integer, List<OperacaoFavorito>> shard : porShard.entrySet()) {
+            List<OperacaoFavorito> operacoes = shard.getValue();
+            for (int inicio = 0; inicio < operacoes.size(); inicio += tamanhoLote) {
+                List<OperacaoFavorito> parte = operacoes.subList(inicio, Math.min(inicio + tamanhoLote, operacoes.size()));
+                alteradas += shardExecutor.noShard(shard.getKey(), false,
+                        () -> parte.stream().mapToInt(operacao -> aplicar(operacao, chaves)).sum());
+            }
+        }
+        return alteradas;
+    }
+
+    /**
+     * Aplica a operação de forma idempotente na transação atual; devolve 1 se uma linha mudou
+     */
+    private int aplicar(OperacaoFavorito operacao, Map<String, Long> chaves) {
+        // Adicionar usa o dispositivo já registrado; remover de um dispositivo nunca registrado não tem o que fazer
+        Optional<Long> dispositivoId = operacao.adicionado()
+                ? Optional.of(chaves.get(operacao.deviceId()))
+                : dispositivos.buscar(operacao.deviceId());
+        Optional<Favorito> existente = dispositivoId.flatMap(
+                id -> favoritoRepository.findByDispositivoIdAndGoogleBooksId(id, operacao.googleBooksId()));
+        if (operacao.adicionado() && existente.isEmpty()) {
+            Favorito favorito = operacao.paraFavorito();
+            favorito.setDispositivoId(dispositivoId.get());
+            favoritoRepository.save(favorito);
+        } else if (!operacao.adicionado() && existente.isPresent()) {
+            favoritoRepository.delete(existente.get());
+        } else {
+            return 0;
+        }
+        eventPublisher.publishEvent(
+                new FavoritoAlteradoEvent(operacao.deviceId(), operacao.googleBooksId(), operacao.adicionado()));
+        return 1;
+    }
+
+    // ========== Apoio ==========
+
+    private static void colocar(Map<String, Map<String, OperacaoFavorito>> destino, OperacaoFavorito operacao) {
+        destino.computeIfAbsent(operacao.deviceId(), k -> new HashMap<>()).put(operacao.googleBooksId(), operacao);
+    }
+
+    private static int contar(Map<String, Map<String, OperacaoFavorito>> mapa) {
+        return mapa.values().stream().mapToInt(Map::size).sum();
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.livros.escritaadiada;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import com.example.livros.entities.Favorito;
+
+/**
+ * Estado desejado de um par (deviceId, googleBooksId): adicionado (com os dados do livro) ou removido.
+ * Só a última operação de cada par importa, então toques repetidos no coração se fundem em uma só.
+ */
+record OperacaoFavorito(boolean adicionado, String deviceId, String googleBooksId, String titulo, String autor,
+                        String imagemUrl, String descricao, String dataPublicacao) {
+
+    static OperacaoFavorito adicionar(String deviceId, String googleBooksId, String titulo, String autor,
+                                      String imagemUrl, String descricao, String dataPublicacao) {
+        return new OperacaoFavorito(true, deviceId, googleBooksId, titulo, autor, imagemUrl, descricao, dataPublicacao);
+    }
+
+    static OperacaoFavorito remover(String deviceId, String googleBooksId) {
+        return new OperacaoFavorito(false, deviceId, googleBooksId, null, null, null, null, null);
+    }
+
+    /**
+     * Favorito ainda não gravado (sem ID), usado nas respostas e nas leituras enquanto a operação está pendente
+     */
+    Favorito paraFavorito() {
+        return new Favorito(deviceId, googleBooksId, titulo, autor, imagemUrl, descricao, dataPublicacao);
+    }
+
+    byte[] codificar() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream saida = new DataOutputStream(bytes)) {
+            saida.writeBoolean(adicionado);
+            saida.writeUTF(deviceId);
+            saida.writeUTF(googleBooksId);
+            if (adicionado) {
+                escrever(saida, titulo);
+                escrever(saida, autor);
+                escrever(saida, imagemUrl);
+                escrever(saida, descricao);
+                escrever(saida, dataPublicacao);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static OperacaoFavorito decodificar(DataInputStream entrada) throws IOException {
+        boolean adicionado = entrada.readBoolean();
+        String deviceId = entrada.readUTF();
+        String googleBooksId = entrada.readUTF();
+        if (!adicionado) {
+            return remover(deviceId, googleBooksId);
+        }
+        return adicionar(deviceId, googleBooksId, ler(entrada), ler(entrada), ler(entrada), ler(entrada), ler(entrada));
+    }
+
+    private static void escrever(DataOutputStream saida, String valor) throws IOException {
+        saida.writeBoolean(valor != null);
+        if (valor != null) {
+            saida.writeUTF(valor);
+        }
+    }
+
+    private static String ler(DataInputStream entrada) throws IOException {
+        return entrada.readBoolean() ? entrada.readUTF() : null;
+    }
+}
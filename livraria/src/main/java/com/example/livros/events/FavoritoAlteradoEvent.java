@@ -0,0 +1,41 @@
+package com.example.livros.events;
+
+/**
+ * Evento publicado quando um livro do Google Books entra ou sai dos favoritos de um dispositivo.
+ * Eventos remotos vieram de outra instância pelo barramento de invalidação; um evento remoto sem
+ * googleBooksId indica que qualquer favorito pode ter mudado (eventos perdidos).
+ */
+public class FavoritoAlteradoEvent {
+
+    private final String deviceId;
+    private final String googleBooksId;
+    private final boolean adicionado;
+    private final boolean remoto;
+
+    public FavoritoAlteradoEvent(String deviceId, String googleBooksId, boolean adicionado) {
+        this(deviceId, googleBooksId, adicionado, false);
+    }
+
+    public FavoritoAlteradoEvent(String deviceId, String googleBooksId, boolean adicionado, boolean remoto) {
+        this.deviceId = deviceId;
+        this.googleBooksId = googleBooksId;
+        this.adicionado = adicionado;
+        this.remoto = remoto;
+    }
+
+    public String getDeviceId() {
+        return deviceId;
+    }
+
+    public String getGoogleBooksId() {
+        return googleBooksId;
+    }
+
+    public boolean isAdicionado() {
+        return adicionado;
+    }
+
+    public boolean isRemoto() {
+        return remoto;
+    }
+}
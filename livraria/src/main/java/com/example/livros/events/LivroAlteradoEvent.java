@@ -0,0 +1,29 @@
+package com.example.livros.events;
+
+/**
+ * Evento publicado quando uma linha de tb_livros é criada, alterada ou removida.
+ * O id é nulo quando várias linhas mudaram de uma vez (ex.: compactação).
+ * Eventos remotos vieram de outra instância pelo barramento de invalidação.
+ */
+public class LivroAlteradoEvent {
+
+    private final Long id;
+    private final boolean remoto;
+
+    public LivroAlteradoEvent(Long id) {
+        this(id, false);
+    }
+
+    public LivroAlteradoEvent(Long id, boolean remoto) {
+        this.id = id;
+        this.remoto = remoto;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public boolean isRemoto() {
+        return remoto;
+    }
+}
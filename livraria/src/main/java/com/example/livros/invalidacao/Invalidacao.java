@@ -0,0 +1,35 @@
+package com.example.livros.invalidacao;
+
+/**
+ * Evento de invalidação trocado entre instâncias.
+ *
+ * A versão é atribuída pelo transporte na publicação e cresce sem buracos (salvo publicações
+ * desfeitas); é ela que permite a cada instância detectar eventos perdidos.
+ *
+ * @param versao        posição no barramento (0 antes de publicar)
+ * @param tipo          o que mudou
+ * @param chave         ID do livro (nulo: vários livros) ou googleBooksId do favorito
+ * @param deviceId      dispositivo do favorito; nulo para livros
+ * @param origem        instância que publicou
+ */
+public record Invalidacao(long versao, Tipo tipo, String chave, String deviceId, String origem) {
+
+    public enum Tipo {
+        LIVRO,
+        FAVORITO_ADICIONADO,
+        FAVORITO_REMOVIDO
+    }
+
+    public static Invalidacao livro(Long id, String origem) {
+        return new Invalidacao(0, Tipo.LIVRO, id == null ? null : id.toString(), null, origem);
+    }
+
+    public static Invalidacao favorito(String deviceId, String googleBooksId, boolean adicionado, String origem) {
+        return new Invalidacao(0, adicionado ? Tipo.FAVORITO_ADICIONADO : Tipo.FAVORITO_REMOVIDO,
+                googleBooksId, deviceId, origem);
+    }
+
+    public Long idLivro() {
+        return chave == null ? null : Long.valueOf(chave);
+    }
+}
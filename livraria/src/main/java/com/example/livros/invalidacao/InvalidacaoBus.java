@@ -0,0 +1,32 @@
+package com.example.livros.invalidacao;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Transporte dos eventos de invalidação entre instâncias: um log ordenado por versão que cada
+ * instância lê a partir da última versão que aplicou
+ */
+public interface InvalidacaoBus {
+
+    /**
+     * Acrescenta o evento ao log e devolve a versão atribuída
+     */
+    long publicar(Invalidacao invalidacao);
+
+    /**
+     * Eventos com versão maior que a informada, em ordem de versão
+     */
+    List<Invalidacao> lerApos(long versao, int limite);
+
+    /**
+     * Maior versão já publicada (0 se nenhuma)
+     */
+    long ultimaVersao();
+
+    /**
+     * Remove eventos publicados antes do instante informado, sempre mantendo o mais recente;
+     * devolve quantos foram removidos
+     */
+    int limpar(LocalDateTime antesDe);
+}
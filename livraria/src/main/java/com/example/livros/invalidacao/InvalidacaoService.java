@@ -0,0 +1,167 @@
+package com.example.livros.invalidacao;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.livros.events.FavoritoAlteradoEvent;
+import com.example.livros.events.LivroAlteradoEvent;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Coerência dos caches locais entre instâncias atrás do balanceador.
+ *
+ * Cada escrita em livros ou favoritos (já confirmada) vira um evento curto no barramento; as outras
+ * instâncias o recebem e o republicam aqui como LivroAlteradoEvent/FavoritoAlteradoEvent remotos,
+ * que os caches já tratam (livros por ID, busca, catálogo, facetas, ranking, recomendações).
+ * Eventos perdidos e um barramento inacessível resultam em invalidação completa (ver ReceptorInvalidacoes).
+ */
+@Service
+@Lazy(false)
+public class InvalidacaoService {
+
+    private static final Logger log = LoggerFactory.getLogger(InvalidacaoService.class);
+
+    @Autowired
+    private InvalidacaoBus bus;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${livraria.invalidacao.habilitada:false}")
+    private boolean habilitada;
+
+    @Value("${livraria.invalidacao.espera-lacuna-ms:1000}")
+    private long esperaLacunaMs;
+
+    @Value("${livraria.invalidacao.atraso-maximo-ms:5000}")
+    private long atrasoMaximoMs;
+
+    @Value("${livraria.invalidacao.tamanho-lote:500}")
+    private int tamanhoLote;
+
+    @Value("${livraria.invalidacao.retencao-minutos:60}")
+    private long retencaoMinutos;
+
+    // Identifica esta instância (e esta execução) nos eventos que ela publica
+    private final String origem = UUID.randomUUID().toString();
+
+    private ReceptorInvalidacoes receptor;
+    private Counter publicadas;
+    private Counter falhasPublicacao;
+    private Counter recebidas;
+
+    @PostConstruct
+    public void iniciar() {
+        if (!habilitada) {
+            return;
+        }
+        receptor = new ReceptorInvalidacoes(bus, origem, esperaLacunaMs, atrasoMaximoMs, tamanhoLote,
+                this::aplicar, this::invalidarTudo, System.currentTimeMillis());
+        publicadas = meterRegistry.counter("livraria.invalidacao.eventos", "resultado", "publicado");
+        falhasPublicacao = meterRegistry.counter("livraria.invalidacao.eventos", "resultado", "falha-publicacao");
+        recebidas = meterRegistry.counter("livraria.invalidacao.eventos", "resultado", "recebido");
+        meterRegistry.gauge("livraria.invalidacao.atraso-ms", this, s -> s.getAtrasoMs());
+    }
+
+    public boolean isHabilitada() {
+        return habilitada;
+    }
+
+    public String getOrigem() {
+        return origem;
+    }
+
+    public long getAtrasoMs() {
+        return receptor == null ? 0 : receptor.getAtrasoMs(System.currentTimeMillis());
+    }
+
+    // ========== Publicação ==========
+
+    /**
+     * Publica as alterações feitas nesta instância depois do commit (eventos remotos não voltam ao barramento)
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLivroAlterado(LivroAlteradoEvent event) {
+        if (habilitada && !event.isRemoto()) {
+            publicar(Invalidacao.livro(event.getId(), origem));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFavoritoAlterado(FavoritoAlteradoEvent event) {
+        if (habilitada && !event.isRemoto()) {
+            publicar(Invalidacao.favorito(event.getDeviceId(), event.getGoogleBooksId(), event.isAdicionado(), origem));
+        }
+    }
+
+    private void publicar(Invalidacao invalidacao) {
+        try {
+            bus.publicar(invalidacao);
+            publicadas.increment();
+        } catch (RuntimeException e) {
+            // A escrita já foi confirmada; as outras instâncias ficam limitadas pelo TTL dos caches
+            falhasPublicacao.increment();
+            log.warn("Falha ao publicar a invalidação {} {}", invalidacao.tipo(), invalidacao.chave(), e);
+        }
+    }
+
+    // ========== Recepção ==========
+
+    @Scheduled(fixedDelayString = "${livraria.invalidacao.intervalo-ms:200}")
+    public void sondarPeriodicamente() {
+        if (receptor != null) {
+            sondar();
+        }
+    }
+
+    /**
+     * Aplica os eventos novos de outras instâncias e devolve quantos foram aplicados
+     */
+    public synchronized int sondar() {
+        return receptor == null ? 0 : receptor.sondar(System.currentTimeMillis());
+    }
+
+    private void aplicar(Invalidacao invalidacao) {
+        recebidas.increment();
+        switch (invalidacao.tipo()) {
+            case LIVRO -> eventPublisher.publishEvent(new LivroAlteradoEvent(invalidacao.idLivro(), true));
+            case FAVORITO_ADICIONADO, FAVORITO_REMOVIDO -> eventPublisher.publishEvent(new FavoritoAlteradoEvent(
+                    invalidacao.deviceId(), invalidacao.chave(), invalidacao.tipo() == Invalidacao.Tipo.FAVORITO_ADICIONADO, true));
+        }
+    }
+
+    private void invalidarTudo(String motivo) {
+        meterRegistry.counter("livraria.invalidacao.completas", "motivo", motivo).increment();
+        eventPublisher.publishEvent(new LivroAlteradoEvent(null, true));
+        eventPublisher.publishEvent(new FavoritoAlteradoEvent(null, null, false, true));
+    }
+
+    @Scheduled(cron = "${livraria.invalidacao.cron-limpeza:0 */10 * * * *}")
+    public void limpar() {
+        if (!habilitada) {
+            return;
+        }
+        try {
+            int removidas = bus.limpar(LocalDateTime.now().minusMinutes(retencaoMinutos));
+            log.debug("{} eventos de invalidação antigos removidos", removidas);
+        } catch (RuntimeException e) {
+            log.warn("Falha ao limpar o barramento de invalidação", e);
+        }
+    }
+}
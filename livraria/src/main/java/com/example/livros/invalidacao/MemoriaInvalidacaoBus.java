@@ -0,0 +1,70 @@
+package com.example.livros.invalidacao;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Barramento em memória, compartilhado pelas "instâncias" de um mesmo processo: serve para uma
+ * instância única e para testes com vários receptores.
+ *
+ * reservar/confirmar separam a atribuição da versão da publicação, como acontece no outbox quando
+ * duas transações concorrem, para simular publicações em andamento ou desfeitas.
+ */
+public class MemoriaInvalidacaoBus implements InvalidacaoBus {
+
+    private final AtomicLong sequencia = new AtomicLong();
+    private final ConcurrentSkipListMap<Long, Publicada> eventos = new ConcurrentSkipListMap<>();
+
+    @Override
+    public long publicar(Invalidacao invalidacao) {
+        long versao = reservar();
+        confirmar(versao, invalidacao);
+        return versao;
+    }
+
+    public long reservar() {
+        return sequencia.incrementAndGet();
+    }
+
+    public void confirmar(long versao, Invalidacao invalidacao) {
+        eventos.put(versao, new Publicada(new Invalidacao(versao, invalidacao.tipo(), invalidacao.chave(),
+                invalidacao.deviceId(), invalidacao.origem()), LocalDateTime.now()));
+    }
+
+    @Override
+    public List<Invalidacao> lerApos(long versao, int limite) {
+        List<Invalidacao> lidas = new ArrayList<>();
+        for (Publicada publicada : eventos.tailMap(versao, false).values()) {
+            if (lidas.size() >= limite) {
+                break;
+            }
+            lidas.add(publicada.invalidacao());
+        }
+        return lidas;
+    }
+
+    @Override
+    public long ultimaVersao() {
+        Map.Entry<Long, Publicada> ultima = eventos.lastEntry();
+        return ultima == null ? 0 : ultima.getKey();
+    }
+
+    @Override
+    public int limpar(LocalDateTime antesDe) {
+        long ultima = ultimaVersao();
+        int removidas = 0;
+        for (Map.Entry<Long, Publicada> entrada : eventos.headMap(ultima, false).entrySet()) {
+            if (entrada.getValue().criadaEm().isBefore(antesDe) && eventos.remove(entrada.getKey()) != null) {
+                removidas++;
+            }
+        }
+        return removidas;
+    }
+
+    private record Publicada(Invalidacao invalidacao, LocalDateTime criadaEm) {
+    }
+}
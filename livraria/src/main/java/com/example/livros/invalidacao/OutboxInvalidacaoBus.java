@@ -0,0 +1,67 @@
+package com.example.livros.invalidacao;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Barramento sobre a tabela tb_invalidacoes (outbox) do banco principal: publicar é um INSERT e cada
+ * instância consulta periodicamente as linhas novas.
+ *
+ * A versão vem da linha única de tb_invalidacoes_sequencia, incrementada na mesma transação do INSERT
+ * (não do auto-incremento, que pode andar de passo-ids em passo-ids e deixa buracos). O UPDATE segura a
+ * linha até o commit, então as publicações concorrentes recebem versões na ordem em que são confirmadas
+ * e uma publicação desfeita devolve a versão junto.
+ */
+public class OutboxInvalidacaoBus implements InvalidacaoBus {
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate transacao;
+
+    public OutboxInvalidacaoBus(DataSource dataSource) {
+        this.jdbc = new JdbcTemplate(dataSource);
+        this.transacao = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    @Override
+    public long publicar(Invalidacao invalidacao) {
+        return transacao.execute(status -> {
+            jdbc.update("UPDATE tb_invalidacoes_sequencia SET valor = valor + 1 WHERE id = 1");
+            long versao = jdbc.queryForObject("SELECT valor FROM tb_invalidacoes_sequencia WHERE id = 1", Long.class);
+            jdbc.update("INSERT INTO tb_invalidacoes (id, tipo, chave, device_id, origem, data_criacao)"
+                            + " VALUES (?, ?, ?, ?, ?, ?)",
+                    versao, invalidacao.tipo().name(), invalidacao.chave(), invalidacao.deviceId(),
+                    invalidacao.origem(), Timestamp.valueOf(LocalDateTime.now()));
+            return versao;
+        });
+    }
+
+    @Override
+    public List<Invalidacao> lerApos(long versao, int limite) {
+        return jdbc.query(
+                "SELECT id, tipo, chave, device_id, origem FROM tb_invalidacoes WHERE id > ? ORDER BY id LIMIT ?",
+                (rs, linha) -> new Invalidacao(rs.getLong("id"), Invalidacao.Tipo.valueOf(rs.getString("tipo")),
+                        rs.getString("chave"), rs.getString("device_id"), rs.getString("origem")),
+                versao, limite);
+    }
+
+    @Override
+    public long ultimaVersao() {
+        Long maior = jdbc.queryForObject("SELECT MAX(id) FROM tb_invalidacoes", Long.class);
+        return maior == null ? 0 : maior;
+    }
+
+    @Override
+    public int limpar(LocalDateTime antesDe) {
+        // A linha mais recente fica: sem ela, uma instância que subisse com a tabela vazia leria
+        // MAX(id) = 0 e veria o próximo evento como um buraco
+        return jdbc.update("DELETE FROM tb_invalidacoes WHERE data_criacao < ? AND id < ?",
+                Timestamp.valueOf(antesDe), ultimaVersao());
+    }
+}
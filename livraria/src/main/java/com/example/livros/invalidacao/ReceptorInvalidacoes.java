@@ -0,0 +1,125 @@
+package com.example.livros.invalidacao;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Lado de leitura do barramento em uma instância: aplica os eventos de outras instâncias em ordem
+ * de versão e garante que os caches locais nunca fiquem desatualizados por mais que um limite.
+ *
+ * - Buraco na sequência: pode ser uma publicação ainda não confirmada, então os eventos seguintes
+ *   esperam até esperaLacunaMs; passado esse tempo o evento é dado como perdido e tudo é invalidado.
+ * - Barramento inacessível por mais de atrasoMaximoMs: tudo é invalidado a cada sondagem até voltar.
+ *
+ * Não é thread-safe; sondar() é chamado por uma única thread agendada (ou pelos testes).
+ */
+public class ReceptorInvalidacoes {
+
+    private static final Logger log = LoggerFactory.getLogger(ReceptorInvalidacoes.class);
+
+    public static final String MOTIVO_LACUNA = "lacuna";
+    public static final String MOTIVO_ATRASO = "atraso";
+
+    private final InvalidacaoBus bus;
+    private final String origem;
+    private final long esperaLacunaMs;
+    private final long atrasoMaximoMs;
+    private final int tamanhoLote;
+    private final Consumer<Invalidacao> aplicar;
+    private final Consumer<String> invalidarTudo;
+
+    // -1 até a primeira leitura da versão atual do barramento
+    private long ultimaVersao = -1;
+    private long ultimaSondagemOk;
+    private long lacunaDesde = -1;
+    private boolean atrasado;
+
+    public ReceptorInvalidacoes(InvalidacaoBus bus, String origem, long esperaLacunaMs, long atrasoMaximoMs,
+                                int tamanhoLote, Consumer<Invalidacao> aplicar, Consumer<String> invalidarTudo,
+                                long agora) {
+        if (esperaLacunaMs >= atrasoMaximoMs) {
+            throw new IllegalArgumentException("A espera por lacunas (" + esperaLacunaMs
+                    + " ms) precisa ser menor que o atraso máximo (" + atrasoMaximoMs + " ms)");
+        }
+        this.bus = bus;
+        this.origem = origem;
+        this.esperaLacunaMs = esperaLacunaMs;
+        this.atrasoMaximoMs = atrasoMaximoMs;
+        this.tamanhoLote = tamanhoLote;
+        this.aplicar = aplicar;
+        this.invalidarTudo = invalidarTudo;
+        this.ultimaSondagemOk = agora;
+    }
+
+    /**
+     * Lê e aplica os eventos novos; devolve quantos eventos de outras instâncias foram aplicados
+     */
+    public int sondar(long agora) {
+        List<Invalidacao> lidas;
+        try {
+            if (ultimaVersao < 0) {
+                // Na subida os caches estão vazios: basta acompanhar o barramento daqui em diante
+                ultimaVersao = bus.ultimaVersao();
+                lidas = List.of();
+            } else {
+                lidas = bus.lerApos(ultimaVersao, tamanhoLote);
+            }
+        } catch (RuntimeException e) {
+            if (agora - ultimaSondagemOk > atrasoMaximoMs) {
+                if (!atrasado) {
+                    log.warn("Barramento de invalidação inacessível há {} ms; caches locais serão descartados "
+                            + "a cada sondagem até ele voltar", agora - ultimaSondagemOk, e);
+                    atrasado = true;
+                }
+                invalidarTudo.accept(MOTIVO_ATRASO);
+            } else {
+                log.debug("Falha ao ler o barramento de invalidação", e);
+            }
+            return 0;
+        }
+        if (atrasado) {
+            log.info("Barramento de invalidação acessível de novo");
+            atrasado = false;
+        }
+        ultimaSondagemOk = agora;
+
+        int aplicadas = 0;
+        for (Invalidacao invalidacao : lidas) {
+            if (invalidacao.versao() != ultimaVersao + 1) {
+                if (lacunaDesde < 0) {
+                    lacunaDesde = agora;
+                }
+                if (agora - lacunaDesde < esperaLacunaMs) {
+                    // Talvez uma publicação ainda não confirmada: os eventos seguintes esperam por ela
+                    break;
+                }
+                // O evento perdido já foi confirmado no banco antes de ser publicado, então descartar
+                // tudo agora cobre o que ele invalidaria
+                log.warn("Eventos de invalidação {} a {} não chegaram; descartando os caches locais",
+                        ultimaVersao + 1, invalidacao.versao() - 1);
+                invalidarTudo.accept(MOTIVO_LACUNA);
+            }
+            lacunaDesde = -1;
+            ultimaVersao = invalidacao.versao();
+            if (!origem.equals(invalidacao.origem())) {
+                aplicar.accept(invalidacao);
+                aplicadas++;
+            }
+        }
+        return aplicadas;
+    }
+
+    public long getUltimaVersao() {
+        return ultimaVersao;
+    }
+
+    /**
+     * Tempo desde a última leitura bem-sucedida do barramento
+     */
+    public long getAtrasoMs(long agora) {
+        return agora - ultimaSondagemOk;
+    }
+}
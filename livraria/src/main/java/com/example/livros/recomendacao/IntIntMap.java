@@ -0,0 +1,105 @@
+package com.example.livros.recomendacao;
+
+import java.util.Arrays;
+
+/**
+ * Mapa int -> int com endereçamento aberto (sondagem linear), sem boxing.
+ *
+ * Representa uma linha esparsa da matriz de co-ocorrência. Chaves são índices de livro
+ * (sempre >= 0); entradas cujo valor chega a zero continuam no mapa e são ignoradas na leitura.
+ */
+final class IntIntMap {
+
+    private static final int VAZIO = -1;
+
+    private int[] chaves;
+    private int[] valores;
+    private int tamanho;
+
+    IntIntMap(int capacidadeInicial) {
+        int capacidade = Integer.highestOneBit(Math.max(4, capacidadeInicial) * 2 - 1);
+        chaves = new int[capacidade];
+        valores = new int[capacidade];
+        Arrays.fill(chaves, VAZIO);
+    }
+
+    void somar(int chave, int delta) {
+        int mascara = chaves.length - 1;
+        int i = misturar(chave) & mascara;
+        while (chaves[i] != VAZIO) {
+            if (chaves[i] == chave) {
+                valores[i] += delta;
+                return;
+            }
+            i = (i + 1) & mascara;
+        }
+        chaves[i] = chave;
+        valores[i] = delta;
+        if (++tamanho * 4 > chaves.length * 3) {
+            redimensionar();
+        }
+    }
+
+    int get(int chave) {
+        int mascara = chaves.length - 1;
+        int i = misturar(chave) & mascara;
+        while (chaves[i] != VAZIO) {
+            if (chaves[i] == chave) {
+                return valores[i];
+            }
+            i = (i + 1) & mascara;
+        }
+        return 0;
+    }
+
+    /**
+     * Percorre as entradas com valor positivo
+     */
+    /**
+     * Quantidade de chaves no mapa (inclui as que estão com valor zero)
+     */
+    int tamanho() {
+        return tamanho;
+    }
+
+    void paraCada(Visitante visitante) {
+        for (int i = 0; i < chaves.length; i++) {
+            if (chaves[i] != VAZIO && valores[i] > 0) {
+                visitante.visitar(chaves[i], valores[i]);
+            }
+        }
+    }
+
+    long bytes() {
+        return 16L + 2L * (16L + 4L * chaves.length);
+    }
+
+    private void redimensionar() {
+        int[] chavesAntigas = chaves;
+        int[] valoresAntigos = valores;
+        chaves = new int[chavesAntigas.length * 2];
+        valores = new int[valoresAntigos.length * 2];
+        Arrays.fill(chaves, VAZIO);
+        int mascara = chaves.length - 1;
+        for (int j = 0; j < chavesAntigas.length; j++) {
+            if (chavesAntigas[j] != VAZIO) {
+                int i = misturar(chavesAntigas[j]) & mascara;
+                while (chaves[i] != VAZIO) {
+                    i = (i + 1) & mascara;
+                }
+                chaves[i] = chavesAntigas[j];
+                valores[i] = valoresAntigos[j];
+            }
+        }
+    }
+
+    private static int misturar(int chave) {
+        int h = chave * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    @FunctionalInterface
+    interface Visitante {
+        void visitar(int chave, int valor);
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.livros.recomendacao;
+
+import java.util.Arrays;
+
+/**
+ * Lista de int sem boxing, usada para as cestas de favoritos de cada dispositivo
+ */
+final class IntLista {
+
+    private int[] itens;
+    private int tamanho;
+
+    IntLista(int capacidade) {
+        this.itens = new int[Math.max(1, capacidade)];
+    }
+
+    void adicionar(int valor) {
+        if (tamanho == itens.length) {
+            itens = Arrays.copyOf(itens, tamanho * 2);
+        }
+        itens[tamanho++] = valor;
+    }
+
+    boolean contem(int valor) {
+        for (int i = 0; i < tamanho; i++) {
+            if (itens[i] == valor) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    boolean remover(int valor) {
+        for (int i = 0; i < tamanho; i++) {
+            if (itens[i] == valor) {
+                itens[i] = itens[--tamanho];
+                return true;
+            }
+        }
+        return false;
+    }
+
+    int get(int indice) {
+        return itens[indice];
+    }
+
+    void set(int indice, int valor) {
+        itens[indice] = valor;
+    }
+
+    int tamanho() {
+        return tamanho;
+    }
+
+    long bytes() {
+        return 16L + 16L + 4L * itens.length;
+    }
+}
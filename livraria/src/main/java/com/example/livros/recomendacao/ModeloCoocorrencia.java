@@ -0,0 +1,313 @@
+package com.example.livros.recomendacao;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.example.livros.dto.RecomendacaoDTO;
+
+/**
+ * Modelo item-a-item de co-ocorrência sobre os pares (deviceId, googleBooksId).
+ *
+ * Cada googleBooksId recebe um índice int; a linha de um livro guarda, de forma esparsa,
+ * quantos dispositivos favoritaram também cada outro livro. A similaridade é o cosseno
+ * co(x, y) / sqrt(n(x) * n(y)), onde n é o número de dispositivos que favoritaram o livro.
+ */
+public final class ModeloCoocorrencia {
+
+    private final int maxCesta;
+
+    private final Map<String, Integer> indicePorLivro;
+    private final List<String> livros;
+    private final Map<String, IntLista> cestas;
+    private final List<IntIntMap> linhas;
+    private final IntLista popularidade;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private ModeloCoocorrencia(int maxCesta, Map<String, Integer> indicePorLivro, List<String> livros,
+                               Map<String, IntLista> cestas, List<IntIntMap> linhas, IntLista popularidade) {
+        this.maxCesta = maxCesta;
+        this.indicePorLivro = indicePorLivro;
+        this.livros = livros;
+        this.cestas = cestas;
+        this.linhas = linhas;
+        this.popularidade = popularidade;
+    }
+
+    public static ModeloCoocorrencia vazio(int maxCesta) {
+        return new Construtor(maxCesta).construir(ForkJoinPool.commonPool());
+    }
+
+    // ========== Atualização incremental ==========
+
+    // A regra é a mesma da reconstrução: só cestas com até maxCesta livros contam pares. Quando uma
+    // cesta cruza o limite, todos os pares dela entram ou saem de uma vez
+
+    /**
+     * Registra um novo favorito; favoritos repetidos são ignorados
+     */
+    public void adicionar(String deviceId, String googleBooksId) {
+        lock.writeLock().lock();
+        try {
+            int livro = indice(googleBooksId);
+            IntLista cesta = cestas.computeIfAbsent(deviceId, k -> new IntLista(4));
+            if (cesta.contem(livro)) {
+                return;
+            }
+            if (cesta.tamanho() < maxCesta) {
+                for (int i = 0; i < cesta.tamanho(); i++) {
+                    int outro = cesta.get(i);
+                    linhas.get(livro).somar(outro, 1);
+                    linhas.get(outro).somar(livro, 1);
+                }
+            } else if (cesta.tamanho() == maxCesta) {
+                somarTodosOsPares(cesta, -1);
+            }
+            cesta.adicionar(livro);
+            popularidade.set(livro, popularidade.get(livro) + 1);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Desfaz um favorito; remoções de favoritos desconhecidos são ignoradas
+     */
+    public void remover(String deviceId, String googleBooksId) {
+        lock.writeLock().lock();
+        try {
+            Integer livro = indicePorLivro.get(googleBooksId);
+            IntLista cesta = cestas.get(deviceId);
+            if (livro == null || cesta == null || !cesta.remover(livro)) {
+                return;
+            }
+            if (cesta.tamanho() < maxCesta) {
+                for (int i = 0; i < cesta.tamanho(); i++) {
+                    int outro = cesta.get(i);
+                    linhas.get(livro).somar(outro, -1);
+                    linhas.get(outro).somar(livro, -1);
+                }
+            } else if (cesta.tamanho() == maxCesta) {
+                somarTodosOsPares(cesta, 1);
+            }
+            popularidade.set(livro, popularidade.get(livro) - 1);
+            if (cesta.tamanho() == 0) {
+                cestas.remove(deviceId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void somarTodosOsPares(IntLista cesta, int delta) {
+        for (int i = 0; i < cesta.tamanho(); i++) {
+            for (int j = i + 1; j < cesta.tamanho(); j++) {
+                linhas.get(cesta.get(i)).somar(cesta.get(j), delta);
+                linhas.get(cesta.get(j)).somar(cesta.get(i), delta);
+            }
+        }
+    }
+
+    private int indice(String googleBooksId) {
+        Integer existente = indicePorLivro.get(googleBooksId);
+        if (existente != null) {
+            return existente;
+        }
+        int novo = livros.size();
+        indicePorLivro.put(googleBooksId, novo);
+        livros.add(googleBooksId);
+        linhas.add(new IntIntMap(4));
+        popularidade.adicionar(0);
+        return novo;
+    }
+
+    // ========== Leitura ==========
+
+    /**
+     * Devolve os livros mais similares ao informado, do maior para o menor cosseno
+     */
+    public List<RecomendacaoDTO> similares(String googleBooksId, int limite) {
+        lock.readLock().lock();
+        try {
+            Integer livro = indicePorLivro.get(googleBooksId);
+            if (livro == null || limite <= 0) {
+                return List.of();
+            }
+            double base = popularidade.get(livro);
+            // O heap nunca passa do número de livros relacionados, qualquer que seja o limite pedido
+            PriorityQueue<RecomendacaoDTO> heap = new PriorityQueue<>(Math.min(limite, linhas.get(livro).tamanho()) + 1,
+                    Comparator.comparingDouble(RecomendacaoDTO::getPontuacao));
+            linhas.get(livro).paraCada((outro, coocorrencias) -> {
+                double pontuacao = coocorrencias / Math.sqrt(base * Math.max(1, popularidade.get(outro)));
+                if (heap.size() < limite) {
+                    heap.add(new RecomendacaoDTO(livros.get(outro), pontuacao, coocorrencias));
+                } else if (pontuacao > heap.peek().getPontuacao()) {
+                    heap.poll();
+                    heap.add(new RecomendacaoDTO(livros.get(outro), pontuacao, coocorrencias));
+                }
+            });
+            List<RecomendacaoDTO> resultado = new ArrayList<>(heap);
+            resultado.sort(Comparator.comparingDouble(RecomendacaoDTO::getPontuacao).reversed());
+            return resultado;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int quantidadeLivros() {
+        lock.readLock().lock();
+        try {
+            return livros.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int quantidadeDispositivos() {
+        lock.readLock().lock();
+        try {
+            return cestas.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Estimativa (em bytes) da memória ocupada pelas estruturas primitivas do modelo,
+     * sem contar as Strings de deviceId/googleBooksId
+     */
+    public long estimarBytes() {
+        lock.readLock().lock();
+        try {
+            long total = popularidade.bytes();
+            for (IntIntMap linha : linhas) {
+                total += linha.bytes();
+            }
+            for (IntLista cesta : cestas.values()) {
+                total += cesta.bytes();
+            }
+            return total;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ========== Reconstrução completa ==========
+
+    /**
+     * Acumula os pares (deviceId, googleBooksId) de uma varredura e constrói as linhas
+     * de co-ocorrência em paralelo
+     */
+    public static final class Construtor {
+
+        private final int maxCesta;
+        private final Map<String, Integer> indicePorLivro = new HashMap<>();
+        private final List<String> livros = new ArrayList<>();
+        private final Map<String, IntLista> cestas = new HashMap<>();
+
+        public Construtor(int maxCesta) {
+            this.maxCesta = maxCesta;
+        }
+
+        public void adicionar(String deviceId, String googleBooksId) {
+            if (deviceId == null || googleBooksId == null) {
+                return;
+            }
+            Integer livro = indicePorLivro.get(googleBooksId);
+            if (livro == null) {
+                livro = livros.size();
+                indicePorLivro.put(googleBooksId, livro);
+                livros.add(googleBooksId);
+            }
+            IntLista cesta = cestas.computeIfAbsent(deviceId, k -> new IntLista(4));
+            if (!cesta.contem(livro)) {
+                cesta.adicionar(livro);
+            }
+        }
+
+        public ModeloCoocorrencia construir(ForkJoinPool pool) {
+            int quantidade = livros.size();
+            IntLista popularidade = new IntLista(quantidade);
+            for (int i = 0; i < quantidade; i++) {
+                popularidade.adicionar(0);
+            }
+            List<IntLista> elegiveis = new ArrayList<>(cestas.size());
+            for (IntLista cesta : cestas.values()) {
+                for (int i = 0; i < cesta.tamanho(); i++) {
+                    popularidade.set(cesta.get(i), popularidade.get(cesta.get(i)) + 1);
+                }
+                // Cestas enormes (robôs, testes de carga) geram pares demais e pouco sinal
+                if (cesta.tamanho() > 1 && cesta.tamanho() <= maxCesta) {
+                    elegiveis.add(cesta);
+                }
+            }
+
+            IntIntMap[] linhas = new IntIntMap[quantidade];
+            int folhas = Math.max(1, pool.getParallelism() * 4);
+            int limiar = Math.max(1, (quantidade + folhas - 1) / folhas);
+            pool.invoke(new ConstruirLinhas(elegiveis, linhas, 0, quantidade, limiar));
+
+            List<IntIntMap> listaLinhas = new ArrayList<>(quantidade);
+            for (IntIntMap linha : linhas) {
+                listaLinhas.add(linha != null ? linha : new IntIntMap(4));
+            }
+            return new ModeloCoocorrencia(maxCesta, indicePorLivro, livros, cestas, listaLinhas, popularidade);
+        }
+    }
+
+    /**
+     * Cada tarefa é dona de uma faixa de linhas [inicio, fim) e só escreve nelas,
+     * então as folhas não precisam de sincronização nem de etapa de merge
+     */
+    private static final class ConstruirLinhas extends RecursiveAction {
+
+        private final List<IntLista> cestas;
+        private final IntIntMap[] linhas;
+        private final int inicio;
+        private final int fim;
+        private final int limiar;
+
+        ConstruirLinhas(List<IntLista> cestas, IntIntMap[] linhas, int inicio, int fim, int limiar) {
+            this.cestas = cestas;
+            this.linhas = linhas;
+            this.inicio = inicio;
+            this.fim = fim;
+            this.limiar = limiar;
+        }
+
+        @Override
+        protected void compute() {
+            if (fim - inicio > limiar) {
+                int meio = (inicio + fim) >>> 1;
+                invokeAll(new ConstruirLinhas(cestas, linhas, inicio, meio, limiar),
+                          new ConstruirLinhas(cestas, linhas, meio, fim, limiar));
+                return;
+            }
+            for (IntLista cesta : cestas) {
+                for (int i = 0; i < cesta.tamanho(); i++) {
+                    int livro = cesta.get(i);
+                    if (livro < inicio || livro >= fim) {
+                        continue;
+                    }
+                    IntIntMap linha = linhas[livro];
+                    if (linha == null) {
+                        linha = new IntIntMap(cesta.tamanho());
+                        linhas[livro] = linha;
+                    }
+                    for (int j = 0; j < cesta.tamanho(); j++) {
+                        if (j != i) {
+                            linha.somar(cesta.get(j), 1);
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
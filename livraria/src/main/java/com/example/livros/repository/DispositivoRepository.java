@@ -0,0 +1,22 @@
+package com.example.livros.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import com.example.livros.entities.Dispositivo;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface DispositivoRepository extends JpaRepository<Dispositivo, Long> {
+    // Chave do dispositivo pelo deviceId externo (índice único uk_dispositivos_device)
+    @Query("SELECT d.id FROM Dispositivo d WHERE d.deviceId = ?1")
+    Optional<Long> findIdByDeviceId(String deviceId);
+
+    // Pares (id, deviceId) de várias chaves de uma vez, para preencher o deviceId de resultados
+    @Query("SELECT d.id, d.deviceId FROM Dispositivo d WHERE d.id IN ?1")
+    List<Object[]> findDeviceIdsByIds(Collection<Long> ids);
+}
@@ -1,26 +1,39 @@
 package com.example.livros.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import com.example.livros.entities.Favorito;
 
+import jakarta.persistence.QueryHint;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+
 @Repository
 public interface FavoritoRepository extends JpaRepository<Favorito, Long> {
-    // Buscar por deviceId (identificador do dispositivo/usuário)
-    List<Favorito> findByDeviceId(String deviceId);
+    // Buscar pela chave do dispositivo (ver RegistroDispositivos)
+    List<Favorito> findByDispositivoId(Long dispositivoId);
     
     // Buscar por ID do Google Books
     List<Favorito> findByGoogleBooksId(String googleBooksId);
     
     // Verificar se já existe um favorito para este dispositivo e livro
-    boolean existsByDeviceIdAndGoogleBooksId(String deviceId, String googleBooksId);
+    boolean existsByDispositivoIdAndGoogleBooksId(Long dispositivoId, String googleBooksId);
+    
+    // Buscar favorito específico por dispositivo e googleBooksId (índice (dispositivo_id, google_books_id))
+    Optional<Favorito> findByDispositivoIdAndGoogleBooksId(Long dispositivoId, String googleBooksId);
     
-    // Buscar favorito específico por deviceId e googleBooksId
-    Optional<Favorito> findByDeviceIdAndGoogleBooksId(String deviceId, String googleBooksId);
+    // Total de favoritos por livro do Google Books (usado apenas para semear o ranking)
+    @Query("SELECT f.googleBooksId, COUNT(f) FROM Favorito f GROUP BY f.googleBooksId")
+    List<Object[]> contarPorGoogleBooksId();
     
-    // Deletar por deviceId e googleBooksId
-    void deleteByDeviceIdAndGoogleBooksId(String deviceId, String googleBooksId);
+    // Varredura em streaming dos pares (deviceId, googleBooksId) para o modelo de recomendações
+    @Query("SELECT d.deviceId, f.googleBooksId FROM Favorito f JOIN Dispositivo d ON d.id = f.dispositivoId")
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    Stream<Object[]> streamDeviceIdEGoogleBooksId();
 }
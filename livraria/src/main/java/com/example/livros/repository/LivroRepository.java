@@ -1,29 +1,38 @@
 package com.example.livros.repository;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.example.livros.entities.Livro;
 
+import jakarta.persistence.QueryHint;
+
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 @Repository
-public interface LivroRepository extends JpaRepository<Livro, Long> {
+public interface LivroRepository extends JpaRepository<Livro, Long>, LivroRepositoryCustom {
     // Métodos para gerenciar livros como favoritos
     
-    // Buscar por deviceId (identificador do dispositivo/usuário)
-    List<Livro> findByDeviceIdAndFavoritoTrue(String deviceId);
+    // Buscar pela chave do dispositivo (ver RegistroDispositivos)
+    List<Livro> findByDispositivoIdAndFavoritoTrue(Long dispositivoId);
     
     // Buscar por ID do Google Books
     List<Livro> findByGoogleBooksId(String googleBooksId);
     
     // Verificar se já existe um favorito para este dispositivo e livro
-    boolean existsByDeviceIdAndGoogleBooksIdAndFavoritoTrue(String deviceId, String googleBooksId);
+    boolean existsByDispositivoIdAndGoogleBooksIdAndFavoritoTrue(Long dispositivoId, String googleBooksId);
     
-    // Buscar livro específico por deviceId e googleBooksId
-    Optional<Livro> findByDeviceIdAndGoogleBooksIdAndFavoritoTrue(String deviceId, String googleBooksId);
+    // Buscar livro específico por dispositivo e googleBooksId
+    Optional<Livro> findByDispositivoIdAndGoogleBooksIdAndFavoritoTrue(Long dispositivoId, String googleBooksId);
     
     // Buscar por título contendo o texto da busca (case insensitive)
     List<Livro> findByTituloContainingIgnoreCase(String titulo);
@@ -31,7 +40,42 @@ public interface LivroRepository extends JpaRepository<Livro, Long> {
     // Buscar por autor contendo o texto da busca (case insensitive)
     List<Livro> findByAutorContainingIgnoreCase(String autor);
     
+    // Página do catálogo em ordem de ID, a partir do último ID já entregue (busca sem termo)
+    List<Livro> findByIdGreaterThanOrderByIdAsc(Long id, Limit limite);
+    
     // Buscar por título ou autor contendo o texto da busca (case insensitive)
     @Query("SELECT l FROM Livro l WHERE LOWER(l.titulo) LIKE LOWER(CONCAT('%', ?1, '%')) OR LOWER(l.autor) LIKE LOWER(CONCAT('%', ?1, '%'))")
     List<Livro> findByTituloOrAutorContainingIgnoreCase(String busca);
-}
\ No newline at end of file
+    
+    // Total de favoritos ativos por livro do Google Books (usado apenas para semear o ranking)
+    @Query("SELECT l.googleBooksId, COUNT(l) FROM Livro l WHERE l.favorito = true AND l.googleBooksId IS NOT NULL GROUP BY l.googleBooksId")
+    List<Object[]> contarFavoritosPorGoogleBooksId();
+    
+    // Varredura em streaming dos favoritos ativos (deviceId, googleBooksId) para o modelo de recomendações
+    @Query("SELECT d.deviceId, l.googleBooksId FROM Livro l JOIN Dispositivo d ON d.id = l.dispositivoId"
+            + " WHERE l.favorito = true AND l.googleBooksId IS NOT NULL")
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    Stream<Object[]> streamFavoritosDeviceIdEGoogleBooksId();
+    
+    // Varredura em streaming de (id, genero, dataPublicacao) do catálogo para montar as facetas da navegação
+    @Query("SELECT l.id, l.genero, l.dataPublicacao FROM Livro l WHERE l.dispositivoId IS NULL AND l.dataPublicacao IS NOT NULL")
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    Stream<Object[]> streamFacetasCatalogo();
+    
+    // Lote de favoritos desmarcados de dispositivos, pelo índice (favorito, dispositivo_id); usado pela compactação
+    @Query("SELECT l.id FROM Livro l WHERE l.favorito = false AND l.dispositivoId IS NOT NULL")
+    List<Long> findIdsFavoritosDesmarcados(Limit limite);
+    
+    // Copia as linhas para tb_livros_arquivo antes da remoção (compactação com arquivamento)
+    @Modifying
+    @Query(value = "INSERT INTO tb_livros_arquivo (id, titulo, autor, dispositivo_id, google_books_id, imagem_url, descricao,"
+            + " data_publicacao_texto, data_criacao, data_arquivamento)"
+            + " SELECT id, titulo, autor, dispositivo_id, google_books_id, imagem_url, descricao, data_publicacao_texto,"
+            + " data_criacao, CURRENT_TIMESTAMP FROM tb_livros WHERE id IN (:ids) AND favorito = false", nativeQuery = true)
+    int arquivarFavoritosDesmarcados(@Param("ids") List<Long> ids);
+    
+    // Remove as linhas do lote, conferindo de novo que continuam desmarcadas
+    @Modifying
+    @Query("DELETE FROM Livro l WHERE l.id IN :ids AND l.favorito = false AND l.dispositivoId IS NOT NULL")
+    int deletarFavoritosDesmarcados(@Param("ids") List<Long> ids);
+}
@@ -0,0 +1,30 @@
+package com.example.livros.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import com.example.livros.entities.Livro;
+
+/**
+ * Operações de LivroRepository que não são expressáveis como métodos derivados
+ */
+public interface LivroRepositoryCustom {
+
+    /**
+     * Atualiza apenas as colunas informadas com um único UPDATE, incrementando a versão.
+     *
+     * @param versaoEsperada versão que o cliente leu (If-Match)
+     * @return quantidade de linhas alteradas (0 se o livro não existe ou a versão não confere)
+     */
+    int atualizarParcialmente(Long id, long versaoEsperada, Map<String, Object> campos);
+
+    /**
+     * Livros do catálogo com data de publicação, do mais recente para o mais antigo, paginados por
+     * chave: a próxima página começa depois de (cursorData, cursorId). Filtros nulos são ignorados.
+     *
+     * @param ate limite superior exclusivo da data de publicação
+     */
+    List<Livro> navegar(String genero, LocalDateTime de, LocalDateTime ate,
+                        LocalDateTime cursorData, Long cursorId, int limite);
+}
@@ -0,0 +1,71 @@
+package com.example.livros.repository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.livros.entities.Livro;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Root;
+
+public class LivroRepositoryImpl implements LivroRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public int atualizarParcialmente(Long id, long versaoEsperada, Map<String, Object> campos) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<Livro> update = cb.createCriteriaUpdate(Livro.class);
+        Root<Livro> livro = update.from(Livro.class);
+
+        campos.forEach((campo, valor) -> update.set(livro.get(campo), valor));
+        update.set(livro.<Long>get("versao"), cb.sum(livro.<Long>get("versao"), 1L));
+        update.where(cb.equal(livro.get("id"), id), cb.equal(livro.get("versao"), versaoEsperada));
+        return entityManager.createQuery(update).executeUpdate();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Livro> navegar(String genero, LocalDateTime de, LocalDateTime ate,
+                               LocalDateTime cursorData, Long cursorId, int limite) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Livro> query = cb.createQuery(Livro.class);
+        Root<Livro> livro = query.from(Livro.class);
+        Path<LocalDateTime> data = livro.get("dataPublicacao");
+        Path<Long> id = livro.get("id");
+
+        // Só entram os predicados dos filtros informados, para que o banco use o índice certo
+        // (genero, data_publicacao, id) ou (data_publicacao, id)
+        List<Predicate> filtros = new ArrayList<>();
+        filtros.add(cb.isNull(livro.get("dispositivoId")));
+        filtros.add(cb.isNotNull(data));
+        if (genero != null) {
+            filtros.add(cb.equal(livro.get("genero"), genero));
+        }
+        if (de != null) {
+            filtros.add(cb.greaterThanOrEqualTo(data, de));
+        }
+        if (ate != null) {
+            filtros.add(cb.lessThan(data, ate));
+        }
+        if (cursorData != null) {
+            filtros.add(cb.or(cb.lessThan(data, cursorData),
+                    cb.and(cb.equal(data, cursorData), cb.lessThan(id, cursorId))));
+        }
+        query.where(filtros.toArray(new Predicate[0]));
+        query.orderBy(cb.desc(data), cb.desc(id));
+        return entityManager.createQuery(query).setMaxResults(limite).getResultList();
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.livros.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import com.example.livros.entities.Usuario;
+
+import java.util.Optional;
+
+@Repository
+public interface UsuarioRepository extends JpaRepository<Usuario, Long> {
+    // Buscar usuário pelo email de login
+    Optional<Usuario> findByEmail(String email);
+
+    boolean existsByEmail(String email);
+}
@@ -0,0 +1,54 @@
+package com.example.livros.seguranca;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Autentica a requisição a partir do header "Authorization: Bearer <token>", só com o TokenService
+ * (sem sessão e sem acesso ao banco). Sem header a requisição segue anônima; com um token inválido
+ * a resposta é 401.
+ */
+public class TokenAutenticacaoFilter extends OncePerRequestFilter {
+
+    private static final String PREFIXO = "Bearer ";
+    private static final List<GrantedAuthority> AUTORIDADES = List.of(new SimpleGrantedAuthority("ROLE_USUARIO"));
+
+    private final TokenService tokenService;
+
+    public TokenAutenticacaoFilter(TokenService tokenService) {
+        this.tokenService = tokenService;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String autorizacao = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (autorizacao == null || !autorizacao.regionMatches(true, 0, PREFIXO, 0, PREFIXO.length())) {
+            chain.doFilter(request, response);
+            return;
+        }
+        try {
+            UsuarioAutenticado usuario = tokenService.autenticar(autorizacao.substring(PREFIXO.length()).trim());
+            SecurityContextHolder.getContext().setAuthentication(
+                    new UsernamePasswordAuthenticationToken(usuario, null, AUTORIDADES));
+        } catch (TokenInvalidoException e) {
+            response.setHeader(HttpHeaders.WWW_AUTHENTICATE, "Bearer error=\"invalid_token\"");
+            response.sendError(HttpStatus.UNAUTHORIZED.value(), e.getMessage());
+            return;
+        }
+        chain.doFilter(request, response);
+    }
+}
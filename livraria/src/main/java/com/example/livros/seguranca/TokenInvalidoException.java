@@ -0,0 +1,11 @@
+package com.example.livros.seguranca;
+
+/**
+ * Token malformado, com assinatura inválida, expirado, revogado ou do tipo errado
+ */
+public class TokenInvalidoException extends RuntimeException {
+
+    public TokenInvalidoException(String mensagem) {
+        super(mensagem);
+    }
+}
@@ -0,0 +1,280 @@
+package com.example.livros.seguranca;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.example.livros.dto.TokensDTO;
+import com.example.livros.sharding.ShardRouter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Emite e valida tokens JWT assinados com HMAC-SHA256.
+ *
+ * A validação dos tokens de acesso é feita toda em memória (assinatura, expiração e revogação), sem banco
+ * e sem BCrypt: a senha só é conferida uma vez, no login. Tokens de acesso são curtos e suas revogações
+ * ficam em um cache limitado até o token expirar. Os de renovação são de uso único (cada renovação revoga
+ * o anterior) e suas revogações ficam em tb_tokens_revogados, no shard 0: um cache que descartasse entradas
+ * por tamanho faria um token já usado voltar a valer. Renovar é raro, então a consulta extra não pesa.
+ */
+@Service
+public class TokenService {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenService.class);
+
+    public static final String ACESSO = "acesso";
+    public static final String RENOVACAO = "renovacao";
+
+    private static final Base64.Encoder BASE64 = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder BASE64_DECODER = Base64.getUrlDecoder();
+
+    // Único cabeçalho aceito: impede tokens com "alg":"none" ou outro algoritmo
+    private static final String CABECALHO = BASE64.encodeToString(
+            "{\"alg\":\"HS256\",\"typ\":\"JWT\"}".getBytes(StandardCharsets.UTF_8));
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Value("${livraria.auth.segredo:}")
+    private String segredo;
+
+    @Value("${livraria.auth.ttl-acesso-segundos:900}")
+    private long ttlAcessoSegundos;
+
+    @Value("${livraria.auth.ttl-renovacao-segundos:1209600}")
+    private long ttlRenovacaoSegundos;
+
+    @Value("${livraria.auth.revogacao.tamanho-maximo:100000}")
+    private long tamanhoMaximoRevogacao;
+
+    private SecretKeySpec chave;
+    private ThreadLocal<Mac> macs;
+
+    // jti de token de acesso revogado -> instante de expiração do token (segundos); cada entrada vive só
+    // até o token expirar
+    private Cache<String, Long> revogados;
+    private JdbcTemplate banco;
+
+    @PostConstruct
+    public void iniciar() {
+        byte[] bytesChave;
+        if (segredo == null || segredo.isBlank()) {
+            bytesChave = new byte[32];
+            new SecureRandom().nextBytes(bytesChave);
+            log.warn("livraria.auth.segredo não configurado: usando uma chave aleatória; "
+                    + "os tokens deixam de valer ao reiniciar e não servem entre instâncias");
+        } else {
+            bytesChave = Base64.getDecoder().decode(segredo);
+            if (bytesChave.length < 32) {
+                throw new IllegalStateException("livraria.auth.segredo deve ter pelo menos 256 bits (32 bytes em Base64)");
+            }
+        }
+        chave = new SecretKeySpec(bytesChave, "HmacSHA256");
+        banco = new JdbcTemplate(shardRouter.dataSource(0));
+        macs = ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance("HmacSHA256");
+                mac.init(chave);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("HmacSHA256 indisponível", e);
+            }
+        });
+        revogados = Caffeine.newBuilder()
+                .maximumSize(tamanhoMaximoRevogacao)
+                .expireAfter(new Expiry<String, Long>() {
+                    @Override
+                    public long expireAfterCreate(String jti, Long expiraEm, long agora) {
+                        long restante = expiraEm - Instant.now().getEpochSecond();
+                        return TimeUnit.SECONDS.toNanos(Math.max(1, restante));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String jti, Long expiraEm, long agora, long duracaoAtual) {
+                        return expireAfterCreate(jti, expiraEm, agora);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String jti, Long expiraEm, long agora, long duracaoAtual) {
+                        return duracaoAtual;
+                    }
+                })
+                .removalListener((String jti, Long expiraEm, RemovalCause causa) -> {
+                    if (causa == RemovalCause.SIZE) {
+                        log.warn("Limite de revogações atingido: o token {} voltou a ser aceito até expirar", jti);
+                    }
+                })
+                .build();
+    }
+
+    // ========== Emissão ==========
+
+    public TokensDTO emitirPar(Long usuarioId, String email) {
+        return new TokensDTO(emitir(usuarioId, email, ACESSO, ttlAcessoSegundos),
+                emitir(usuarioId, email, RENOVACAO, ttlRenovacaoSegundos), ttlAcessoSegundos);
+    }
+
+    private String emitir(Long usuarioId, String email, String tipo, long ttlSegundos) {
+        long agora = Instant.now().getEpochSecond();
+        Claims claims = new Claims();
+        claims.sub = usuarioId;
+        claims.email = email;
+        claims.typ = tipo;
+        claims.iat = agora;
+        claims.exp = agora + ttlSegundos;
+        claims.jti = UUID.randomUUID().toString();
+        try {
+            String conteudo = CABECALHO + "." + BASE64.encodeToString(objectMapper.writeValueAsBytes(claims));
+            return conteudo + "." + BASE64.encodeToString(assinar(conteudo));
+        } catch (IOException e) {
+            throw new IllegalStateException("Falha ao serializar o token", e);
+        }
+    }
+
+    // ========== Validação ==========
+
+    /**
+     * Valida um token de acesso e devolve a identidade dele
+     */
+    public UsuarioAutenticado autenticar(String token) {
+        Claims claims = validar(token, ACESSO);
+        return new UsuarioAutenticado(claims.sub, claims.email, claims.jti, claims.exp);
+    }
+
+    /**
+     * Confere assinatura, tipo, expiração e revogação; lança TokenInvalidoException se algo falhar
+     */
+    public Claims validar(String token, String tipoEsperado) {
+        int primeiroPonto = token == null ? -1 : token.indexOf('.');
+        int ultimoPonto = token == null ? -1 : token.lastIndexOf('.');
+        if (primeiroPonto <= 0 || ultimoPonto == primeiroPonto || !token.startsWith(CABECALHO + ".")) {
+            throw new TokenInvalidoException("Token malformado");
+        }
+        String conteudo = token.substring(0, ultimoPonto);
+        byte[] assinatura;
+        byte[] payload;
+        try {
+            assinatura = BASE64_DECODER.decode(token.substring(ultimoPonto + 1));
+            payload = BASE64_DECODER.decode(token.substring(primeiroPonto + 1, ultimoPonto));
+        } catch (IllegalArgumentException e) {
+            throw new TokenInvalidoException("Token malformado");
+        }
+        if (!MessageDigest.isEqual(assinar(conteudo), assinatura)) {
+            throw new TokenInvalidoException("Assinatura inválida");
+        }
+
+        Claims claims;
+        try {
+            claims = objectMapper.readValue(payload, Claims.class);
+        } catch (IOException e) {
+            throw new TokenInvalidoException("Token malformado");
+        }
+        if (!tipoEsperado.equals(claims.typ)) {
+            throw new TokenInvalidoException("Tipo de token inválido");
+        }
+        if (claims.exp <= Instant.now().getEpochSecond()) {
+            throw new TokenInvalidoException("Token expirado");
+        }
+        if (claims.jti == null || (RENOVACAO.equals(claims.typ)
+                ? renovacaoRevogada(claims.jti)
+                : revogados.getIfPresent(claims.jti) != null)) {
+            throw new TokenInvalidoException("Token revogado");
+        }
+        return claims;
+    }
+
+    /**
+     * Revoga o token de acesso até a expiração dele
+     */
+    public void revogar(String jti, long expiraEm) {
+        if (jti != null && expiraEm > Instant.now().getEpochSecond()) {
+            revogados.put(jti, expiraEm);
+        }
+    }
+
+    /**
+     * Revoga o token de renovação até a expiração dele; revogar de novo não é erro
+     */
+    public void revogarRenovacao(String jti, long expiraEm) {
+        revogarSeAtivo(jti, expiraEm);
+    }
+
+    /**
+     * Revoga o token de renovação e diz se esta chamada foi a que revogou: a chave primária do jti decide,
+     * então de duas renovações simultâneas com o mesmo token (mesmo em instâncias diferentes) só uma
+     * recebe true
+     */
+    public boolean revogarSeAtivo(String jti, long expiraEm) {
+        if (jti == null) {
+            return false;
+        }
+        try {
+            banco.update("INSERT INTO tb_tokens_revogados (jti, expira_em) VALUES (?, ?)", jti, expiraEm);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    private boolean renovacaoRevogada(String jti) {
+        Integer encontrados = banco.queryForObject(
+                "SELECT COUNT(*) FROM tb_tokens_revogados WHERE jti = ?", Integer.class, jti);
+        return encontrados != null && encontrados > 0;
+    }
+
+    /**
+     * Apaga as revogações de tokens de renovação que já expiraram (o token seria recusado de qualquer forma)
+     */
+    @Scheduled(fixedDelayString = "${livraria.auth.revogacao.limpeza-ms:3600000}")
+    public int limparRevogacoesExpiradas() {
+        int removidas = banco.update("DELETE FROM tb_tokens_revogados WHERE expira_em <= ?",
+                Instant.now().getEpochSecond());
+        if (removidas > 0) {
+            log.debug("{} revogações expiradas removidas", removidas);
+        }
+        return removidas;
+    }
+
+    private byte[] assinar(String conteudo) {
+        return macs.get().doFinal(conteudo.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Conteúdo do token: usuário (sub), email, tipo (typ), emissão (iat), expiração (exp) e ID (jti)
+     */
+    public static class Claims {
+        public Long sub;
+        public String email;
+        public String typ;
+        public long iat;
+        public long exp;
+        public String jti;
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.livros.seguranca;
+
+import java.security.Principal;
+
+/**
+ * Identidade extraída de um token de acesso válido; é o principal da requisição autenticada
+ */
+public class UsuarioAutenticado implements Principal {
+
+    private final Long id;
+    private final String email;
+    private final String tokenId;
+    private final long expiraEm;
+
+    public UsuarioAutenticado(Long id, String email, String tokenId, long expiraEm) {
+        this.id = id;
+        this.email = email;
+        this.tokenId = tokenId;
+        this.expiraEm = expiraEm;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    @Override
+    public String getName() {
+        return email;
+    }
+
+    // jti do token de acesso usado na requisição (para revogá-lo no logout)
+    public String getTokenId() {
+        return tokenId;
+    }
+
+    // Instante de expiração do token, em segundos desde a época
+    public long getExpiraEm() {
+        return expiraEm;
+    }
+}
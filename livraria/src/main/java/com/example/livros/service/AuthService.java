@@ -0,0 +1,122 @@
+package com.example.livros.service;
+
+import java.util.Locale;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import com.example.livros.dto.TokensDTO;
+import com.example.livros.entities.Usuario;
+import com.example.livros.repository.UsuarioRepository;
+import com.example.livros.seguranca.TokenInvalidoException;
+import com.example.livros.seguranca.TokenService;
+import com.example.livros.seguranca.UsuarioAutenticado;
+
+/**
+ * Cadastro e login de usuários.
+ *
+ * O BCrypt (e a consulta ao usuário) só acontece aqui, no login; as demais requisições
+ * são autenticadas pelo token, em memória. A tabela de usuários fica no shard 0, junto do catálogo.
+ */
+@Service
+public class AuthService {
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private BCryptPasswordEncoder passwordEncoder;
+
+    @Autowired
+    private TokenService tokenService;
+
+    // Hash de uma senha qualquer: o login de um email inexistente também paga um BCrypt,
+    // para o tempo de resposta não revelar quais emails estão cadastrados
+    private volatile String hashFicticio;
+
+    /**
+     * Cadastra um novo usuário; lança IllegalArgumentException se os dados forem inválidos
+     * e IllegalStateException se o email já estiver cadastrado
+     */
+    public Usuario registrar(String email, String senha) {
+        String emailNormalizado = normalizarEmail(email);
+        if (emailNormalizado == null || !emailNormalizado.contains("@")) {
+            throw new IllegalArgumentException("Email inválido");
+        }
+        if (senha == null || senha.length() < 8) {
+            throw new IllegalArgumentException("A senha deve ter pelo menos 8 caracteres");
+        }
+        if (usuarioRepository.existsByEmail(emailNormalizado)) {
+            throw new IllegalStateException("Email já cadastrado");
+        }
+        try {
+            return usuarioRepository.save(new Usuario(emailNormalizado, passwordEncoder.encode(senha)));
+        } catch (DataIntegrityViolationException e) {
+            // Dois cadastros simultâneos do mesmo email: a chave única decide
+            throw new IllegalStateException("Email já cadastrado");
+        }
+    }
+
+    /**
+     * Confere email e senha e emite um par de tokens; vazio se as credenciais não conferem
+     */
+    public Optional<TokensDTO> login(String email, String senha) {
+        if (senha == null) {
+            return Optional.empty();
+        }
+        String emailNormalizado = normalizarEmail(email);
+        Optional<Usuario> usuario = emailNormalizado == null
+                ? Optional.empty()
+                : usuarioRepository.findByEmail(emailNormalizado);
+        String hash = usuario.map(Usuario::getSenhaHash).orElseGet(this::hashFicticio);
+        if (!passwordEncoder.matches(senha, hash) || usuario.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(tokenService.emitirPar(usuario.get().getId(), usuario.get().getEmail()));
+    }
+
+    /**
+     * Troca um token de renovação por um novo par; o token usado é revogado (uso único).
+     * Lança TokenInvalidoException se o token não for aceito
+     */
+    public TokensDTO renovar(String tokenRenovacao) {
+        TokenService.Claims claims = tokenService.validar(tokenRenovacao, TokenService.RENOVACAO);
+        // validar pode ter passado em duas requisições ao mesmo tempo; só a que revogar emite o novo par
+        if (!tokenService.revogarSeAtivo(claims.jti, claims.exp)) {
+            throw new TokenInvalidoException("Token revogado");
+        }
+        return tokenService.emitirPar(claims.sub, claims.email);
+    }
+
+    /**
+     * Revoga o token de acesso da requisição e, se informado, o token de renovação do mesmo usuário
+     */
+    public void logout(UsuarioAutenticado usuario, String tokenRenovacao) {
+        tokenService.revogar(usuario.getTokenId(), usuario.getExpiraEm());
+        if (tokenRenovacao != null && !tokenRenovacao.isBlank()) {
+            TokenService.Claims claims = tokenService.validar(tokenRenovacao, TokenService.RENOVACAO);
+            if (usuario.getId().equals(claims.sub)) {
+                tokenService.revogarRenovacao(claims.jti, claims.exp);
+            }
+        }
+    }
+
+    private String hashFicticio() {
+        String hash = hashFicticio;
+        if (hash == null) {
+            hash = passwordEncoder.encode("senha-ficticia-para-tempo-constante");
+            hashFicticio = hash;
+        }
+        return hash;
+    }
+
+    private static String normalizarEmail(String email) {
+        if (email == null || email.isBlank()) {
+            return null;
+        }
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.livros.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.livros.dto.LivroDTO;
+import com.example.livros.events.LivroAlteradoEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Cache das respostas de GET /livros já serializadas em JSON (e comprimidas em gzip).
+ *
+ * O catálogo só muda quando um livro é criado, alterado ou removido; a cada mudança o
+ * snapshot é reconstruído em segundo plano e, enquanto isso, o anterior continua sendo servido.
+ * Várias mudanças seguidas resultam em uma única reconstrução.
+ */
+@Service
+@Lazy(false)
+public class CatalogoCacheService {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogoCacheService.class);
+
+    @Autowired
+    private LivroService livroService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${livraria.catalogo.tamanho-pagina:100}")
+    private int tamanhoPagina;
+
+    private volatile Snapshot snapshot;
+
+    private final AtomicBoolean sujo = new AtomicBoolean();
+    private final AtomicBoolean reconstruindo = new AtomicBoolean();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "catalogo-cache");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void iniciar() {
+        agendarReconstrucao();
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        executor.shutdownNow();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLivroAlterado(LivroAlteradoEvent event) {
+        agendarReconstrucao();
+    }
+
+    /**
+     * Devolve o catálogo inteiro (pagina = null) ou uma página, ou null se o cache ainda não foi montado
+     */
+    public Pagina pagina(Integer numero) {
+        Snapshot atual = snapshot;
+        if (atual == null) {
+            return null;
+        }
+        if (numero == null) {
+            return atual.completo;
+        }
+        if (numero < 0 || numero >= atual.paginas.length) {
+            return atual.vazia;
+        }
+        return atual.paginas[numero];
+    }
+
+    public int getTamanhoPagina() {
+        return tamanhoPagina;
+    }
+
+    public void agendarReconstrucao() {
+        sujo.set(true);
+        if (reconstruindo.compareAndSet(false, true)) {
+            executor.execute(this::reconstruirEnquantoSujo);
+        }
+    }
+
+    private void reconstruirEnquantoSujo() {
+        try {
+            while (sujo.getAndSet(false)) {
+                try {
+                    reconstruir();
+                } catch (RuntimeException e) {
+                    log.warn("Falha ao reconstruir o cache do catálogo; mantendo o snapshot anterior", e);
+                }
+            }
+        } finally {
+            reconstruindo.set(false);
+        }
+        // Uma mudança pode ter chegado entre o último getAndSet e a liberação da flag
+        if (sujo.get()) {
+            agendarReconstrucao();
+        }
+    }
+
+    private void reconstruir() {
+        List<LivroDTO> livros = livroService.listarLivros();
+        int quantidadePaginas = (livros.size() + tamanhoPagina - 1) / tamanhoPagina;
+        Pagina[] paginas = new Pagina[quantidadePaginas];
+        for (int i = 0; i < quantidadePaginas; i++) {
+            int inicio = i * tamanhoPagina;
+            paginas[i] = serializar(livros.subList(inicio, Math.min(inicio + tamanhoPagina, livros.size())));
+        }
+        snapshot = new Snapshot(serializar(livros), paginas, serializar(List.of()));
+    }
+
+    private Pagina serializar(List<LivroDTO> livros) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(livros);
+            CRC32 crc = new CRC32();
+            crc.update(json);
+            String hash = Long.toHexString(crc.getValue());
+            return new Pagina(json, gzip(json), "\"" + hash + "\"", "\"" + hash + "-gz\"");
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream saida = new ByteArrayOutputStream(json.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(saida)) {
+            gzip.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return saida.toByteArray();
+    }
+
+    /**
+     * Uma resposta pronta: corpo em JSON, o mesmo corpo em gzip e o ETag de cada um (as duas
+     * representações têm bytes diferentes, então não podem compartilhar o ETag)
+     */
+    public static final class Pagina {
+
+        private final byte[] json;
+        private final byte[] gzip;
+        private final String etag;
+        private final String etagGzip;
+
+        Pagina(byte[] json, byte[] gzip, String etag, String etagGzip) {
+            this.json = json;
+            this.gzip = gzip;
+            this.etag = etag;
+            this.etagGzip = etagGzip;
+        }
+
+        public byte[] getJson() {
+            return json;
+        }
+
+        public byte[] getGzip() {
+            return gzip;
+        }
+
+        public String getEtag(boolean comGzip) {
+            return comGzip ? etagGzip : etag;
+        }
+    }
+
+    private static final class Snapshot {
+
+        final Pagina completo;
+        final Pagina[] paginas;
+        final Pagina vazia;
+
+        Snapshot(Pagina completo, Pagina[] paginas, Pagina vazia) {
+            this.completo = completo;
+            this.paginas = paginas;
+            this.vazia = vazia;
+        }
+    }
+}
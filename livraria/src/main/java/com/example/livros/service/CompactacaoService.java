@@ -0,0 +1,142 @@
+package com.example.livros.service;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.example.livros.events.LivroAlteradoEvent;
+import com.example.livros.repository.LivroRepository;
+import com.example.livros.sharding.ShardExecutor;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Compactação de tb_livros: remove (ou arquiva) as linhas de favoritos que os dispositivos desmarcaram.
+ *
+ * removerFavorito só marca favorito = false, e um novo favorito do mesmo livro cria outra linha,
+ * então essas linhas nunca voltam a ser usadas. A remoção é feita em lotes pequenos, cada um em
+ * sua própria transação curta, com uma pausa entre lotes para não competir com as requisições.
+ *
+ * Métricas: livraria.compactacao.linhas (linhas removidas) e livraria.compactacao.duracao
+ * (duração de cada execução), em /actuator/metrics.
+ */
+@Service
+public class CompactacaoService {
+
+    private static final Logger log = LoggerFactory.getLogger(CompactacaoService.class);
+
+    @Autowired
+    private LivroRepository livroRepository;
+
+    @Autowired
+    private ShardExecutor shardExecutor;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${livraria.compactacao.habilitada:true}")
+    private boolean habilitada;
+
+    @Value("${livraria.compactacao.arquivar:false}")
+    private boolean arquivar;
+
+    @Value("${livraria.compactacao.tamanho-lote:500}")
+    private int tamanhoLote;
+
+    @Value("${livraria.compactacao.pausa-entre-lotes-ms:200}")
+    private long pausaEntreLotesMs;
+
+    @Value("${livraria.compactacao.maximo-lotes-por-execucao:1000}")
+    private int maximoLotesPorExecucao;
+
+    private Counter linhasRemovidas;
+    private Timer duracao;
+
+    private final AtomicBoolean executando = new AtomicBoolean();
+
+    @PostConstruct
+    public void registrarMetricas() {
+        linhasRemovidas = Counter.builder("livraria.compactacao.linhas")
+                .description("Linhas de favoritos desmarcados removidas de tb_livros")
+                .register(meterRegistry);
+        duracao = Timer.builder("livraria.compactacao.duracao")
+                .description("Duração de cada execução da compactação de tb_livros")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${livraria.compactacao.cron:0 30 3 * * *}")
+    public void compactarAgendado() {
+        if (habilitada) {
+            compactar();
+        }
+    }
+
+    /**
+     * Executa uma rodada de compactação em todos os shards.
+     *
+     * @return quantidade de linhas removidas (0 se outra rodada já estiver em andamento)
+     */
+    public long compactar() {
+        if (!executando.compareAndSet(false, true)) {
+            return 0;
+        }
+        long inicio = System.nanoTime();
+        long removidas = 0;
+        try {
+            for (int shard = 0; shard < shardExecutor.total(); shard++) {
+                removidas += compactarShard(shard);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.warn("Compactação de tb_livros interrompida por erro", e);
+        } finally {
+            long nanos = System.nanoTime() - inicio;
+            duracao.record(nanos, TimeUnit.NANOSECONDS);
+            executando.set(false);
+            if (removidas > 0) {
+                log.info("Compactação de tb_livros: {} linhas removidas em {} ms", removidas, nanos / 1_000_000);
+                eventPublisher.publishEvent(new LivroAlteradoEvent(null));
+            }
+        }
+        return removidas;
+    }
+
+    private long compactarShard(int shard) throws InterruptedException {
+        long removidas = 0;
+        for (int lote = 0; lote < maximoLotesPorExecucao; lote++) {
+            int removidasNoLote = shardExecutor.noShard(shard, false, () -> {
+                List<Long> ids = livroRepository.findIdsFavoritosDesmarcados(Limit.of(tamanhoLote));
+                if (ids.isEmpty()) {
+                    return 0;
+                }
+                if (arquivar) {
+                    livroRepository.arquivarFavoritosDesmarcados(ids);
+                }
+                return livroRepository.deletarFavoritosDesmarcados(ids);
+            });
+            removidas += removidasNoLote;
+            linhasRemovidas.increment(removidasNoLote);
+            if (removidasNoLote < tamanhoLote) {
+                break;
+            }
+            Thread.sleep(pausaEntreLotesMs);
+        }
+        return removidas;
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.livros.service;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.livros.entities.Livro;
+import com.example.livros.events.LivroAlteradoEvent;
+import com.example.livros.repository.LivroRepository;
+import com.example.livros.sharding.ShardExecutor;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Contagens por gênero e por década dos livros do catálogo, para as facetas de GET /livros/navegar.
+ *
+ * As contagens são carregadas uma vez e depois ajustadas a cada livro alterado, relendo só aquele
+ * livro. Carga e ajustes rodam em uma única thread, na ordem dos eventos, então não disputam entre si;
+ * as leituras apenas somam os contadores.
+ */
+@Service
+@Lazy(false)
+public class FacetasService {
+
+    private static final Logger log = LoggerFactory.getLogger(FacetasService.class);
+
+    @Autowired
+    private LivroRepository livroRepository;
+
+    @Autowired
+    private ShardExecutor shardExecutor;
+
+    // Só acessado pela thread de atualização
+    private Map<Long, Faceta> facetaPorLivro = new HashMap<>();
+
+    private volatile ConcurrentHashMap<Faceta, LongAdder> contagens = new ConcurrentHashMap<>();
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "facetas-atualizacao");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void iniciar() {
+        executor.execute(this::carregar);
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Reajusta as contagens do livro alterado; sem ID (alteração em massa), recarrega tudo
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLivroAlterado(LivroAlteradoEvent event) {
+        Long id = event.getId();
+        executor.execute(id == null ? this::carregar : () -> atualizar(id));
+    }
+
+    // ========== Leitura ==========
+
+    /**
+     * Livros por gênero, do gênero mais numeroso para o menos
+     */
+    public Map<String, Long> contarPorGenero() {
+        Map<String, Long> porGenero = new HashMap<>();
+        contagens.forEach((faceta, contador) -> {
+            if (faceta.genero() != null) {
+                porGenero.merge(faceta.genero(), contador.sum(), Long::sum);
+            }
+        });
+        return ordenarPorQuantidade(porGenero);
+    }
+
+    /**
+     * Livros por década (ex.: "1990"), considerando só o gênero informado quando não for nulo
+     */
+    public Map<String, Long> contarPorDecada(String genero) {
+        Map<Integer, Long> porDecada = new TreeMap<>();
+        contagens.forEach((faceta, contador) -> {
+            if (genero == null || genero.equals(faceta.genero())) {
+                porDecada.merge(faceta.decada(), contador.sum(), Long::sum);
+            }
+        });
+        Map<String, Long> resultado = new LinkedHashMap<>();
+        porDecada.forEach((decada, quantidade) -> {
+            if (quantidade > 0) {
+                resultado.put(String.valueOf(decada), quantidade);
+            }
+        });
+        return resultado;
+    }
+
+    private static Map<String, Long> ordenarPorQuantidade(Map<String, Long> contagens) {
+        Map<String, Long> ordenado = new LinkedHashMap<>();
+        contagens.entrySet().stream()
+                .filter(entrada -> entrada.getValue() > 0)
+                .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder())
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .forEach(entrada -> ordenado.put(entrada.getKey(), entrada.getValue()));
+        return ordenado;
+    }
+
+    // ========== Atualização (thread única) ==========
+
+    private void carregar() {
+        try {
+            long inicio = System.currentTimeMillis();
+            Map<Long, Faceta> novasFacetas = new HashMap<>();
+            ConcurrentHashMap<Faceta, LongAdder> novasContagens = new ConcurrentHashMap<>();
+            shardExecutor.noShard(0, true, () -> {
+                try (Stream<Object[]> linhas = livroRepository.streamFacetasCatalogo()) {
+                    linhas.forEach(linha -> {
+                        Faceta faceta = Faceta.de((String) linha[1], (LocalDateTime) linha[2]);
+                        novasFacetas.put((Long) linha[0], faceta);
+                        novasContagens.computeIfAbsent(faceta, k -> new LongAdder()).increment();
+                    });
+                }
+                return null;
+            });
+            facetaPorLivro = novasFacetas;
+            contagens = novasContagens;
+            log.info("Facetas do catálogo carregadas em {} ms: {} livros",
+                    System.currentTimeMillis() - inicio, novasFacetas.size());
+        } catch (RuntimeException e) {
+            log.warn("Falha ao carregar as facetas do catálogo", e);
+        }
+    }
+
+    private void atualizar(Long id) {
+        try {
+            // O catálogo fica no shard 0; favoritos de dispositivos não entram nas facetas
+            Livro livro = shardExecutor.noShard(0, true, () -> livroRepository.findById(id).orElse(null));
+            Faceta nova = livro == null || livro.getDispositivoId() != null || livro.getDataPublicacao() == null
+                    ? null : Faceta.de(livro.getGenero(), livro.getDataPublicacao());
+            Faceta anterior = nova == null ? facetaPorLivro.remove(id) : facetaPorLivro.put(id, nova);
+            if (Objects.equals(anterior, nova)) {
+                return;
+            }
+            if (anterior != null) {
+                contagens.computeIfAbsent(anterior, k -> new LongAdder()).decrement();
+            }
+            if (nova != null) {
+                contagens.computeIfAbsent(nova, k -> new LongAdder()).increment();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Falha ao atualizar as facetas do livro {}", id, e);
+        }
+    }
+
+    private record Faceta(String genero, int decada) {
+
+        static Faceta de(String genero, LocalDateTime dataPublicacao) {
+            int ano = dataPublicacao.getYear();
+            return new Faceta(genero, ano - Math.floorMod(ano, 10));
+        }
+    }
+}
@@ -1,92 +1,217 @@
 package com.example.livros.service;
 
+import com.example.livros.dispositivo.RegistroDispositivos;
 import com.example.livros.entities.Favorito;
+import com.example.livros.escritaadiada.EscritaAdiadaService;
+import com.example.livros.events.FavoritoAlteradoEvent;
 import com.example.livros.repository.FavoritoRepository;
+import com.example.livros.sharding.ShardExecutor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
+/**
+ * Favoritos ficam no shard do dispositivo (ver ShardRouter); operações por dispositivo
+ * vão a um único shard e as demais consultam todos os shards.
+ *
+ * Com a escrita adiada habilitada, adicionar/remover só registram a operação no EscritaAdiadaService
+ * e as leituras por dispositivo incluem o que ainda não foi gravado; as consultas em todos os
+ * shards (findAll, findByGoogleBooksId, findById) só enxergam o que já foi descarregado.
+ */
 @Service
 public class FavoritoService {
 
     @Autowired
     private FavoritoRepository favoritoRepository;
 
+    @Autowired
+    private ShardExecutor shardExecutor;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private EscritaAdiadaService escritaAdiada;
+
+    @Autowired
+    private RegistroDispositivos dispositivos;
+
     /**
      * Busca todos os favoritos de um dispositivo
      */
-    @Transactional(readOnly = true)
     public List<Favorito> findByDevice(String deviceId) {
-        return favoritoRepository.findByDeviceId(deviceId);
+        List<Favorito> favoritos = new ArrayList<>(
+                shardExecutor.doDevice(deviceId, true, () -> favoritosDoDispositivo(deviceId)));
+        // Durante o resharding, linhas ainda não migradas continuam no shard antigo
+        favoritos.addAll(shardExecutor.noShardAnterior(deviceId, () -> favoritosDoDispositivo(deviceId), List.of()));
+        return escritaAdiada.isHabilitada() ? escritaAdiada.sobreporFavoritos(deviceId, favoritos) : favoritos;
     }
 
     /**
      * Verifica se um livro do Google Books já está nos favoritos do dispositivo
      */
-    @Transactional(readOnly = true)
     public boolean isLivroFavorito(String deviceId, String googleBooksId) {
-        return favoritoRepository.existsByDeviceIdAndGoogleBooksId(deviceId, googleBooksId);
+        if (escritaAdiada.isHabilitada()) {
+            Optional<Boolean> pendente = escritaAdiada.estadoPendente(deviceId, googleBooksId);
+            if (pendente.isPresent()) {
+                return pendente.get();
+            }
+        }
+        return shardExecutor.doDevice(deviceId, true, () -> existe(deviceId, googleBooksId))
+                || shardExecutor.noShardAnterior(deviceId, () -> existe(deviceId, googleBooksId), false);
     }
 
     /**
      * Adiciona um livro do Google Books aos favoritos do dispositivo
      */
-    @Transactional
     public Favorito adicionarFavorito(String deviceId, String googleBooksId, String titulo, 
                                      String autor, String imagemUrl, String descricao, String dataPublicacao) {
-        
-        // Verificar se já existe
-        Optional<Favorito> favoritoExistente = favoritoRepository.findByDeviceIdAndGoogleBooksId(deviceId, googleBooksId);
-        if (favoritoExistente.isPresent()) {
-            return favoritoExistente.get(); // Já está nos favoritos
+        if (escritaAdiada.isHabilitada()) {
+            // Devolve o favorito ainda sem ID; vazio se o buffer estiver cheio (segue o caminho síncrono)
+            Optional<Favorito> aceito = escritaAdiada.adicionar(
+                    deviceId, googleBooksId, titulo, autor, imagemUrl, descricao, dataPublicacao);
+            if (aceito.isPresent()) {
+                return aceito.get();
+            }
         }
-        
-        // Criar novo favorito
-        Favorito favorito = new Favorito(deviceId, googleBooksId, titulo, autor, imagemUrl, descricao, dataPublicacao);
-        return favoritoRepository.save(favorito);
+
+        // Verificar se já existe (inclusive no shard antigo, durante o resharding)
+        Optional<Favorito> anterior = shardExecutor.noShardAnterior(deviceId,
+                () -> buscarFavorito(deviceId, googleBooksId), Optional.empty());
+        if (anterior.isPresent()) {
+            return anterior.get();
+        }
+        // Fora da transação: o registro usa uma transação curta própria (ver RegistroDispositivos)
+        long dispositivoId = dispositivos.registrar(deviceId);
+        return shardExecutor.doDevice(deviceId, false, () -> {
+            Optional<Favorito> favoritoExistente = favoritoRepository.findByDispositivoIdAndGoogleBooksId(dispositivoId, googleBooksId);
+            if (favoritoExistente.isPresent()) {
+                favoritoExistente.get().setDeviceId(deviceId);
+                return favoritoExistente.get(); // Já está nos favoritos
+            }
+
+            // Criar novo favorito
+            Favorito favorito = new Favorito(deviceId, googleBooksId, titulo, autor, imagemUrl, descricao, dataPublicacao);
+            favorito.setDispositivoId(dispositivoId);
+            Favorito salvo = favoritoRepository.save(favorito);
+            eventPublisher.publishEvent(new FavoritoAlteradoEvent(deviceId, googleBooksId, true));
+            return salvo;
+        });
     }
 
     /**
      * Remove um livro do Google Books dos favoritos do dispositivo
      */
-    @Transactional
     public void removerFavorito(String deviceId, String googleBooksId) {
-        Optional<Favorito> favorito = favoritoRepository.findByDeviceIdAndGoogleBooksId(deviceId, googleBooksId);
-        
-        if (favorito.isPresent()) {
-            favoritoRepository.delete(favorito.get());
-        } else {
+        // Na escrita adiada a remoção é idempotente: remover o que não existe não é erro
+        if (escritaAdiada.isHabilitada() && escritaAdiada.remover(deviceId, googleBooksId)) {
+            return;
+        }
+        boolean removido = shardExecutor.doDevice(deviceId, false, () -> remover(deviceId, googleBooksId));
+        if (!removido) {
+            // Durante o resharding o favorito pode ainda não ter sido migrado
+            removido = removerNoShardAnterior(deviceId, googleBooksId);
+        }
+        if (!removido) {
             throw new RuntimeException("Favorito não encontrado para este dispositivo e livro");
         }
     }
 
+    private boolean remover(String deviceId, String googleBooksId) {
+        Optional<Favorito> favorito = buscarFavorito(deviceId, googleBooksId);
+        if (favorito.isEmpty()) {
+            return false;
+        }
+        favoritoRepository.delete(favorito.get());
+        eventPublisher.publishEvent(new FavoritoAlteradoEvent(deviceId, googleBooksId, false));
+        return true;
+    }
+
+    private boolean removerNoShardAnterior(String deviceId, String googleBooksId) {
+        return shardExecutor.noShardAnterior(deviceId, false, () -> remover(deviceId, googleBooksId), false);
+    }
+
+    // ========== Consultas no shard atual, pela chave do dispositivo ==========
+
+    private List<Favorito> favoritosDoDispositivo(String deviceId) {
+        return dispositivos.buscar(deviceId)
+                .map(dispositivoId -> favoritoRepository.findByDispositivoId(dispositivoId))
+                .map(favoritos -> {
+                    favoritos.forEach(favorito -> favorito.setDeviceId(deviceId));
+                    return favoritos;
+                })
+                .orElse(List.of());
+    }
+
+    private boolean existe(String deviceId, String googleBooksId) {
+        return dispositivos.buscar(deviceId)
+                .map(dispositivoId -> favoritoRepository.existsByDispositivoIdAndGoogleBooksId(dispositivoId, googleBooksId))
+                .orElse(false);
+    }
+
+    private Optional<Favorito> buscarFavorito(String deviceId, String googleBooksId) {
+        Optional<Favorito> favorito = dispositivos.buscar(deviceId)
+                .flatMap(dispositivoId -> favoritoRepository.findByDispositivoIdAndGoogleBooksId(dispositivoId, googleBooksId));
+        favorito.ifPresent(encontrado -> encontrado.setDeviceId(deviceId));
+        return favorito;
+    }
+
+    private List<Favorito> comDeviceId(List<Favorito> favoritos) {
+        dispositivos.preencherFavoritos(favoritos);
+        return favoritos;
+    }
+
     /**
-     * Busca todos os favoritos
+     * Busca todos os favoritos (em todos os shards)
      */
-    @Transactional(readOnly = true)
     public List<Favorito> findAll() {
-        return favoritoRepository.findAll();
+        return shardExecutor.emTodos(true, shard -> comDeviceId(favoritoRepository.findAll()));
     }
 
     /**
-     * Busca um favorito específico por ID
+     * Busca todos os favoritos de um livro do Google Books (em todos os shards)
      */
-    @Transactional(readOnly = true)
-    public Optional<Favorito> findById(Long id) {
-        return favoritoRepository.findById(id);
+    public List<Favorito> findByGoogleBooksId(String googleBooksId) {
+        return shardExecutor.emTodos(true, shard -> comDeviceId(favoritoRepository.findByGoogleBooksId(googleBooksId)));
     }
 
     /**
-     * Remove um favorito por ID
+     * Busca um favorito específico por ID. Com o deviceId, consulta só o shard do dispositivo (e o antigo,
+     * durante o resharding); sem ele, consulta todos e recusa um ID que exista em mais de um shard
      */
-    @Transactional
-    public void delete(Long id) {
-        if (favoritoRepository.existsById(id)) {
-            favoritoRepository.deleteById(id);
-        } else {
+    public Optional<Favorito> findById(Long id, String deviceId) {
+        if (deviceId == null) {
+            return shardExecutor.porIdEmTodos(id, shard -> comDeviceId(favoritoRepository.findById(id).stream().toList()));
+        }
+        Optional<Favorito> favorito = shardExecutor.doDevice(deviceId, true, () -> doDispositivo(id, deviceId));
+        return favorito.isPresent() ? favorito
+                : shardExecutor.noShardAnterior(deviceId, () -> doDispositivo(id, deviceId), Optional.empty());
+    }
+
+    private Optional<Favorito> doDispositivo(Long id, String deviceId) {
+        return comDeviceId(favoritoRepository.findById(id).stream().toList()).stream()
+                .filter(favorito -> deviceId.equals(favorito.getDeviceId()))
+                .findFirst();
+    }
+
+    /**
+     * Remove um favorito por ID (ver findById para o papel do deviceId)
+     */
+    public void delete(Long id, String deviceId) {
+        Favorito favorito = findById(id, deviceId)
+                .orElseThrow(() -> new RuntimeException("Favorito não encontrado com ID: " + id));
+        // Uma adição pendente do mesmo par é mais antiga que este delete e não pode ressuscitar o favorito
+        if (escritaAdiada.isHabilitada() && escritaAdiada.remover(favorito.getDeviceId(), favorito.getGoogleBooksId())) {
+            return;
+        }
+        boolean removido = shardExecutor.doDevice(favorito.getDeviceId(), false,
+                () -> remover(favorito.getDeviceId(), favorito.getGoogleBooksId()))
+                || removerNoShardAnterior(favorito.getDeviceId(), favorito.getGoogleBooksId());
+        if (!removido) {
             throw new RuntimeException("Favorito não encontrado com ID: " + id);
         }
     }
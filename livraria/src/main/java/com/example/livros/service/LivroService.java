@@ -1,27 +1,118 @@
 package com.example.livros.service;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.text.Normalizer;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import com.example.livros.dispositivo.RegistroDispositivos;
 import com.example.livros.dto.LivroDTO;
+import com.example.livros.dto.LoteLivrosDTO;
+import com.example.livros.dto.NavegacaoDTO;
 import com.example.livros.entities.Livro;
+import com.example.livros.events.FavoritoAlteradoEvent;
+import com.example.livros.events.LivroAlteradoEvent;
 import com.example.livros.repository.LivroRepository;
+import com.example.livros.sharding.ShardExecutor;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import jakarta.annotation.PostConstruct;
 
 @Service
 public class LivroService {
 
+    // Campos que podem ser alterados pela atualização parcial (PATCH)
+    private static final Set<String> CAMPOS_ATUALIZAVEIS =
+            Set.of("titulo", "autor", "genero", "capa", "dataPublicacao", "descricao");
+
     @Autowired
     private LivroRepository livroRepository;
 
-    // DTO para Entidade
+    @Autowired
+    private ShardExecutor shardExecutor;
+
+    @Autowired
+    private RegistroDispositivos dispositivos;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${livraria.livros.cache.tamanho-maximo:10000}")
+    private long tamanhoMaximoCache;
+
+    @Value("${livraria.livros.cache.ttl-segundos:600}")
+    private long ttlCacheSegundos;
+
+    @Value("${livraria.livros.lote.maximo:100}")
+    private int maximoLote;
+
+    @Value("${livraria.livros.navegacao.limite-maximo:100}")
+    private int limiteMaximoNavegacao;
+
+    @Autowired
+    private FacetasService facetasService;
+
+    // Soma dos livros de todos os resultados em cache: um termo curto pode trazer milhares de livros
+    @Value("${livraria.livros.busca.cache.livros-maximo:100000}")
+    private long livrosMaximoCacheBusca;
+
+    @Value("${livraria.livros.busca.tamanho-maximo-pagina:100}")
+    private int maximoPaginaBusca;
+
+    // Cache de livros por ID, consultado antes do banco nas buscas por ID
+    private Cache<Long, LivroDTO> cachePorId;
+
+    // Geração por faixa de IDs, incrementada a cada invalidação: uma leitura do banco só entra no cache
+    // se nenhuma invalidação do mesmo ID aconteceu entre o início da leitura e o put
+    private final AtomicLongArray geracoesCache = new AtomicLongArray(1024);
+
+    // Cache de resultados da busca por título/autor, por versão do catálogo e termo normalizado
+    private Cache<ChaveBusca, List<Livro>> cacheBusca;
+    private final AtomicLong versaoCatalogo = new AtomicLong();
+
+    @PostConstruct
+    public void iniciarCache() {
+        cachePorId = Caffeine.newBuilder()
+                .maximumSize(tamanhoMaximoCache)
+                .expireAfterWrite(Duration.ofSeconds(ttlCacheSegundos))
+                .build();
+        cacheBusca = Caffeine.newBuilder()
+                .maximumWeight(livrosMaximoCacheBusca)
+                .weigher((ChaveBusca chave, List<Livro> livros) -> livros.size() + 1)
+                .build();
+    }
+
+    // DTO para Entidade (id e versão são sempre gerados pelo banco)
     private Livro toEntity(LivroDTO dto) {
         Livro livro = new Livro();
-        livro.setId(dto.getId());
         livro.setTitulo(dto.getTitulo());
         livro.setAutor(dto.getAutor());
         livro.setGenero(dto.getGenero());
@@ -41,6 +132,7 @@ public class LivroService {
         dto.setCapa(livro.getCapa());
         dto.setDataPublicacao(livro.getDataPublicacao());
         dto.setDescricao(livro.getDescricao());
+        dto.setVersao(livro.getVersao());
         return dto;
     }
 
@@ -48,21 +140,138 @@ public class LivroService {
     public LivroDTO criarLivro(LivroDTO livroDTO) {
         Livro livro = toEntity(livroDTO);
         Livro savedLivro = livroRepository.save(livro);
-        return toDTO(savedLivro);
+        LivroDTO dto = toDTO(savedLivro);
+        colocarNoCache(dto, -1);
+        eventPublisher.publishEvent(new LivroAlteradoEvent(dto.getId()));
+        return dto;
     }
 
-    // Read (todos)
+    // Read (todos, em todos os shards)
     public List<LivroDTO> listarLivros() {
-        return livroRepository.findAll().stream().map(this::toDTO).collect(Collectors.toList());
+        return shardExecutor.emTodos(true, shard -> livroRepository.findAll())
+                .stream().map(this::toDTO).collect(Collectors.toList());
     }
 
-    // Read (por ID)
+    // Read (por ID). Como em listarLivros, consulta todos os shards: os favoritos de cada dispositivo
+    // também ficam em tb_livros, no shard dele; um ID presente em mais de um shard é recusado
     public Optional<LivroDTO> buscarLivroPorId(Long id) {
-        return livroRepository.findById(id).map(this::toDTO);
+        LivroDTO emCache = cachePorId.getIfPresent(id);
+        if (emCache != null) {
+            return Optional.of(emCache);
+        }
+        long geracao = geracao(id);
+        Optional<LivroDTO> dto = shardExecutor.porIdEmTodos(id, shard -> livroRepository.findById(id).stream().toList())
+                .map(this::toDTO);
+        dto.ifPresent(encontrado -> colocarNoCache(encontrado, geracao));
+        return dto;
     }
 
-    // Update
+    /**
+     * Busca vários livros de uma vez: o que não estiver em cache vem de uma única consulta IN por shard,
+     * e o resultado respeita a ordem dos IDs pedidos
+     */
+    public LoteLivrosDTO buscarLivrosPorIds(List<Long> ids) {
+        Set<Long> unicos = new LinkedHashSet<>(ids);
+        unicos.remove(null);
+        if (unicos.size() > maximoLote) {
+            throw new IllegalArgumentException("No máximo " + maximoLote + " IDs por requisição");
+        }
+
+        Map<Long, LivroDTO> encontrados = new HashMap<>(cachePorId.getAllPresent(unicos));
+        List<Long> faltantes = new ArrayList<>();
+        for (Long id : unicos) {
+            if (!encontrados.containsKey(id)) {
+                faltantes.add(id);
+            }
+        }
+        if (!faltantes.isEmpty()) {
+            Map<Long, Long> geracoes = new HashMap<>();
+            for (Long id : faltantes) {
+                geracoes.put(id, geracao(id));
+            }
+            Map<Long, LivroDTO> lidos = new HashMap<>();
+            for (Livro livro : shardExecutor.emTodos(true, shard -> livroRepository.findAllById(faltantes))) {
+                if (lidos.put(livro.getId(), toDTO(livro)) != null) {
+                    throw new IllegalStateException("O ID " + livro.getId() + " existe em mais de um shard");
+                }
+            }
+            for (LivroDTO dto : lidos.values()) {
+                colocarNoCache(dto, geracoes.get(dto.getId()));
+            }
+            encontrados.putAll(lidos);
+        }
+
+        List<LivroDTO> livros = new ArrayList<>(encontrados.size());
+        List<Long> naoEncontrados = new ArrayList<>();
+        for (Long id : unicos) {
+            LivroDTO dto = encontrados.get(id);
+            if (dto != null) {
+                livros.add(dto);
+            } else {
+                naoEncontrados.add(id);
+            }
+        }
+        return new LoteLivrosDTO(livros, naoEncontrados);
+    }
+
+    /**
+     * Navega pelo catálogo filtrando por gênero e intervalo de publicação [de, ate], do mais recente
+     * para o mais antigo. A página seguinte é pedida com o cursor devolvido em proximaPagina.
+     */
+    public NavegacaoDTO navegar(String genero, LocalDate de, LocalDate ate, String apos, int limite) {
+        if (limite < 1 || limite > limiteMaximoNavegacao) {
+            throw new IllegalArgumentException("limite deve estar entre 1 e " + limiteMaximoNavegacao);
+        }
+        if (de != null && ate != null && de.isAfter(ate)) {
+            throw new IllegalArgumentException("'de' não pode ser posterior a 'ate'");
+        }
+        String filtroGenero = genero == null || genero.isBlank() ? null : genero.trim();
+        LocalDateTime cursorData = null;
+        Long cursorId = null;
+        if (apos != null && !apos.isBlank()) {
+            String[] cursor = decodificarCursor(apos);
+            cursorData = LocalDateTime.parse(cursor[0]);
+            cursorId = Long.valueOf(cursor[1]);
+        }
+
+        // Um a mais que o limite só para saber se existe próxima página
+        List<Livro> encontrados = livroRepository.navegar(filtroGenero,
+                de == null ? null : de.atStartOfDay(),
+                ate == null ? null : ate.plusDays(1).atStartOfDay(),
+                cursorData, cursorId, limite + 1);
+        List<LivroDTO> livros = encontrados.stream().limit(limite).map(this::toDTO).collect(Collectors.toList());
+        String proximaPagina = null;
+        if (encontrados.size() > limite) {
+            LivroDTO ultimo = livros.get(livros.size() - 1);
+            proximaPagina = codificarCursor(ultimo.getDataPublicacao() + "," + ultimo.getId());
+        }
+        return new NavegacaoDTO(livros, proximaPagina,
+                facetasService.contarPorGenero(), facetasService.contarPorDecada(filtroGenero));
+    }
+
+    private static String codificarCursor(String valor) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decodificarCursor(String cursor) {
+        try {
+            String[] partes = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(",");
+            if (partes.length != 2) {
+                throw new IllegalArgumentException("Cursor inválido: " + cursor);
+            }
+            LocalDateTime.parse(partes[0]);
+            Long.parseLong(partes[1]);
+            return partes;
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Cursor inválido: " + cursor);
+        }
+    }
+
+    // Update (na mesma transação da leitura, o save não precisa de um SELECT extra para o merge). O flush
+    // antes do toDTO faz o Hibernate incrementar a versão, e o cache só recebe o livro depois do commit
+    @Transactional
     public LivroDTO atualizarLivro(Long id, LivroDTO livroDTO) {
+        long geracao = geracao(id);
         Optional<Livro> livroExistente = livroRepository.findById(id);
         if (livroExistente.isPresent()) {
             Livro livro = livroExistente.get();
@@ -72,77 +281,303 @@ public class LivroService {
             livro.setCapa(livroDTO.getCapa());
             livro.setDataPublicacao(livroDTO.getDataPublicacao());
             livro.setDescricao(livroDTO.getDescricao());
-            Livro updatedLivro = livroRepository.save(livro);
-            return toDTO(updatedLivro);
+            Livro updatedLivro = livroRepository.saveAndFlush(livro);
+            LivroDTO dto = toDTO(updatedLivro);
+            colocarAposCommit(dto, geracao);
+            eventPublisher.publishEvent(new LivroAlteradoEvent(id));
+            return dto;
         }
         return null;
     }
 
+    /**
+     * Atualiza apenas os campos informados com um único UPDATE condicionado à versão.
+     * Retorna a nova versão, ou vazio se o livro não existe; se a versão não confere,
+     * lança OptimisticLockingFailureException
+     */
+    @Transactional
+    public Optional<Long> atualizarParcialmente(Long id, long versaoEsperada, Map<String, Object> alteracoes) {
+        Map<String, Object> campos = converterCampos(alteracoes);
+        if (livroRepository.atualizarParcialmente(id, versaoEsperada, campos) == 1) {
+            invalidarAposCommit(id);
+            eventPublisher.publishEvent(new LivroAlteradoEvent(id));
+            return Optional.of(versaoEsperada + 1);
+        }
+        // Só no caminho de falha: distinguir livro inexistente de conflito de versão
+        if (!livroRepository.existsById(id)) {
+            return Optional.empty();
+        }
+        throw new OptimisticLockingFailureException(
+                "O livro " + id + " foi alterado por outra requisição (versão esperada: " + versaoEsperada + ")");
+    }
+
+    private Map<String, Object> converterCampos(Map<String, Object> alteracoes) {
+        if (alteracoes == null || alteracoes.isEmpty()) {
+            throw new IllegalArgumentException("Nenhum campo para atualizar");
+        }
+        Map<String, Object> campos = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> alteracao : alteracoes.entrySet()) {
+            String campo = alteracao.getKey();
+            Object valor = alteracao.getValue();
+            if (!CAMPOS_ATUALIZAVEIS.contains(campo)) {
+                throw new IllegalArgumentException("Campo não pode ser alterado: " + campo);
+            }
+            if (valor != null && !(valor instanceof String)) {
+                throw new IllegalArgumentException("Valor inválido para " + campo + ": esperado texto");
+            }
+            if ("titulo".equals(campo) && valor == null) {
+                throw new IllegalArgumentException("titulo não pode ser nulo");
+            }
+            if ("dataPublicacao".equals(campo) && valor != null) {
+                try {
+                    valor = LocalDateTime.parse((String) valor);
+                } catch (DateTimeParseException e) {
+                    throw new IllegalArgumentException("dataPublicacao inválida: " + valor);
+                }
+            }
+            campos.put(campo, valor);
+        }
+        return campos;
+    }
+
     // Delete
     public void deletarLivro(Long id) {
         livroRepository.deleteById(id);
+        invalidarNoCache(id);
+        eventPublisher.publishEvent(new LivroAlteradoEvent(id));
+    }
+
+    // Invalida depois do commit; uma leitura concorrente que carregou a linha antiga antes disso não
+    // consegue recolocá-la no cache porque a geração do ID mudou (ver colocarNoCache)
+    private void invalidarAposCommit(Long id) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidarNoCache(id);
+                }
+            });
+        } else {
+            invalidarNoCache(id);
+        }
+    }
+
+    // Guarda depois do commit, e só se nenhuma invalidação do ID aconteceu desde a leitura
+    private void colocarAposCommit(LivroDTO dto, long geracaoLida) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    colocarNoCache(dto, geracaoLida);
+                }
+            });
+        } else {
+            colocarNoCache(dto, geracaoLida);
+        }
+    }
+
+    private long geracao(Long id) {
+        return geracoesCache.get(Long.hashCode(id) & (geracoesCache.length() - 1));
+    }
+
+    /**
+     * Guarda o livro no cache sem nunca trocar uma versão mais nova por uma mais antiga. Com geração >= 0
+     * (leitura do banco), só guarda se o ID não foi invalidado desde que a leitura começou; o teste e o
+     * put são atômicos em relação à invalidação, que incrementa a geração antes de remover a entrada
+     */
+    private void colocarNoCache(LivroDTO dto, long geracaoLida) {
+        cachePorId.asMap().compute(dto.getId(), (id, atual) -> {
+            if (geracaoLida >= 0 && geracao(id) != geracaoLida) {
+                return atual;
+            }
+            if (atual != null && atual.getVersao() != null && dto.getVersao() != null
+                    && atual.getVersao() > dto.getVersao()) {
+                return atual;
+            }
+            return dto;
+        });
+    }
+
+    private void invalidarNoCache(Long id) {
+        geracoesCache.incrementAndGet(Long.hashCode(id) & (geracoesCache.length() - 1));
+        cachePorId.invalidate(id);
+    }
+
+    private void invalidarCacheInteiro() {
+        for (int i = 0; i < geracoesCache.length(); i++) {
+            geracoesCache.incrementAndGet(i);
+        }
+        cachePorId.invalidateAll();
     }
     
     // ========== Métodos para gerenciar favoritos ==========
+    // Os favoritos de um dispositivo ficam no shard dele (ver ShardRouter); o catálogo fica no shard 0
     
     /**
      * Busca todos os livros favoritos de um dispositivo
      */
-    @Transactional(readOnly = true)
     public List<Livro> findByDevice(String deviceId) {
-        return livroRepository.findByDeviceIdAndFavoritoTrue(deviceId);
+        List<Livro> livros = new ArrayList<>(shardExecutor.doDevice(deviceId, true, () -> favoritosDoDispositivo(deviceId)));
+        livros.addAll(shardExecutor.noShardAnterior(deviceId, () -> favoritosDoDispositivo(deviceId), List.of()));
+        return livros;
     }
 
     /**
      * Verifica se um livro do Google Books já está nos favoritos do dispositivo
      */
-    @Transactional(readOnly = true)
     public boolean isLivroFavorito(String deviceId, String googleBooksId) {
-        return livroRepository.existsByDeviceIdAndGoogleBooksIdAndFavoritoTrue(deviceId, googleBooksId);
+        return shardExecutor.doDevice(deviceId, true, () -> existeFavorito(deviceId, googleBooksId))
+                || shardExecutor.noShardAnterior(deviceId, () -> existeFavorito(deviceId, googleBooksId), false);
     }
 
     /**
      * Adiciona um livro do Google Books aos favoritos do dispositivo
      */
-    @Transactional
     public Livro adicionarFavorito(String deviceId, String googleBooksId, String titulo, 
                                  String autor, String imagemUrl, String descricao, String dataPublicacao) {
         
-        // Verificar se já existe
-        Optional<Livro> livroExistente = livroRepository.findByDeviceIdAndGoogleBooksIdAndFavoritoTrue(deviceId, googleBooksId);
-        if (livroExistente.isPresent()) {
-            return livroExistente.get(); // Já está nos favoritos
+        // Verificar se já existe (inclusive no shard antigo, durante o resharding)
+        Optional<Livro> anterior = shardExecutor.noShardAnterior(deviceId,
+                () -> buscarFavorito(deviceId, googleBooksId), Optional.empty());
+        if (anterior.isPresent()) {
+            return anterior.get();
         }
-        
-        // Criar novo livro favorito
-        Livro livro = new Livro(deviceId, googleBooksId, titulo, autor, imagemUrl, descricao, dataPublicacao);
-        return livroRepository.save(livro);
+        // Fora da transação: o registro usa uma transação curta própria (ver RegistroDispositivos)
+        long dispositivoId = dispositivos.registrar(deviceId);
+        return shardExecutor.doDevice(deviceId, false, () -> {
+            Optional<Livro> livroExistente =
+                    livroRepository.findByDispositivoIdAndGoogleBooksIdAndFavoritoTrue(dispositivoId, googleBooksId);
+            if (livroExistente.isPresent()) {
+                livroExistente.get().setDeviceId(deviceId);
+                return livroExistente.get(); // Já está nos favoritos
+            }
+
+            // Criar novo livro favorito
+            Livro livro = new Livro(deviceId, googleBooksId, titulo, autor, imagemUrl, descricao, dataPublicacao);
+            livro.setDispositivoId(dispositivoId);
+            Livro salvo = livroRepository.save(livro);
+            eventPublisher.publishEvent(new FavoritoAlteradoEvent(deviceId, googleBooksId, true));
+            eventPublisher.publishEvent(new LivroAlteradoEvent(salvo.getId()));
+            return salvo;
+        });
     }
 
     /**
      * Remove um livro do Google Books dos favoritos do dispositivo
      */
-    @Transactional
     public void removerFavorito(String deviceId, String googleBooksId) {
-        Optional<Livro> livro = livroRepository.findByDeviceIdAndGoogleBooksIdAndFavoritoTrue(deviceId, googleBooksId);
-        
-        if (livro.isPresent()) {
-            Livro livroFavorito = livro.get();
-            livroFavorito.setFavorito(false);
-            livroRepository.save(livroFavorito);
-        } else {
+        boolean removido = shardExecutor.doDevice(deviceId, false, () -> desmarcarFavorito(deviceId, googleBooksId))
+                || shardExecutor.noShardAnterior(deviceId, false, () -> desmarcarFavorito(deviceId, googleBooksId), false);
+        if (!removido) {
             throw new RuntimeException("Favorito não encontrado para este dispositivo e livro");
         }
     }
+
+    private boolean desmarcarFavorito(String deviceId, String googleBooksId) {
+        Optional<Livro> livro = buscarFavorito(deviceId, googleBooksId);
+        if (livro.isEmpty()) {
+            return false;
+        }
+        Livro livroFavorito = livro.get();
+        livroFavorito.setFavorito(false);
+        livroRepository.save(livroFavorito);
+        eventPublisher.publishEvent(new FavoritoAlteradoEvent(deviceId, googleBooksId, false));
+        eventPublisher.publishEvent(new LivroAlteradoEvent(livroFavorito.getId()));
+        return true;
+    }
+    
+    // Consultas no shard atual, pela chave do dispositivo (ver RegistroDispositivos)
+
+    private List<Livro> favoritosDoDispositivo(String deviceId) {
+        return dispositivos.buscar(deviceId)
+                .map(dispositivoId -> livroRepository.findByDispositivoIdAndFavoritoTrue(dispositivoId))
+                .map(livros -> {
+                    livros.forEach(livro -> livro.setDeviceId(deviceId));
+                    return livros;
+                })
+                .orElse(List.of());
+    }
+
+    private boolean existeFavorito(String deviceId, String googleBooksId) {
+        return dispositivos.buscar(deviceId)
+                .map(dispositivoId -> livroRepository.existsByDispositivoIdAndGoogleBooksIdAndFavoritoTrue(dispositivoId, googleBooksId))
+                .orElse(false);
+    }
+
+    private Optional<Livro> buscarFavorito(String deviceId, String googleBooksId) {
+        Optional<Livro> livro = dispositivos.buscar(deviceId)
+                .flatMap(dispositivoId -> livroRepository.findByDispositivoIdAndGoogleBooksIdAndFavoritoTrue(dispositivoId, googleBooksId));
+        livro.ifPresent(encontrado -> encontrado.setDeviceId(deviceId));
+        return livro;
+    }
+
+    private List<Livro> comDeviceId(List<Livro> livros) {
+        dispositivos.preencherLivros(livros);
+        return livros;
+    }
     
     /**
-     * Busca livros por título ou autor
+     * Busca livros por título ou autor (em todos os shards), com cache por termo normalizado.
+     * Sem termo, devolve uma página do catálogo em ordem de ID, começando depois de "apos".
      */
-    @Transactional(readOnly = true)
-    public List<Livro> buscarPorTituloOuAutor(String busca) {
-        if (busca == null || busca.trim().isEmpty()) {
-            return livroRepository.findAll();
+    public List<Livro> buscarPorTituloOuAutor(String busca, Long apos, int tamanho) {
+        String termo = limparBusca(busca);
+        if (termo.isEmpty()) {
+            return listarPagina(apos == null ? 0L : apos, tamanho);
         }
-        return livroRepository.findByTituloOrAutorContainingIgnoreCase(busca.trim());
+        // Requisições simultâneas pelo mesmo termo esperam uma única consulta; a consulta usa o termo
+        // como foi digitado, e a normalização só serve para termos equivalentes dividirem a entrada
+        return cacheBusca.get(new ChaveBusca(versaoCatalogo.get(), normalizarBusca(termo)), chave -> List.copyOf(
+                shardExecutor.emTodos(true, shard -> comDeviceId(livroRepository.findByTituloOrAutorContainingIgnoreCase(termo)))));
+    }
+
+    private List<Livro> listarPagina(long apos, int tamanho) {
+        if (tamanho < 1 || tamanho > maximoPaginaBusca) {
+            throw new IllegalArgumentException("tamanho deve estar entre 1 e " + maximoPaginaBusca);
+        }
+        // Cada shard devolve seus próximos "tamanho" IDs; o merge fica com os menores
+        return shardExecutor.emTodos(true,
+                        shard -> comDeviceId(livroRepository.findByIdGreaterThanOrderByIdAsc(apos, Limit.of(tamanho))))
+                .stream()
+                .sorted(Comparator.comparing(Livro::getId))
+                .limit(tamanho)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Termo da consulta: sem espaços nas pontas nem repetidos, mas com maiúsculas e acentos como vieram
+     */
+    static String limparBusca(String busca) {
+        return busca == null ? "" : busca.trim().replaceAll("\\s+", " ");
+    }
+
+    /**
+     * Chave do cache: o termo limpo, em minúsculas e sem acentos. Só junta termos que a consulta já trata
+     * como iguais (IgnoreCase e a collation padrão do MySQL, que ignora acentos); o termo sem acentos
+     * nunca vai para o banco, onde "jose" não encontraria "José" com uma collation que diferencia acentos.
+     */
+    static String normalizarBusca(String busca) {
+        String semAcentos = Normalizer.normalize(limparBusca(busca), Normalizer.Form.NFD).replaceAll("\\p{M}+", "");
+        return semAcentos.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Qualquer escrita em tb_livros muda a versão do catálogo; as buscas em cache da versão
+     * anterior deixam de ser usadas (e saem do cache pelo limite de tamanho). Escritas locais já
+     * atualizam o cache por ID; as de outras instâncias chegam como eventos remotos
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLivroAlterado(LivroAlteradoEvent event) {
+        versaoCatalogo.incrementAndGet();
+        if (event.isRemoto()) {
+            if (event.getId() == null) {
+                invalidarCacheInteiro();
+            } else {
+                invalidarNoCache(event.getId());
+            }
+        }
+    }
+
+    private record ChaveBusca(long versao, String termo) {
     }
-}
\ No newline at end of file
+}
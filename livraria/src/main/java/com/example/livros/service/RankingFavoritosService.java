@@ -0,0 +1,398 @@
+package com.example.livros.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.livros.dto.PopularidadeDTO;
+import com.example.livros.events.FavoritoAlteradoEvent;
+import com.example.livros.repository.FavoritoRepository;
+import com.example.livros.repository.LivroRepository;
+import com.example.livros.sharding.ShardExecutor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Ranking dos livros mais favoritados, mantido em memória por contadores incrementais.
+ *
+ * Os contadores são atualizados a cada favorito adicionado/removido (após o commit) e os
+ * rankings de cada janela são recalculados periodicamente, de modo que a leitura apenas
+ * devolve uma lista já ordenada com no máximo top-k posições.
+ */
+@Service
+@Lazy(false)
+@RegisterReflectionForBinding({ RankingFavoritosService.Snapshot.class, RankingFavoritosService.BucketSnapshot.class })
+public class RankingFavoritosService {
+
+    private static final Logger log = LoggerFactory.getLogger(RankingFavoritosService.class);
+
+    private static final long UM_MINUTO = 60_000L;
+    private static final long UMA_HORA = 60 * UM_MINUTO;
+
+    @Autowired
+    private FavoritoRepository favoritoRepository;
+
+    @Autowired
+    private LivroRepository livroRepository;
+
+    @Autowired
+    private ShardExecutor shardExecutor;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${livraria.ranking.top-k:100}")
+    private int topK;
+
+    @Value("${livraria.ranking.arquivo:data/ranking-favoritos.json}")
+    private String arquivo;
+
+    // Nunca substituído: a recontagem no banco só soma a diferença aos contadores vivos
+    private final ConcurrentHashMap<String, LongAdder> totais = new ConcurrentHashMap<>();
+
+    // Última hora em buckets de um minuto; últimos 7 dias (e 24h) em buckets de uma hora
+    private final Janela porMinuto = new Janela(60, UM_MINUTO);
+    private final Janela porHora = new Janela(7 * 24, UMA_HORA);
+
+    private volatile Map<String, List<PopularidadeDTO>> rankings =
+            Map.of("1h", List.of(), "24h", List.of(), "7d", List.of(), "total", List.of());
+
+    // Evita sobrescrever o snapshot em disco antes de ele ter sido carregado
+    private volatile boolean carregado;
+
+    @PostConstruct
+    public void validar() {
+        // Com top-k 0 o heap nunca recebe entradas e a comparação com o topo daria NullPointerException
+        if (topK < 1) {
+            throw new IllegalArgumentException("livraria.ranking.top-k deve ser pelo menos 1: " + topK);
+        }
+    }
+
+    /**
+     * Carrega o snapshot só depois que a aplicação está no ar, sem atrasar a inicialização. Os totais
+     * do snapshot podem estar defasados (favoritos feitos enquanto a instância estava parada), então
+     * são recontados no banco em seguida; as janelas só existem no snapshot
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void iniciar() {
+        boolean restaurado = restaurar();
+        carregado = recontarTotais() || restaurado;
+        atualizarRankings();
+    }
+
+    /**
+     * Corrige periodicamente qualquer desvio dos totais incrementais em relação ao banco
+     */
+    @Scheduled(cron = "${livraria.ranking.cron-reconciliacao:0 30 * * * *}")
+    public void reconciliar() {
+        if (recontarTotais()) {
+            carregado = true;
+        }
+    }
+
+    /**
+     * Atualiza os contadores quando um favorito é adicionado ou removido (nesta ou em outra instância);
+     * se eventos de outras instâncias se perderam, os totais são recontados no banco
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFavoritoAlterado(FavoritoAlteradoEvent event) {
+        if (event.isRemoto() && event.getGoogleBooksId() == null) {
+            recontarTotais();
+            return;
+        }
+        registrar(event.getGoogleBooksId(), event.isAdicionado() ? 1 : -1, System.currentTimeMillis());
+    }
+
+    /**
+     * Aproxima os totais dos contados no banco somando a cada contador a diferença entre o banco e o valor
+     * lido antes da contagem; favoritos registrados durante a contagem continuam nos contadores em vez de
+     * serem descartados junto com o mapa antigo
+     */
+    private boolean recontarTotais() {
+        try {
+            Map<String, Long> antes = new HashMap<>();
+            totais.forEach((id, contador) -> antes.put(id, contador.sum()));
+            Map<String, Long> contados = contarNoBanco();
+            for (Map.Entry<String, Long> entrada : contados.entrySet()) {
+                long diferenca = entrada.getValue() - antes.getOrDefault(entrada.getKey(), 0L);
+                if (diferenca != 0) {
+                    totais.computeIfAbsent(entrada.getKey(), k -> new LongAdder()).add(diferenca);
+                }
+            }
+            antes.forEach((id, valor) -> {
+                if (!contados.containsKey(id) && valor != 0) {
+                    totais.get(id).add(-valor);
+                }
+            });
+            return true;
+        } catch (DataAccessException e) {
+            log.warn("Não foi possível recontar o ranking de favoritos a partir do banco", e);
+            return false;
+        }
+    }
+
+    void registrar(String googleBooksId, long delta, long agora) {
+        if (googleBooksId == null) {
+            return;
+        }
+        totais.computeIfAbsent(googleBooksId, k -> new LongAdder()).add(delta);
+        porMinuto.adicionar(googleBooksId, delta, agora);
+        porHora.adicionar(googleBooksId, delta, agora);
+    }
+
+    /**
+     * Devolve os livros mais favoritados na janela informada (1h, 24h, 7d ou total)
+     */
+    public List<PopularidadeDTO> listarPopulares(String janela, int limite) {
+        List<PopularidadeDTO> ranking = rankings.get(janela);
+        if (ranking == null) {
+            throw new IllegalArgumentException("Janela inválida: " + janela + " (use 1h, 24h, 7d ou total)");
+        }
+        return ranking.subList(0, Math.max(0, Math.min(limite, ranking.size())));
+    }
+
+    /**
+     * Recalcula o top-k de cada janela a partir dos contadores em memória
+     */
+    @Scheduled(fixedDelayString = "${livraria.ranking.intervalo-atualizacao-ms:5000}")
+    public void atualizarRankings() {
+        atualizarRankings(System.currentTimeMillis());
+    }
+
+    void atualizarRankings(long agora) {
+        Map<String, Long> totaisAtuais = new HashMap<>();
+        totais.forEach((id, contador) -> totaisAtuais.put(id, contador.sum()));
+
+        Map<String, List<PopularidadeDTO>> novos = new HashMap<>();
+        novos.put("1h", selecionarTopK(porMinuto.somar(60, agora)));
+        novos.put("24h", selecionarTopK(porHora.somar(24, agora)));
+        novos.put("7d", selecionarTopK(porHora.somar(7 * 24, agora)));
+        novos.put("total", selecionarTopK(totaisAtuais));
+        rankings = novos;
+    }
+
+    private List<PopularidadeDTO> selecionarTopK(Map<String, Long> contagens) {
+        PriorityQueue<Map.Entry<String, Long>> heap = new PriorityQueue<>(topK + 1, Map.Entry.comparingByValue());
+        for (Map.Entry<String, Long> entrada : contagens.entrySet()) {
+            if (entrada.getValue() <= 0) {
+                continue;
+            }
+            if (heap.size() < topK) {
+                heap.add(entrada);
+            } else if (entrada.getValue() > heap.peek().getValue()) {
+                heap.poll();
+                heap.add(entrada);
+            }
+        }
+        List<PopularidadeDTO> ranking = new ArrayList<>(heap.size());
+        for (Map.Entry<String, Long> entrada : heap) {
+            ranking.add(new PopularidadeDTO(entrada.getKey(), entrada.getValue()));
+        }
+        ranking.sort(Comparator.comparingLong(PopularidadeDTO::getFavoritos).reversed());
+        return List.copyOf(ranking);
+    }
+
+    // ========== Persistência do snapshot ==========
+
+    /**
+     * Grava periodicamente (e no desligamento) os contadores em disco para sobreviver a reinícios
+     */
+    @Scheduled(fixedDelayString = "${livraria.ranking.intervalo-persistencia-ms:60000}",
+               initialDelayString = "${livraria.ranking.intervalo-persistencia-ms:60000}")
+    @PreDestroy
+    public void persistir() {
+        if (!carregado) {
+            return;
+        }
+        Snapshot snapshot = new Snapshot();
+        snapshot.totais = new HashMap<>();
+        totais.forEach((id, contador) -> snapshot.totais.put(id, contador.sum()));
+        snapshot.minutos = porMinuto.exportar();
+        snapshot.horas = porHora.exportar();
+
+        Path destino = Paths.get(arquivo);
+        try {
+            Path diretorio = destino.toAbsolutePath().getParent();
+            Files.createDirectories(diretorio);
+            Path temporario = Files.createTempFile(diretorio, "ranking", ".tmp");
+            objectMapper.writeValue(temporario.toFile(), snapshot);
+            Files.move(temporario, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Não foi possível persistir o ranking de favoritos em {}", destino, e);
+        }
+    }
+
+    private boolean restaurar() {
+        Path origem = Paths.get(arquivo);
+        if (!Files.exists(origem)) {
+            return false;
+        }
+        try {
+            Snapshot snapshot = objectMapper.readValue(origem.toFile(), Snapshot.class);
+            if (snapshot.totais != null) {
+                snapshot.totais.forEach((id, total) -> totais.computeIfAbsent(id, k -> new LongAdder()).add(total));
+            }
+            porMinuto.importar(snapshot.minutos);
+            porHora.importar(snapshot.horas);
+            return true;
+        } catch (IOException e) {
+            log.warn("Snapshot do ranking em {} ilegível; recalculando totais a partir do banco", origem, e);
+            return false;
+        }
+    }
+
+    /**
+     * Totais de favoritos por livro em todos os shards
+     */
+    private Map<String, Long> contarNoBanco() {
+        Map<String, Long> contados = new HashMap<>();
+        List<Object[]> contagens = shardExecutor.emTodos(true, shard -> {
+            List<Object[]> doShard = new ArrayList<>(favoritoRepository.contarPorGoogleBooksId());
+            doShard.addAll(livroRepository.contarFavoritosPorGoogleBooksId());
+            return doShard;
+        });
+        for (Object[] linha : contagens) {
+            contados.merge((String) linha[0], (Long) linha[1], Long::sum);
+        }
+        return contados;
+    }
+
+    static class Snapshot {
+        public Map<String, Long> totais;
+        public List<BucketSnapshot> minutos;
+        public List<BucketSnapshot> horas;
+    }
+
+    static class BucketSnapshot {
+        public long epoca;
+        public Map<String, Long> contagens;
+    }
+
+    // ========== Janela deslizante em buckets ==========
+
+    /**
+     * Anel de buckets de duração fixa; cada bucket guarda os contadores da sua época
+     * e é reaproveitado quando o anel dá a volta.
+     */
+    static final class Janela {
+
+        private final long duracaoBucket;
+        private final AtomicReferenceArray<Bucket> buckets;
+
+        Janela(int quantidade, long duracaoBucket) {
+            this.duracaoBucket = duracaoBucket;
+            this.buckets = new AtomicReferenceArray<>(quantidade);
+        }
+
+        /**
+         * Soma no bucket da época de agora. Um bucket só é trocado por outro de época pelo menos uma volta
+         * do anel mais nova, então uma soma que cai num bucket já trocado (ou que encontra um bucket de
+         * época mais nova) é de uma época fora de todas as janelas e é descartada, nunca atribuída a outra
+         */
+        void adicionar(String googleBooksId, long delta, long agora) {
+            long epoca = agora / duracaoBucket;
+            Bucket bucket = bucket(epoca);
+            if (bucket.epoca == epoca) {
+                bucket.contagens.computeIfAbsent(googleBooksId, k -> new LongAdder()).add(delta);
+            }
+        }
+
+        private int indice(long epoca) {
+            return (int) (epoca % buckets.length());
+        }
+
+        /**
+         * Bucket da época, instalado por CAS sobre o bucket observado; nunca troca um bucket por outro
+         * de época mais antiga
+         */
+        private Bucket bucket(long epoca) {
+            int indice = indice(epoca);
+            while (true) {
+                Bucket atual = buckets.get(indice);
+                if (atual != null && atual.epoca >= epoca) {
+                    return atual;
+                }
+                // Bucket de uma volta anterior do anel: substitui por um novo
+                Bucket novo = new Bucket(epoca);
+                if (buckets.compareAndSet(indice, atual, novo)) {
+                    return novo;
+                }
+            }
+        }
+
+        Map<String, Long> somar(int ultimos, long agora) {
+            long epocaAtual = agora / duracaoBucket;
+            Map<String, Long> soma = new HashMap<>();
+            for (int i = 0; i < buckets.length(); i++) {
+                Bucket bucket = buckets.get(i);
+                if (bucket != null && bucket.epoca > epocaAtual - ultimos && bucket.epoca <= epocaAtual) {
+                    bucket.contagens.forEach((id, contador) -> soma.merge(id, contador.sum(), Long::sum));
+                }
+            }
+            return soma;
+        }
+
+        List<BucketSnapshot> exportar() {
+            List<BucketSnapshot> exportados = new ArrayList<>();
+            for (int i = 0; i < buckets.length(); i++) {
+                Bucket bucket = buckets.get(i);
+                if (bucket != null) {
+                    BucketSnapshot snapshot = new BucketSnapshot();
+                    snapshot.epoca = bucket.epoca;
+                    snapshot.contagens = new HashMap<>();
+                    bucket.contagens.forEach((id, contador) -> snapshot.contagens.put(id, contador.sum()));
+                    exportados.add(snapshot);
+                }
+            }
+            return exportados;
+        }
+
+        void importar(List<BucketSnapshot> snapshots) {
+            if (snapshots == null) {
+                return;
+            }
+            for (BucketSnapshot snapshot : snapshots) {
+                Bucket bucket = bucket(snapshot.epoca);
+                if (bucket.epoca == snapshot.epoca && snapshot.contagens != null) {
+                    snapshot.contagens.forEach((id, total) ->
+                            bucket.contagens.computeIfAbsent(id, k -> new LongAdder()).add(total));
+                }
+            }
+        }
+    }
+
+    static final class Bucket {
+        final long epoca;
+        final ConcurrentHashMap<String, LongAdder> contagens = new ConcurrentHashMap<>();
+
+        Bucket(long epoca) {
+            this.epoca = epoca;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.livros.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.livros.dto.RecomendacaoDTO;
+import com.example.livros.events.FavoritoAlteradoEvent;
+import com.example.livros.recomendacao.ModeloCoocorrencia;
+import com.example.livros.repository.FavoritoRepository;
+import com.example.livros.repository.LivroRepository;
+import com.example.livros.sharding.ShardExecutor;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Recomendações "quem favoritou este também favoritou", servidas a partir de um
+ * modelo de co-ocorrência em memória.
+ *
+ * O modelo é reconstruído em segundo plano na inicialização e periodicamente (para
+ * corrigir qualquer desvio), e entre reconstruções é atualizado a cada favorito.
+ */
+@Service
+@Lazy(false)
+public class RecomendacaoService {
+
+    private static final Logger log = LoggerFactory.getLogger(RecomendacaoService.class);
+
+    @Autowired
+    private FavoritoRepository favoritoRepository;
+
+    @Autowired
+    private LivroRepository livroRepository;
+
+    @Autowired
+    private ShardExecutor shardExecutor;
+
+    @Value("${livraria.recomendacoes.max-cesta:500}")
+    private int maxCesta;
+
+    @Value("${livraria.recomendacoes.limite-maximo:100}")
+    private int limiteMaximo;
+
+    private volatile ModeloCoocorrencia modelo;
+
+    // Eventos recebidos durante uma reconstrução, reaplicados no modelo novo antes da troca
+    private final Object trava = new Object();
+    private List<FavoritoAlteradoEvent> pendentes;
+
+    private final AtomicBoolean reconstruindo = new AtomicBoolean();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "recomendacoes-reconstrucao");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    public void iniciar() {
+        modelo = ModeloCoocorrencia.vazio(maxCesta);
+    }
+
+    /**
+     * A primeira reconstrução roda em segundo plano depois que a aplicação está no ar
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void agendarPrimeiraReconstrucao() {
+        executor.execute(this::reconstruir);
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Busca os livros mais relacionados a um livro do Google Books
+     */
+    public List<RecomendacaoDTO> buscarRelacionados(String googleBooksId, int limite) {
+        if (limite < 1 || limite > limiteMaximo) {
+            throw new IllegalArgumentException("limite deve estar entre 1 e " + limiteMaximo);
+        }
+        return modelo.similares(googleBooksId, limite);
+    }
+
+    /**
+     * Aplica cada favorito adicionado/removido ao modelo (após o commit); se eventos de outras
+     * instâncias se perderam, reconstrói o modelo
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFavoritoAlterado(FavoritoAlteradoEvent event) {
+        if (event.getGoogleBooksId() == null) {
+            executor.execute(this::reconstruir);
+            return;
+        }
+        synchronized (trava) {
+            aplicar(modelo, event);
+            if (pendentes != null) {
+                pendentes.add(event);
+            }
+        }
+    }
+
+    private void aplicar(ModeloCoocorrencia alvo, FavoritoAlteradoEvent event) {
+        if (event.isAdicionado()) {
+            alvo.adicionar(event.getDeviceId(), event.getGoogleBooksId());
+        } else {
+            alvo.remover(event.getDeviceId(), event.getGoogleBooksId());
+        }
+    }
+
+    /**
+     * Reconstrói o modelo a partir de uma varredura em streaming das tabelas de favoritos de cada shard
+     */
+    @Scheduled(cron = "${livraria.recomendacoes.cron-reconstrucao:0 0 4 * * *}")
+    public void reconstruir() {
+        if (!reconstruindo.compareAndSet(false, true)) {
+            return;
+        }
+        synchronized (trava) {
+            pendentes = new ArrayList<>();
+        }
+        try {
+            long inicio = System.nanoTime();
+            ModeloCoocorrencia.Construtor construtor = new ModeloCoocorrencia.Construtor(maxCesta);
+            // Um shard por vez: o construtor não é thread-safe e cada varredura já é limitada pelo banco
+            for (int shard = 0; shard < shardExecutor.total(); shard++) {
+                shardExecutor.noShard(shard, true, () -> {
+                    try (Stream<Object[]> pares = favoritoRepository.streamDeviceIdEGoogleBooksId()) {
+                        pares.forEach(par -> construtor.adicionar((String) par[0], (String) par[1]));
+                    }
+                    try (Stream<Object[]> pares = livroRepository.streamFavoritosDeviceIdEGoogleBooksId()) {
+                        pares.forEach(par -> construtor.adicionar((String) par[0], (String) par[1]));
+                    }
+                    return null;
+                });
+            }
+            ModeloCoocorrencia novo = construtor.construir(ForkJoinPool.commonPool());
+
+            synchronized (trava) {
+                // Reaplicar é seguro: adicionar/remover no modelo são idempotentes
+                pendentes.forEach(event -> aplicar(novo, event));
+                modelo = novo;
+            }
+            log.info("Modelo de recomendações reconstruído em {} ms: {} livros, {} dispositivos, ~{} KB",
+                    (System.nanoTime() - inicio) / 1_000_000, novo.quantidadeLivros(),
+                    novo.quantidadeDispositivos(), novo.estimarBytes() / 1024);
+        } catch (RuntimeException e) {
+            log.warn("Falha ao reconstruir o modelo de recomendações; mantendo o modelo atual", e);
+        } finally {
+            synchronized (trava) {
+                pendentes = null;
+            }
+            reconstruindo.set(false);
+        }
+    }
+}
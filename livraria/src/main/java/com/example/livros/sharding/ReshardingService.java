@@ -0,0 +1,237 @@
+package com.example.livros.sharding;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.livros.events.LivroAlteradoEvent;
+
+/**
+ * Resharding online: move, dispositivo a dispositivo, as linhas que ficaram no shard antigo
+ * depois de uma mudança na quantidade de shards.
+ *
+ * Procedimento: acrescentar os novos shards em livraria.sharding.shards, definir
+ * livraria.sharding.total-anterior com a quantidade antiga e livraria.sharding.migrar-ao-iniciar=true.
+ * Enquanto a migração roda, escritas vão para o shard novo e leituras consultam os dois; ao final,
+ * remova total-anterior. As linhas ganham um ID novo no destino, e a chave do dispositivo
+ * (tb_dispositivos), que é por shard, é traduzida para a do shard de destino na cópia.
+ *
+ * Cada movimentação é idempotente: se o processo cair entre a cópia e a remoção na origem, a próxima
+ * execução reconhece pela chave natural as linhas que já estão no destino e termina a remoção. Uma
+ * linha só é removida da origem depois de confirmada no destino.
+ */
+@Service
+public class ReshardingService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReshardingService.class);
+
+    // Tabelas com linhas por dispositivo; as linhas de catálogo (dispositivo_id nulo) ficam no shard 0
+    private static final List<String> TABELAS = List.of("favoritos", "tb_livros");
+
+    // Como reconhecer no destino uma linha já copiada. Em tb_livros o mesmo livro pode voltar a ser
+    // favoritado (linha nova), então a data de criação entra na chave
+    private static final Map<String, List<String>> CHAVES_NATURAIS = Map.of(
+            "favoritos", List.of("dispositivo_id", "google_books_id"),
+            "tb_livros", List.of("dispositivo_id", "google_books_id", "data_criacao"));
+
+    @Autowired
+    private ShardRouter router;
+
+    @Autowired
+    private ShardingProperties properties;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrarSeConfigurado() {
+        if (properties.isMigrarAoIniciar() && router.emMigracao()) {
+            Thread thread = new Thread(this::migrar, "resharding");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Percorre todos os shards e move as linhas de dispositivos cujo dono mudou.
+     *
+     * @return quantidade de linhas movidas
+     */
+    public long migrar() {
+        long inicio = System.currentTimeMillis();
+        long movidas = 0;
+        for (int shard = 0; shard < router.total(); shard++) {
+            movidas += migrarShard(shard);
+        }
+        log.info("Resharding concluído: {} linhas movidas em {} ms", movidas, System.currentTimeMillis() - inicio);
+        return movidas;
+    }
+
+    private long migrarShard(int origem) {
+        JdbcTemplate jdbc = new JdbcTemplate(router.dataSource(origem));
+        long movidas = 0;
+        long ultimo = 0;
+        while (true) {
+            // Percorre o registro de dispositivos do shard em ordem de chave, em lotes pequenos,
+            // para não segurar locks longos
+            List<Map<String, Object>> dispositivos = jdbc.queryForList(
+                    "SELECT id, device_id FROM tb_dispositivos WHERE id > ? ORDER BY id LIMIT ?",
+                    ultimo, properties.getLoteMigracao());
+            if (dispositivos.isEmpty()) {
+                return movidas;
+            }
+            for (Map<String, Object> dispositivo : dispositivos) {
+                String deviceId = (String) dispositivo.get("device_id");
+                int destino = router.shardDoDevice(deviceId);
+                if (destino == origem) {
+                    continue;
+                }
+                for (String tabela : TABELAS) {
+                    try {
+                        movidas += moverDevice(tabela, deviceId, origem, destino);
+                    } catch (RuntimeException e) {
+                        log.warn("Falha ao mover {} do dispositivo {} do shard {} para o {}",
+                                tabela, deviceId, origem, destino, e);
+                    }
+                }
+            }
+            ultimo = ((Number) dispositivos.get(dispositivos.size() - 1).get("id")).longValue();
+            pausar();
+        }
+    }
+
+    int moverDevice(String tabela, String deviceId, int origem, int destino) {
+        JdbcTemplate jdbcOrigem = new JdbcTemplate(router.dataSource(origem));
+        JdbcTemplate jdbcDestino = new JdbcTemplate(router.dataSource(destino));
+        List<Long> chavesOrigem = jdbcOrigem.queryForList(
+                "SELECT id FROM tb_dispositivos WHERE device_id = ?", Long.class, deviceId);
+        if (chavesOrigem.isEmpty()) {
+            return 0;
+        }
+
+        // As linhas ficam travadas na origem (FOR UPDATE) até a cópia ser confirmada no destino e a remoção
+        // acontecer na mesma transação, então nenhuma escrita no shard antigo se perde entre as duas etapas.
+        // A linha do registro na origem fica: registros nunca mudam nem somem, o que deixa o cache seguro
+        List<Long> movidas = new TransactionTemplate(new DataSourceTransactionManager(router.dataSource(origem))).execute(origemStatus -> {
+            List<Map<String, Object>> linhas = jdbcOrigem.queryForList(
+                    "SELECT * FROM " + tabela + " WHERE dispositivo_id = ? FOR UPDATE", chavesOrigem.get(0));
+            if (linhas.isEmpty()) {
+                return List.<Long>of();
+            }
+            // Fora da transação de cópia: em autocommit, a releitura depois de uma chave duplicada
+            // enxerga o registro que a aplicação acabou de confirmar
+            long chaveDestino = chaveNoShard(jdbcDestino, deviceId);
+            List<Long> confirmadas = new ArrayList<>();
+            new TransactionTemplate(new DataSourceTransactionManager(router.dataSource(destino))).executeWithoutResult(status -> {
+                for (Map<String, Object> linha : linhas) {
+                    if (copiar(jdbcDestino, tabela, linha, chaveDestino)) {
+                        confirmadas.add(((Number) linha.get("id")).longValue());
+                    } else {
+                        log.warn("Linha {} de {} do dispositivo {} não pôde ser confirmada no shard {}; fica no shard {}",
+                                linha.get("id"), tabela, deviceId, destino, origem);
+                    }
+                }
+            });
+            // Só o que está confirmado no destino sai da origem
+            for (Long id : confirmadas) {
+                jdbcOrigem.update("DELETE FROM " + tabela + " WHERE id = ?", id);
+            }
+            return confirmadas;
+        });
+        if (movidas == null) {
+            return 0;
+        }
+        if ("tb_livros".equals(tabela)) {
+            // O livro ganhou outro ID no destino: o antigo não pode continuar nos caches por ID
+            movidas.forEach(id -> eventPublisher.publishEvent(new LivroAlteradoEvent(id)));
+        }
+        return movidas.size();
+    }
+
+    /**
+     * Copia a linha para o destino, que gera um ID próprio (o da origem pode já existir lá: linhas antigas
+     * do shard 0 têm IDs densos, de antes do auto_increment_offset). A linha é reconhecida no destino pela
+     * chave natural, então uma execução interrompida que já copiou a linha não a duplica.
+     *
+     * @return true se a linha está no destino
+     */
+    private static boolean copiar(JdbcTemplate jdbcDestino, String tabela, Map<String, Object> linha, long chaveDestino) {
+        Map<String, Object> copia = new LinkedHashMap<>(linha);
+        copia.remove("id");
+        copia.put("dispositivo_id", chaveDestino);
+        if (existeNoDestino(jdbcDestino, tabela, copia)) {
+            return true;
+        }
+        StringJoiner colunas = new StringJoiner(", ");
+        StringJoiner marcadores = new StringJoiner(", ");
+        copia.keySet().forEach(coluna -> {
+            colunas.add(coluna);
+            marcadores.add("?");
+        });
+        try {
+            return jdbcDestino.update("INSERT INTO " + tabela + " (" + colunas + ") VALUES (" + marcadores + ")",
+                    copia.values().toArray()) == 1;
+        } catch (DuplicateKeyException e) {
+            // favoritos tem chave única (dispositivo_id, google_books_id): a aplicação gravou o mesmo
+            // favorito no destino ao mesmo tempo, então ele já está lá
+            return true;
+        }
+    }
+
+    private static boolean existeNoDestino(JdbcTemplate jdbcDestino, String tabela, Map<String, Object> copia) {
+        StringJoiner condicoes = new StringJoiner(" AND ");
+        List<Object> valores = new ArrayList<>();
+        for (String coluna : CHAVES_NATURAIS.get(tabela)) {
+            Object valor = copia.get(coluna);
+            if (valor == null) {
+                condicoes.add(coluna + " IS NULL");
+            } else {
+                condicoes.add(coluna + " = ?");
+                valores.add(valor);
+            }
+        }
+        Integer encontradas = jdbcDestino.queryForObject(
+                "SELECT COUNT(*) FROM " + tabela + " WHERE " + condicoes, Integer.class, valores.toArray());
+        return encontradas != null && encontradas > 0;
+    }
+
+    /**
+     * Chave do dispositivo no registro do shard, registrando-o se preciso
+     */
+    private static long chaveNoShard(JdbcTemplate jdbc, String deviceId) {
+        List<Long> existente = jdbc.queryForList("SELECT id FROM tb_dispositivos WHERE device_id = ?", Long.class, deviceId);
+        if (!existente.isEmpty()) {
+            return existente.get(0);
+        }
+        try {
+            jdbc.update("INSERT INTO tb_dispositivos (device_id, data_criacao) VALUES (?, ?)", deviceId, LocalDateTime.now());
+        } catch (DuplicateKeyException e) {
+            // A aplicação registrou o dispositivo neste shard ao mesmo tempo
+        }
+        return jdbc.queryForObject("SELECT id FROM tb_dispositivos WHERE device_id = ?", Long.class, deviceId);
+    }
+
+    private void pausar() {
+        try {
+            Thread.sleep(properties.getPausaMigracaoMs());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Resharding interrompido", e);
+        }
+    }
+}
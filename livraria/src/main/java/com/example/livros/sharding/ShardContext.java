@@ -0,0 +1,24 @@
+package com.example.livros.sharding;
+
+/**
+ * Shard escolhido para a thread atual; lido pelo ShardRoutingDataSource ao abrir uma conexão
+ */
+public final class ShardContext {
+
+    private static final ThreadLocal<Integer> ATUAL = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    public static Integer atual() {
+        return ATUAL.get();
+    }
+
+    static void definir(Integer shard) {
+        if (shard == null) {
+            ATUAL.remove();
+        } else {
+            ATUAL.set(shard);
+        }
+    }
+}
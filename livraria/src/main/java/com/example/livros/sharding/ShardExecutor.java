@@ -0,0 +1,142 @@
+package com.example.livros.sharding;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Executa operações de repositório no shard certo.
+ *
+ * A conexão é escolhida quando a transação começa, por isso o shard precisa ser definido antes:
+ * os métodos daqui definem o ShardContext e só então abrem a transação.
+ */
+@Component
+public class ShardExecutor {
+
+    @Autowired
+    private ShardRouter router;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate leitura;
+    private TransactionTemplate escrita;
+    private ExecutorService pool;
+
+    @PostConstruct
+    public void iniciar() {
+        escrita = new TransactionTemplate(transactionManager);
+        leitura = new TransactionTemplate(transactionManager);
+        leitura.setReadOnly(true);
+        if (router.total() > 1) {
+            // Uma thread virtual por consulta: um pool fixo de N threads com fila sem limite serializava
+            // as requisições concorrentes; o limite real de paralelismo é o pool de conexões de cada shard
+            pool = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("shard-scatter-gather-", 0).factory());
+        }
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+
+    public int total() {
+        return router.total();
+    }
+
+    /**
+     * Executa a ação em uma transação no shard dono do deviceId
+     */
+    public <T> T doDevice(String deviceId, boolean somenteLeitura, Supplier<T> acao) {
+        return noShard(router.shardDoDevice(deviceId), somenteLeitura, acao);
+    }
+
+    /**
+     * Durante uma mudança de topologia, executa a ação no shard antigo do deviceId;
+     * fora dela, ou se o shard não mudou, devolve o valor padrão sem consultar nada
+     */
+    public <T> T noShardAnterior(String deviceId, Supplier<T> acao, T padrao) {
+        return noShardAnterior(deviceId, true, acao, padrao);
+    }
+
+    public <T> T noShardAnterior(String deviceId, boolean somenteLeitura, Supplier<T> acao, T padrao) {
+        Integer anterior = router.shardAnterior(deviceId);
+        return anterior == null ? padrao : noShard(anterior, somenteLeitura, acao);
+    }
+
+    public <T> T noShard(int shard, boolean somenteLeitura, Supplier<T> acao) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            Integer atual = ShardContext.atual();
+            int efetivo = atual == null ? 0 : atual;
+            if (efetivo != shard) {
+                throw new IllegalStateException(
+                        "Transação aberta no shard " + efetivo + ", mas a operação pertence ao shard " + shard);
+            }
+            return acao.get();
+        }
+        Integer anterior = ShardContext.atual();
+        ShardContext.definir(shard);
+        try {
+            return (somenteLeitura ? leitura : escrita).execute(status -> acao.get());
+        } finally {
+            ShardContext.definir(anterior);
+        }
+    }
+
+    /**
+     * Scatter/gather: executa a consulta em todos os shards em paralelo e concatena os resultados
+     * (shard 0 primeiro)
+     */
+    public <T> List<T> emTodos(boolean somenteLeitura, IntFunction<List<T>> consulta) {
+        if (pool == null) {
+            return noShard(0, somenteLeitura, () -> consulta.apply(0));
+        }
+        List<CompletableFuture<List<T>>> parciais = new ArrayList<>(router.total());
+        for (int i = 0; i < router.total(); i++) {
+            int shard = i;
+            parciais.add(CompletableFuture.supplyAsync(
+                    () -> noShard(shard, somenteLeitura, () -> consulta.apply(shard)), pool));
+        }
+        List<T> resultado = new ArrayList<>();
+        try {
+            for (CompletableFuture<List<T>> parcial : parciais) {
+                resultado.addAll(parcial.join());
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw e;
+        }
+        return resultado;
+    }
+
+    /**
+     * Busca por ID em todos os shards. Os IDs são únicos entre shards (ver ShardingConfig); se ainda assim
+     * o ID aparecer em mais de um, a busca é ambígua e é recusada em vez de devolver a linha de um shard qualquer
+     */
+    public <T> Optional<T> porIdEmTodos(Object id, IntFunction<List<T>> consulta) {
+        List<T> encontrados = emTodos(true, consulta);
+        if (encontrados.size() > 1) {
+            throw new IllegalStateException("O ID " + id + " existe em " + encontrados.size() + " shards");
+        }
+        return encontrados.stream().findFirst();
+    }
+}
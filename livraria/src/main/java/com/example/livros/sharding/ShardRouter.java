@@ -0,0 +1,68 @@
+package com.example.livros.sharding;
+
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Conhece os datasources de cada shard e decide o shard dono de um deviceId.
+ *
+ * O shard é um hash do deviceId módulo a quantidade de shards; a função de hash não pode mudar
+ * sem uma migração completa, pois define onde as linhas já gravadas estão.
+ */
+public class ShardRouter implements AutoCloseable {
+
+    private final List<DataSource> dataSources;
+    private final Integer totalAnterior;
+
+    public ShardRouter(List<DataSource> dataSources, Integer totalAnterior) {
+        this.dataSources = List.copyOf(dataSources);
+        this.totalAnterior = totalAnterior;
+    }
+
+    public int total() {
+        return dataSources.size();
+    }
+
+    public DataSource dataSource(int shard) {
+        return dataSources.get(shard);
+    }
+
+    public int shardDoDevice(String deviceId) {
+        return shard(deviceId, total());
+    }
+
+    /**
+     * Shard que era dono do deviceId antes da última mudança de topologia, se for diferente do atual
+     */
+    public Integer shardAnterior(String deviceId) {
+        if (totalAnterior == null || totalAnterior == total()) {
+            return null;
+        }
+        int anterior = shard(deviceId, totalAnterior);
+        return anterior == shardDoDevice(deviceId) ? null : anterior;
+    }
+
+    public boolean emMigracao() {
+        return totalAnterior != null && totalAnterior != total();
+    }
+
+    static int shard(String deviceId, int total) {
+        int h = deviceId.hashCode();
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        return Math.floorMod(h, total);
+    }
+
+    @Override
+    public void close() {
+        for (DataSource dataSource : dataSources) {
+            if (dataSource instanceof HikariDataSource hikari) {
+                hikari.close();
+            }
+        }
+    }
+}
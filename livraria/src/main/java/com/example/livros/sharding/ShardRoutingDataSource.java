@@ -0,0 +1,27 @@
+package com.example.livros.sharding;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/**
+ * DataSource único exposto ao JPA; cada conexão vem do shard definido em ShardContext
+ * (ou do shard 0, onde fica o catálogo, quando nenhum foi definido)
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+
+    public ShardRoutingDataSource(ShardRouter router) {
+        Map<Object, Object> alvos = new HashMap<>();
+        for (int i = 0; i < router.total(); i++) {
+            alvos.put(i, router.dataSource(i));
+        }
+        setTargetDataSources(alvos);
+        setDefaultTargetDataSource(router.dataSource(0));
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return ShardContext.atual();
+    }
+}
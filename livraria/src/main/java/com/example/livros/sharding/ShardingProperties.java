@@ -0,0 +1,120 @@
+package com.example.livros.sharding;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuração dos shards de favoritos (prefixo livraria.sharding).
+ *
+ * O shard 0 é sempre o datasource principal (spring.datasource.*), que também guarda o catálogo;
+ * a lista "shards" declara os shards adicionais 1..N.
+ */
+@ConfigurationProperties("livraria.sharding")
+public class ShardingProperties {
+
+    private List<Shard> shards = new ArrayList<>();
+
+    // Quantidade de shards antes da última mudança; enquanto definida, leituras também consultam o shard antigo
+    private Integer totalAnterior;
+
+    // Move, em segundo plano, as linhas que estão no shard antigo assim que a aplicação sobe
+    private boolean migrarAoIniciar;
+
+    private int loteMigracao = 200;
+
+    private long pausaMigracaoMs = 50;
+
+    // Passo dos auto_increment com mais de um shard (o shard i gera i+1, i+1+passo, ...); limita a quantidade
+    // de shards e não pode diminuir depois que houver linhas, pois o resharding preserva os IDs
+    private int passoIds = 16;
+
+    public List<Shard> getShards() {
+        return shards;
+    }
+
+    public void setShards(List<Shard> shards) {
+        this.shards = shards;
+    }
+
+    public Integer getTotalAnterior() {
+        return totalAnterior;
+    }
+
+    public void setTotalAnterior(Integer totalAnterior) {
+        this.totalAnterior = totalAnterior;
+    }
+
+    public boolean isMigrarAoIniciar() {
+        return migrarAoIniciar;
+    }
+
+    public void setMigrarAoIniciar(boolean migrarAoIniciar) {
+        this.migrarAoIniciar = migrarAoIniciar;
+    }
+
+    public int getLoteMigracao() {
+        return loteMigracao;
+    }
+
+    public void setLoteMigracao(int loteMigracao) {
+        this.loteMigracao = loteMigracao;
+    }
+
+    public long getPausaMigracaoMs() {
+        return pausaMigracaoMs;
+    }
+
+    public void setPausaMigracaoMs(long pausaMigracaoMs) {
+        this.pausaMigracaoMs = pausaMigracaoMs;
+    }
+
+    public int getPassoIds() {
+        return passoIds;
+    }
+
+    public void setPassoIds(int passoIds) {
+        this.passoIds = passoIds;
+    }
+
+    public static class Shard {
+
+        private String url;
+        private String username;
+        private String password;
+        private String driverClassName;
+
+        public String getUrl() {
+            return url;
+        }
+
+        public void setUrl(String url) {
+            this.url = url;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public void setUsername(String username) {
+            this.username = username;
+        }
+
+        public String getPassword() {
+            return password;
+        }
+
+        public void setPassword(String password) {
+            this.password = password;
+        }
+
+        public String getDriverClassName() {
+            return driverClassName;
+        }
+
+        public void setDriverClassName(String driverClassName) {
+            this.driverClassName = driverClassName;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+-- Um dispositivo favorita cada livro uma vez só: (dispositivo_id, google_books_id) passa a ser chave única.
+-- É o que permite ao resharding reconhecer no destino um favorito já copiado por uma execução interrompida,
+-- e impede que dois toques simultâneos gravem o mesmo favorito duas vezes. Duplicatas antigas são removidas
+-- antes (fica a mais antiga).
+
+DELETE FROM favoritos WHERE id NOT IN (
+    SELECT id FROM (
+        SELECT MIN(id) AS id FROM favoritos GROUP BY dispositivo_id, google_books_id
+    ) mantidos
+);
+
+DROP INDEX idx_favoritos_dispositivo_livro ON favoritos;
+CREATE UNIQUE INDEX uk_favoritos_dispositivo_livro ON favoritos (dispositivo_id, google_books_id);
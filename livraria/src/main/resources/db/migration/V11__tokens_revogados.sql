@@ -0,0 +1,12 @@
+-- Tokens de renovação revogados (uso único e logout). Ficam no banco, e não em um cache limitado em memória,
+-- para que nenhum volume de renovações faça um token revogado voltar a valer; também valem entre instâncias.
+-- Cada linha só é necessária até o token expirar (expira_em, em segundos Unix); as expiradas são apagadas
+-- periodicamente (livraria.auth.revogacao.limpeza-ms).
+
+CREATE TABLE IF NOT EXISTS tb_tokens_revogados (
+    jti VARCHAR(36) NOT NULL,
+    expira_em BIGINT NOT NULL,
+    PRIMARY KEY (jti)
+);
+
+CREATE INDEX idx_tokens_revogados_expiracao ON tb_tokens_revogados (expira_em);
@@ -0,0 +1,32 @@
+-- Esquema inicial, equivalente ao que o Hibernate gerava com ddl-auto=update.
+-- Bancos já existentes são marcados nesta versão (spring.flyway.baseline-on-migrate).
+
+CREATE TABLE IF NOT EXISTS tb_livros (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    titulo VARCHAR(1000) NOT NULL,
+    autor VARCHAR(1000),
+    genero VARCHAR(255),
+    capa VARCHAR(2000),
+    data_publicacao DATETIME(6),
+    descricao VARCHAR(5000),
+    device_id VARCHAR(500),
+    google_books_id VARCHAR(500),
+    imagem_url VARCHAR(2000),
+    data_publicacao_texto VARCHAR(255),
+    favorito BIT NOT NULL,
+    data_criacao DATETIME(6) NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS favoritos (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    device_id VARCHAR(500) NOT NULL,
+    google_books_id VARCHAR(500) NOT NULL,
+    titulo VARCHAR(1000) NOT NULL,
+    autor VARCHAR(1000),
+    imagem_url VARCHAR(2000),
+    descricao VARCHAR(5000),
+    data_publicacao VARCHAR(255),
+    data_criacao DATETIME(6) NOT NULL,
+    PRIMARY KEY (id)
+);
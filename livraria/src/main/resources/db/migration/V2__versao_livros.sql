@@ -0,0 +1,2 @@
+-- Coluna de versão para controle otimista de concorrência (@Version em Livro)
+ALTER TABLE tb_livros ADD COLUMN versao BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,7 @@
+-- Índices das consultas por dispositivo e por livro do Google Books, que até aqui percorriam a tabela inteira.
+-- Um índice composto (device_id, google_books_id) passaria do limite de 3072 bytes do InnoDB com utf8mb4;
+-- device_id sozinho já reduz a busca aos poucos favoritos de um dispositivo.
+
+CREATE INDEX idx_favoritos_device ON favoritos (device_id);
+CREATE INDEX idx_favoritos_livro ON favoritos (google_books_id);
+CREATE INDEX idx_livros_device ON tb_livros (device_id);
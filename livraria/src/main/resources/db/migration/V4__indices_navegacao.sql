@@ -0,0 +1,5 @@
+-- Índices da navegação por gênero e data de publicação (GET /livros/navegar), na mesma ordem da
+-- paginação por chave: data_publicacao DESC, id DESC.
+
+CREATE INDEX idx_livros_genero_data ON tb_livros (genero, data_publicacao, id);
+CREATE INDEX idx_livros_data ON tb_livros (data_publicacao, id);
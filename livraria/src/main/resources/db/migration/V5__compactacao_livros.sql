@@ -0,0 +1,19 @@
+-- Compactação das linhas de favoritos desmarcados em tb_livros (CompactacaoService).
+-- O índice (favorito, device_id) leva direto às linhas candidatas, sem percorrer o catálogo.
+
+CREATE INDEX idx_livros_favorito_device ON tb_livros (favorito, device_id);
+
+-- Destino opcional das linhas compactadas (livraria.compactacao.arquivar=true)
+CREATE TABLE IF NOT EXISTS tb_livros_arquivo (
+    id BIGINT NOT NULL,
+    titulo VARCHAR(1000) NOT NULL,
+    autor VARCHAR(1000),
+    device_id VARCHAR(500),
+    google_books_id VARCHAR(500),
+    imagem_url VARCHAR(2000),
+    descricao VARCHAR(5000),
+    data_publicacao_texto VARCHAR(255),
+    data_criacao DATETIME(6) NOT NULL,
+    data_arquivamento DATETIME(6) NOT NULL,
+    PRIMARY KEY (id)
+);
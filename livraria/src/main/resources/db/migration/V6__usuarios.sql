@@ -0,0 +1,10 @@
+-- Contas de usuário para o login com token (AuthController)
+
+CREATE TABLE IF NOT EXISTS tb_usuarios (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    email VARCHAR(255) NOT NULL,
+    senha_hash VARCHAR(100) NOT NULL,
+    data_criacao DATETIME(6) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_usuarios_email UNIQUE (email)
+);
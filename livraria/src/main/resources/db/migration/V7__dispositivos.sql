@@ -0,0 +1,48 @@
+-- Registro de dispositivos: cada deviceId externo (até 500 caracteres) ganha uma chave BIGINT, e as tabelas
+-- de favoritos passam a guardar só essa chave. Os índices por dispositivo encolhem de ~2 KB para 8 bytes por
+-- entrada, e (dispositivo_id, google_books_id) finalmente cabe em um índice composto.
+--
+-- Com sharding, esta migração roda em cada shard: o registro é por shard, junto dos favoritos do dispositivo.
+-- Em tabelas muito grandes, os UPDATEs abaixo reescrevem todas as linhas; ver HELP.md ("Chaves de dispositivo").
+
+CREATE TABLE IF NOT EXISTS tb_dispositivos (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    device_id VARCHAR(500) NOT NULL,
+    data_criacao DATETIME(6) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_dispositivos_device UNIQUE (device_id)
+);
+
+INSERT INTO tb_dispositivos (device_id, data_criacao)
+SELECT device_id, MIN(data_criacao) FROM (
+    SELECT device_id, data_criacao FROM favoritos
+    UNION ALL
+    SELECT device_id, data_criacao FROM tb_livros WHERE device_id IS NOT NULL
+    UNION ALL
+    SELECT device_id, data_criacao FROM tb_livros_arquivo WHERE device_id IS NOT NULL
+) existentes
+GROUP BY device_id;
+
+-- favoritos
+ALTER TABLE favoritos ADD COLUMN dispositivo_id BIGINT;
+UPDATE favoritos SET dispositivo_id = (SELECT d.id FROM tb_dispositivos d WHERE d.device_id = favoritos.device_id);
+ALTER TABLE favoritos MODIFY dispositivo_id BIGINT NOT NULL;
+DROP INDEX idx_favoritos_device ON favoritos;
+ALTER TABLE favoritos DROP COLUMN device_id;
+CREATE INDEX idx_favoritos_dispositivo_livro ON favoritos (dispositivo_id, google_books_id);
+
+-- tb_livros (linhas de catálogo continuam com dispositivo nulo)
+ALTER TABLE tb_livros ADD COLUMN dispositivo_id BIGINT;
+UPDATE tb_livros SET dispositivo_id = (SELECT d.id FROM tb_dispositivos d WHERE d.device_id = tb_livros.device_id)
+WHERE device_id IS NOT NULL;
+DROP INDEX idx_livros_device ON tb_livros;
+DROP INDEX idx_livros_favorito_device ON tb_livros;
+ALTER TABLE tb_livros DROP COLUMN device_id;
+CREATE INDEX idx_livros_dispositivo_livro ON tb_livros (dispositivo_id, google_books_id);
+CREATE INDEX idx_livros_favorito_dispositivo ON tb_livros (favorito, dispositivo_id);
+
+-- tb_livros_arquivo
+ALTER TABLE tb_livros_arquivo ADD COLUMN dispositivo_id BIGINT;
+UPDATE tb_livros_arquivo SET dispositivo_id = (SELECT d.id FROM tb_dispositivos d WHERE d.device_id = tb_livros_arquivo.device_id)
+WHERE device_id IS NOT NULL;
+ALTER TABLE tb_livros_arquivo DROP COLUMN device_id;
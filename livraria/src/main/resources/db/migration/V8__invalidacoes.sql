@@ -0,0 +1,16 @@
+-- Outbox do barramento de invalidação entre instâncias: cada escrita confirmada em livros ou favoritos
+-- vira uma linha curta, lida por todas as instâncias em ordem de id (a versão do evento).
+-- Linhas antigas são removidas periodicamente (livraria.invalidacao.retencao-minutos). Com sharding, só a
+-- tabela do shard 0 é usada.
+
+CREATE TABLE IF NOT EXISTS tb_invalidacoes (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    tipo VARCHAR(32) NOT NULL,
+    chave VARCHAR(500),
+    device_id VARCHAR(500),
+    origem VARCHAR(64) NOT NULL,
+    data_criacao DATETIME(6) NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE INDEX idx_invalidacoes_data ON tb_invalidacoes (data_criacao);
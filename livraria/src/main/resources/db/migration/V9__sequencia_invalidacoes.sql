@@ -0,0 +1,12 @@
+-- Versão densa do barramento de invalidação. O id auto-incremento de tb_invalidacoes não serve como versão:
+-- com vários shards as conexões do shard 0 geram IDs de passo-ids em passo-ids (ver ShardingConfig), e
+-- inserts desfeitos deixam buracos. Publicar incrementa esta linha e grava o valor como id na mesma
+-- transação: as versões ficam visíveis na ordem em que são confirmadas, sem buracos.
+
+CREATE TABLE IF NOT EXISTS tb_invalidacoes_sequencia (
+    id INT NOT NULL,
+    valor BIGINT NOT NULL,
+    PRIMARY KEY (id)
+);
+
+INSERT INTO tb_invalidacoes_sequencia (id, valor) SELECT 1, COALESCE(MAX(id), 0) FROM tb_invalidacoes;
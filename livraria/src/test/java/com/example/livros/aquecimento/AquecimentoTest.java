@@ -0,0 +1,49 @@
+package com.example.livros.aquecimento;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * O aquecimento fica preso pelas iterações (muito mais do que cabem no tempo máximo) até o prazo de
+ * 15 s, o que dá uma janela garantida para ver a instância fora de serviço antes de terminar
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "livraria.aquecimento.iteracoes=1000000",
+        "livraria.aquecimento.tempo-maximo-segundos=15"
+})
+class AquecimentoTest {
+
+    @Autowired
+    private AquecimentoService aquecimentoService;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Test
+    void readinessSoFicaProntoDepoisDoAquecimento() {
+        assertThat(aquecimentoService.isConcluido()).isFalse();
+        ResponseEntity<String> antes = restTemplate.getForEntity("/actuator/health/readiness", String.class);
+        assertThat(antes.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(antes.getBody()).contains("OUT_OF_SERVICE");
+        // A liveness não depende do aquecimento
+        assertThat(restTemplate.getForEntity("/actuator/health/liveness", String.class).getStatusCode())
+                .isEqualTo(HttpStatus.OK);
+
+        await().atMost(Duration.ofSeconds(60)).until(aquecimentoService::isConcluido);
+
+        assertThat(aquecimentoService.getRequisicoes()).isGreaterThan(5 * 9);
+        assertThat(restTemplate.getForEntity("/actuator/health/readiness", String.class).getStatusCode())
+                .isEqualTo(HttpStatus.OK);
+        assertThat(restTemplate.getForEntity("/actuator/health/liveness", String.class).getStatusCode())
+                .isEqualTo(HttpStatus.OK);
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.livros.atividade;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LogAtividadeTest {
+
+    private static final int SEGMENTO = 8 * 1024;
+
+    @TempDir
+    Path diretorio;
+
+    @Test
+    void rolaSegmentosReproduzEmOrdemERetomaAposReabrir() throws IOException {
+        try (LogAtividade log = new LogAtividade(diretorio, SEGMENTO, 100, Duration.ofDays(1))) {
+            for (int i = 0; i < 1000; i++) {
+                log.anexar(new EventoAtividade(i, TipoAtividade.BUSCA, "dispositivo-" + (i % 7), "termo " + i));
+            }
+            assertThat(log.getSegmentoAtual()).isGreaterThan(1);
+        }
+        try (LogAtividade log = new LogAtividade(diretorio, SEGMENTO, 100, Duration.ofDays(1))) {
+            log.anexar(new EventoAtividade(1000, TipoAtividade.VISUALIZACAO, null, "42"));
+        }
+
+        List<EventoAtividade> eventos = reproduzir(0);
+        assertThat(eventos).hasSize(1001);
+        for (int i = 0; i < 1000; i++) {
+            assertThat(eventos.get(i).getTimestamp()).isEqualTo(i);
+            assertThat(eventos.get(i).getValor()).isEqualTo("termo " + i);
+        }
+        assertThat(eventos.get(1000).getDeviceId()).isNull();
+        assertThat(eventos.get(1000).getTipo()).isEqualTo(TipoAtividade.VISUALIZACAO);
+        assertThat(reproduzir(990)).hasSize(11);
+    }
+
+    @Test
+    void ignoraRegistroCorrompidoEAplicaRetencao() throws IOException {
+        try (LogAtividade log = new LogAtividade(diretorio, SEGMENTO, 2, Duration.ofDays(1))) {
+            for (int i = 0; i < 1000; i++) {
+                log.anexar(new EventoAtividade(i, TipoAtividade.FAVORITO_ADICIONADO, "d", "livro-" + i));
+            }
+            log.aplicarRetencao();
+            assertThat(LogAtividade.segmentos(diretorio)).hasSize(2);
+        }
+
+        // Simula uma escrita interrompida: o CRC do último registro deixa de conferir
+        List<Path> segmentos = LogAtividade.segmentos(diretorio);
+        List<EventoAtividade> antes = reproduzir(0);
+        try (RandomAccessFile arquivo = new RandomAccessFile(segmentos.get(1).toFile(), "rw")) {
+            int posicao = 0;
+            int ultimo = 0;
+            while (true) {
+                arquivo.seek(posicao);
+                int tamanho = arquivo.readInt();
+                if (tamanho == 0) {
+                    break;
+                }
+                ultimo = posicao;
+                posicao += Segmento.CABECALHO_REGISTRO + tamanho;
+            }
+            arquivo.seek(ultimo + 4);
+            arquivo.writeInt(0xBAD);
+        }
+        assertThat(reproduzir(0)).hasSize(antes.size() - 1);
+    }
+
+    @Test
+    void anelCheioRecusaSemBloquear() {
+        AnelMpsc<Integer> anel = new AnelMpsc<>(5);
+        assertThat(anel.capacidade()).isEqualTo(8);
+        for (int i = 0; i < 8; i++) {
+            assertThat(anel.offer(i)).isTrue();
+        }
+        assertThat(anel.offer(8)).isFalse();
+        assertThat(anel.poll()).isZero();
+        assertThat(anel.offer(8)).isTrue();
+
+        List<Integer> drenados = new ArrayList<>();
+        assertThat(anel.drenar(drenados::add, 100)).isEqualTo(8);
+        assertThat(drenados).containsExactly(1, 2, 3, 4, 5, 6, 7, 8);
+        assertThat(anel.vazio()).isTrue();
+    }
+
+    @Test
+    void truncaTextoLongoSemCortarCaractereMultibyte() throws IOException {
+        // "é" ocupa 2 bytes: com um byte de deslocamento, o limite cairia no meio de um caractere
+        String termo = "a" + "é".repeat(EventoAtividade.MAXIMO_BYTES_TEXTO);
+        try (LogAtividade log = new LogAtividade(diretorio, SEGMENTO, 100, Duration.ofDays(1))) {
+            log.anexar(new EventoAtividade(1, TipoAtividade.BUSCA, "d", termo));
+        }
+        String gravado = reproduzir(0).get(0).getValor();
+        assertThat(gravado).doesNotContain("\uFFFD");
+        assertThat(termo).startsWith(gravado);
+        assertThat(gravado).hasSize(1 + (EventoAtividade.MAXIMO_BYTES_TEXTO - 1) / 2);
+    }
+
+    private List<EventoAtividade> reproduzir(long desde) throws IOException {
+        List<EventoAtividade> eventos = new ArrayList<>();
+        LogAtividade.reproduzir(diretorio, desde, eventos::add);
+        return eventos;
+    }
+}
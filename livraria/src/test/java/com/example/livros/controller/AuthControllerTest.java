@@ -0,0 +1,186 @@
+package com.example.livros.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.example.livros.dto.TokensDTO;
+import com.example.livros.seguranca.TokenService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+// Limite de revogações em memória bem baixo: as de tokens de renovação não podem depender dele
+@SpringBootTest(properties = "livraria.auth.revogacao.tamanho-maximo=2")
+@AutoConfigureMockMvc
+class AuthControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TokenService tokenService;
+
+    private String credenciais;
+
+    @BeforeEach
+    void novoUsuario() throws Exception {
+        credenciais = "{\"email\":\"usuario-" + UUID.randomUUID() + "@livraria.test\",\"senha\":\"senha-segura\"}";
+        mockMvc.perform(post("/auth/registrar").contentType(MediaType.APPLICATION_JSON).content(credenciais))
+                .andExpect(status().isCreated());
+    }
+
+    @Test
+    void registroDuplicadoESenhaCurtaSaoRecusados() throws Exception {
+        mockMvc.perform(post("/auth/registrar").contentType(MediaType.APPLICATION_JSON).content(credenciais))
+                .andExpect(status().isConflict());
+        mockMvc.perform(post("/auth/registrar").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"curta@livraria.test\",\"senha\":\"123\"}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void loginComSenhaErradaOuEmailDesconhecidoDevolve401() throws Exception {
+        mockMvc.perform(post("/auth/login").contentType(MediaType.APPLICATION_JSON)
+                        .content(credenciais.replace("senha-segura", "senha-errada")))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(post("/auth/login").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"ninguem@livraria.test\",\"senha\":\"senha-segura\"}"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void tokenDeAcessoAutentica() throws Exception {
+        TokensDTO tokens = login();
+        mockMvc.perform(get("/auth/eu").header("Authorization", "Bearer " + tokens.getTokenAcesso()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.email").value(objectMapper.readTree(credenciais).get("email").asText()));
+        mockMvc.perform(get("/auth/eu")).andExpect(status().isUnauthorized());
+        // O token de renovação não serve como token de acesso
+        mockMvc.perform(get("/auth/eu").header("Authorization", "Bearer " + tokens.getTokenRenovacao()))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void tokenAdulteradoDevolve401MesmoEmRotaPublica() throws Exception {
+        String token = login().getTokenAcesso();
+        String adulterado = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+        mockMvc.perform(get("/auth/eu").header("Authorization", "Bearer " + adulterado))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/livros/busca").header("Authorization", "Bearer " + adulterado))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void renovacaoEDeUsoUnico() throws Exception {
+        TokensDTO tokens = login();
+        String corpo = "{\"tokenRenovacao\":\"" + tokens.getTokenRenovacao() + "\"}";
+        String resposta = mockMvc.perform(post("/auth/renovar").contentType(MediaType.APPLICATION_JSON).content(corpo))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        TokensDTO novos = objectMapper.readValue(resposta, TokensDTO.class);
+        assertThat(novos.getTokenRenovacao()).isNotEqualTo(tokens.getTokenRenovacao());
+
+        mockMvc.perform(post("/auth/renovar").contentType(MediaType.APPLICATION_JSON).content(corpo))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/auth/eu").header("Authorization", "Bearer " + novos.getTokenAcesso()))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void renovacoesSimultaneasComOMesmoTokenEmitemUmUnicoPar() throws Exception {
+        TokensDTO tokens = login();
+        String corpo = "{\"tokenRenovacao\":\"" + tokens.getTokenRenovacao() + "\"}";
+        Callable<Integer> renovar = () -> mockMvc.perform(post("/auth/renovar")
+                .contentType(MediaType.APPLICATION_JSON).content(corpo)).andReturn().getResponse().getStatus();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> respostas = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                respostas.add(pool.submit(renovar));
+            }
+            List<Integer> status = new ArrayList<>();
+            for (Future<Integer> resposta : respostas) {
+                status.add(resposta.get());
+            }
+            assertThat(status).containsOnly(200, 401);
+            assertThat(status).filteredOn(codigo -> codigo == 200).hasSize(1);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void tokenDeRenovacaoUsadoNaoVoltaAValerDepoisDeMuitasRenovacoes() throws Exception {
+        TokensDTO tokens = login();
+        String corpo = "{\"tokenRenovacao\":\"" + tokens.getTokenRenovacao() + "\"}";
+        String atual = mockMvc.perform(post("/auth/renovar").contentType(MediaType.APPLICATION_JSON).content(corpo))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        for (int i = 0; i < 5; i++) {
+            String renovacao = objectMapper.readValue(atual, TokensDTO.class).getTokenRenovacao();
+            atual = mockMvc.perform(post("/auth/renovar").contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"tokenRenovacao\":\"" + renovacao + "\"}"))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+        }
+
+        mockMvc.perform(post("/auth/renovar").contentType(MediaType.APPLICATION_JSON).content(corpo))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void limpezaApagaSoRevogacoesExpiradas() {
+        long agora = Instant.now().getEpochSecond();
+        String expirado = UUID.randomUUID().toString();
+        String ativo = UUID.randomUUID().toString();
+        assertThat(tokenService.revogarSeAtivo(expirado, agora - 1)).isTrue();
+        assertThat(tokenService.revogarSeAtivo(ativo, agora + 3600)).isTrue();
+
+        assertThat(tokenService.limparRevogacoesExpiradas()).isPositive();
+        assertThat(tokenService.revogarSeAtivo(expirado, agora + 3600)).isTrue();
+        assertThat(tokenService.revogarSeAtivo(ativo, agora + 3600)).isFalse();
+    }
+
+    @Test
+    void logoutRevogaOsTokens() throws Exception {
+        TokensDTO tokens = login();
+        mockMvc.perform(post("/auth/logout").header("Authorization", "Bearer " + tokens.getTokenAcesso())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"tokenRenovacao\":\"" + tokens.getTokenRenovacao() + "\"}"))
+                .andExpect(status().isNoContent());
+
+        mockMvc.perform(get("/auth/eu").header("Authorization", "Bearer " + tokens.getTokenAcesso()))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(post("/auth/renovar").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"tokenRenovacao\":\"" + tokens.getTokenRenovacao() + "\"}"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    private TokensDTO login() throws Exception {
+        String resposta = mockMvc.perform(post("/auth/login").contentType(MediaType.APPLICATION_JSON).content(credenciais))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(resposta, TokensDTO.class);
+    }
+}
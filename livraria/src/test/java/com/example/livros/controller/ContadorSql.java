@@ -0,0 +1,68 @@
+package com.example.livros.controller;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+
+/**
+ * Guarda os comandos SQL executados pela thread que chamou iniciar(), até parar().
+ * Comandos de outras threads (reconstrução de caches, ranking etc.) não entram na conta.
+ */
+class ContadorSql implements QueryExecutionListener {
+
+    private final ThreadLocal<List<Comando>> capturados = new ThreadLocal<>();
+
+    void iniciar() {
+        capturados.set(new ArrayList<>());
+    }
+
+    List<Comando> parar() {
+        List<Comando> comandos = capturados.get();
+        capturados.remove();
+        return comandos;
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        List<Comando> comandos = capturados.get();
+        if (comandos == null) {
+            return;
+        }
+        for (QueryInfo query : queryInfoList) {
+            List<Object> parametros = new ArrayList<>();
+            if (!query.getParametersList().isEmpty()) {
+                for (ParameterSetOperation operacao : query.getParametersList().get(0)) {
+                    Object[] argumentos = operacao.getArgs();
+                    int indice = (Integer) argumentos[0];
+                    while (parametros.size() < indice) {
+                        parametros.add(null);
+                    }
+                    // setNull(indice, tipo) não tem valor; os demais setXxx(indice, valor) têm
+                    boolean nulo = "setNull".equals(operacao.getMethod().getName());
+                    parametros.set(indice - 1, nulo ? null : argumentos[1]);
+                }
+            }
+            comandos.add(new Comando(query.getQuery(), parametros));
+        }
+    }
+
+    record Comando(String sql, List<Object> parametros) {
+
+        boolean consulta() {
+            return sql.stripLeading().regionMatches(true, 0, "select", 0, 6);
+        }
+
+        @Override
+        public String toString() {
+            return sql + " " + parametros;
+        }
+    }
+}
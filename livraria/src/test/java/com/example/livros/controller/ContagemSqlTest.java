@@ -0,0 +1,345 @@
+package com.example.livros.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultMatcher;
+
+import com.example.livros.controller.ContadorSql.Comando;
+import com.example.livros.service.CatalogoCacheService;
+import com.example.livros.sharding.ShardRouter;
+
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+
+/**
+ * Quantidade exata de comandos SQL por endpoint, contra o H2. Uma consulta a mais (N+1, um
+ * SELECT extra antes de um INSERT...) ou uma varredura completa de tabela fazem o teste falhar.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class ContagemSqlTest {
+
+    private static final ContadorSql CONTADOR = new ContadorSql();
+
+    @TestConfiguration
+    static class ProxyDataSourceConfig {
+
+        @Bean
+        static BeanPostProcessor proxyDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (bean instanceof DataSource dataSource && "dataSource".equals(beanName)) {
+                        return ProxyDataSourceBuilder.create(dataSource).name("contagem").listener(CONTADOR).build();
+                    }
+                    return bean;
+                }
+            };
+        }
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CatalogoCacheService catalogoCacheService;
+
+    @Autowired
+    private ShardRouter router;
+
+    private String deviceId;
+
+    @BeforeEach
+    void novoDispositivo() {
+        deviceId = "contagem-" + UUID.randomUUID();
+    }
+
+    // ========== LivroController ==========
+
+    @Test
+    void criarLivro() throws Exception {
+        assertSql(post("/livros").contentType(MediaType.APPLICATION_JSON).content("{\"titulo\":\"Novo\"}"),
+                status().isOk(), 1);
+    }
+
+    @Test
+    void listarLivrosServidoDoCache() throws Exception {
+        await().atMost(Duration.ofSeconds(10)).until(() -> catalogoCacheService.pagina(null) != null);
+        assertSql(get("/livros"), status().isOk(), 0);
+        assertSql(get("/livros").param("pagina", "0"), status().isOk(), 0);
+    }
+
+    @Test
+    void buscarLivroPorIdConsultaOBancoUmaVez() throws Exception {
+        Long id = criarLivroForaDoCache();
+        assertSql(get("/livros/{id}", id), status().isOk(), 1);
+        assertSql(get("/livros/{id}", id), status().isOk(), 0);
+    }
+
+    @Test
+    void buscarLivrosPorIdsUsaUmaUnicaConsulta() throws Exception {
+        Long a = criarLivroForaDoCache();
+        Long b = criarLivroForaDoCache();
+        assertSql(get("/livros").param("ids", a + "," + b + ",999999"), status().isOk(), 1);
+    }
+
+    @Test
+    void buscarRelacionadosNaoConsultaOBanco() throws Exception {
+        assertSql(get("/livros/{googleBooksId}/relacionados", "qualquer"), status().isOk(), 0);
+    }
+
+    @Test
+    void atualizarLivro() throws Exception {
+        Long id = criarLivroForaDoCache();
+        assertSql(put("/livros/{id}", id).contentType(MediaType.APPLICATION_JSON).content("{\"titulo\":\"Alterado\"}"),
+                status().isOk(), 2);
+    }
+
+    @Test
+    void atualizarParcialmenteUsaUmUnicoUpdate() throws Exception {
+        Long id = criarLivroForaDoCache();
+        assertSql(patch("/livros/{id}", id).header("If-Match", "\"0\"")
+                .contentType(MediaType.APPLICATION_JSON).content("{\"autor\":\"Outro\"}"), status().isNoContent(), 1);
+    }
+
+    @Test
+    void deletarLivro() throws Exception {
+        Long id = criarLivroForaDoCache();
+        assertSql(delete("/livros/{id}", id), status().isNoContent(), 2);
+    }
+
+    @Test
+    void favoritosDeLivro() throws Exception {
+        String favorito = "{\"deviceId\":\"" + deviceId + "\",\"googleBooksId\":\"g1\",\"titulo\":\"T\"}";
+        // O primeiro favorito de um dispositivo também o registra em tb_dispositivos (busca + insert)
+        assertSql(post("/livros/favoritos").contentType(MediaType.APPLICATION_JSON).content(favorito),
+                status().isCreated(), 4);
+        assertSql(post("/livros/favoritos").contentType(MediaType.APPLICATION_JSON).content(favorito),
+                status().isCreated(), 1);
+        assertSql(get("/livros/favoritos/device/{deviceId}", deviceId), status().isOk(), 1);
+        assertSql(get("/livros/favoritos/check").param("deviceId", deviceId).param("googleBooksId", "g1"),
+                status().isOk(), 1);
+        assertSql(delete("/livros/favoritos").param("deviceId", deviceId).param("googleBooksId", "g1"),
+                status().isNoContent(), 2);
+    }
+
+    @Test
+    void navegarUsaIndiceEUmaConsultaPorPagina() throws Exception {
+        String genero = "Genero-" + UUID.randomUUID();
+        for (int ano = 1995; ano < 2005; ano++) {
+            criarLivroForaDoCache(genero, LocalDateTime.of(ano, 6, 1, 0, 0));
+        }
+        List<Comando> primeira = executar(get("/livros/navegar").param("genero", genero).param("limite", "4"),
+                status().isOk());
+        assertThat(primeira).hasSize(1);
+        assertThat(varreduras(primeira)).isEmpty();
+
+        String corpo = mockMvc.perform(get("/livros/navegar").param("genero", genero).param("limite", "4")
+                .param("de", "1998-01-01")).andReturn().getResponse().getContentAsString();
+        String cursor = corpo.replaceAll(".*\"proximaPagina\":\"([^\"]+)\".*", "$1");
+        assertThat(corpo).contains("\"dataPublicacao\":\"2004-06-01T00:00:00\"")
+                .doesNotContain("1997-06-01");
+
+        assertSql(get("/livros/navegar").param("genero", genero).param("limite", "4").param("de", "1998-01-01")
+                .param("apos", cursor), status().isOk(), 1);
+        assertSql(get("/livros/navegar").param("de", "1998-01-01").param("ate", "1999-12-31"), status().isOk(), 1);
+    }
+
+    @Test
+    void buscaPorTituloOuAutorUsaCacheAteAProximaEscrita() throws Exception {
+        String termo = "Busca " + UUID.randomUUID();
+        // LIKE '%termo%' não tem como usar índice: a varredura aqui é esperada
+        assertSqlComVarredura(get("/livros/busca").param("query", termo), status().isOk(), 1);
+        assertSql(get("/livros/busca").param("query", "  " + termo.toUpperCase() + " "), status().isOk(), 0);
+
+        criarLivroPelaApi(termo);
+        assertSqlComVarredura(get("/livros/busca").param("query", termo), status().isOk(), 1);
+        assertSql(get("/livros/busca").param("query", termo), status().isOk(), 0);
+    }
+
+    @Test
+    void buscaConsultaOTermoComoFoiDigitado() throws Exception {
+        // O H2 diferencia acentos: com o termo normalizado ("acao") na consulta, o livro não seria encontrado
+        String sufixo = UUID.randomUUID().toString();
+        criarLivroPelaApi("Ação " + sufixo);
+        mockMvc.perform(get("/livros/busca").param("query", "ação " + sufixo))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].titulo").value("Ação " + sufixo));
+    }
+
+    @Test
+    void buscaSemTermoEPaginada() throws Exception {
+        assertSqlPreenchendoDispositivos(get("/livros/busca").param("tamanho", "5"), status().isOk(), 1);
+        assertSqlPreenchendoDispositivos(get("/livros/busca").param("apos", "3").param("tamanho", "5"),
+                status().isOk(), 1);
+    }
+
+    // ========== FavoritoController ==========
+
+    @Test
+    void favoritos() throws Exception {
+        String favorito = "{\"deviceId\":\"" + deviceId + "\",\"googleBooksId\":\"g2\",\"titulo\":\"T\"}";
+        assertSql(post("/favoritos").contentType(MediaType.APPLICATION_JSON).content(favorito),
+                status().isCreated(), 4);
+        assertSql(get("/favoritos/device/{deviceId}", deviceId), status().isOk(), 1);
+        assertSql(get("/favoritos/check").param("deviceId", deviceId).param("googleBooksId", "g2"),
+                status().isOk(), 1);
+        assertSqlPreenchendoDispositivos(get("/favoritos/livro/{googleBooksId}", "g2"), status().isOk(), 1);
+        assertSql(get("/favoritos/populares"), status().isOk(), 0);
+        assertSql(delete("/favoritos").param("deviceId", deviceId).param("googleBooksId", "g2"),
+                status().isNoContent(), 2);
+    }
+
+    @Test
+    void favoritoPorId() throws Exception {
+        String favorito = "{\"deviceId\":\"" + deviceId + "\",\"googleBooksId\":\"g3\",\"titulo\":\"T\"}";
+        String corpo = mockMvc.perform(post("/favoritos").contentType(MediaType.APPLICATION_JSON).content(favorito))
+                .andReturn().getResponse().getContentAsString();
+        String id = corpo.replaceAll(".*\"id\":(\\d+).*", "$1");
+        assertSql(get("/favoritos/{id}", id), status().isOk(), 1);
+        assertSql(delete("/favoritos/{id}", id), status().isNoContent(), 3);
+    }
+
+    // ========== AuthController ==========
+
+    @Test
+    void loginConsultaOBancoUmaVezEORestoSoUsaOToken() throws Exception {
+        String credenciais = "{\"email\":\"" + deviceId + "@livraria.test\",\"senha\":\"senha-segura\"}";
+        mockMvc.perform(post("/auth/registrar").contentType(MediaType.APPLICATION_JSON).content(credenciais))
+                .andExpect(status().isCreated());
+        assertSql(post("/auth/login").contentType(MediaType.APPLICATION_JSON).content(credenciais),
+                status().isOk(), 1);
+        String corpo = mockMvc.perform(post("/auth/login").contentType(MediaType.APPLICATION_JSON).content(credenciais))
+                .andReturn().getResponse().getContentAsString();
+        String token = corpo.replaceAll(".*\"tokenAcesso\":\"([^\"]+)\".*", "$1");
+        assertSql(get("/auth/eu").header("Authorization", "Bearer " + token), status().isOk(), 0);
+    }
+
+    // ========== Apoio ==========
+
+    private void criarLivroPelaApi(String titulo) throws Exception {
+        mockMvc.perform(post("/livros").contentType(MediaType.APPLICATION_JSON).content("{\"titulo\":\"" + titulo + "\"}"))
+                .andExpect(status().isOk());
+    }
+
+    /**
+     * Grava direto no banco (sem passar pelo proxy nem pelo cache de livros por ID)
+     */
+    private Long criarLivroForaDoCache() {
+        return criarLivroForaDoCache(null, null);
+    }
+
+    private Long criarLivroForaDoCache(String genero, LocalDateTime dataPublicacao) {
+        KeyHolder chave = new GeneratedKeyHolder();
+        new JdbcTemplate(router.dataSource(0)).update(conexao -> {
+            PreparedStatement insert = conexao.prepareStatement(
+                    "INSERT INTO tb_livros (titulo, genero, data_publicacao, favorito, data_criacao, versao)"
+                            + " VALUES (?, ?, ?, false, ?, 0)",
+                    Statement.RETURN_GENERATED_KEYS);
+            insert.setString(1, "Livro " + UUID.randomUUID());
+            insert.setString(2, genero);
+            insert.setObject(3, dataPublicacao);
+            insert.setObject(4, LocalDateTime.now());
+            return insert;
+        }, chave);
+        return chave.getKey().longValue();
+    }
+
+    private void assertSql(RequestBuilder requisicao, ResultMatcher status, int esperados) throws Exception {
+        List<Comando> comandos = executar(requisicao, status);
+        assertThat(comandos).as("comandos SQL").hasSize(esperados);
+        List<String> varreduras = varreduras(comandos);
+        assertThat(varreduras).as("varreduras completas de tabela").isEmpty();
+    }
+
+    /**
+     * Para leituras que preenchem o deviceId: além dos comandos esperados, no máximo uma consulta (em lote)
+     * ao registro de dispositivos, para os dispositivos que ainda não estão no cache dele
+     */
+    private void assertSqlPreenchendoDispositivos(RequestBuilder requisicao, ResultMatcher status, int esperados)
+            throws Exception {
+        List<Comando> comandos = executar(requisicao, status);
+        List<Comando> noRegistro = comandos.stream()
+                .filter(comando -> comando.sql().toLowerCase().contains("from tb_dispositivos"))
+                .toList();
+        assertThat(comandos).as("comandos SQL fora do registro de dispositivos").hasSize(esperados + noRegistro.size());
+        assertThat(noRegistro).as("consultas ao registro de dispositivos").hasSizeLessThanOrEqualTo(1);
+        assertThat(varreduras(comandos)).as("varreduras completas de tabela").isEmpty();
+    }
+
+    private void assertSqlComVarredura(RequestBuilder requisicao, ResultMatcher status, int esperados) throws Exception {
+        assertThat(executar(requisicao, status)).as("comandos SQL").hasSize(esperados);
+    }
+
+    private List<Comando> executar(RequestBuilder requisicao, ResultMatcher status) throws Exception {
+        CONTADOR.iniciar();
+        try {
+            mockMvc.perform(requisicao).andExpect(status);
+        } catch (Exception | AssertionError e) {
+            CONTADOR.parar();
+            throw e;
+        }
+        return CONTADOR.parar();
+    }
+
+    /**
+     * Roda EXPLAIN (com os mesmos parâmetros) para cada SELECT e devolve os planos com tableScan
+     */
+    private List<String> varreduras(List<Comando> comandos) throws SQLException {
+        List<String> varreduras = new ArrayList<>();
+        try (Connection conexao = router.dataSource(0).getConnection()) {
+            for (Comando comando : comandos) {
+                if (!comando.consulta()) {
+                    continue;
+                }
+                try (PreparedStatement explain = conexao.prepareStatement("EXPLAIN " + comando.sql())) {
+                    for (int i = 0; i < comando.parametros().size(); i++) {
+                        explain.setObject(i + 1, comando.parametros().get(i));
+                    }
+                    try (ResultSet plano = explain.executeQuery()) {
+                        plano.next();
+                        String texto = plano.getString(1);
+                        if (texto.contains(".tableScan")) {
+                            varreduras.add(comando + "\n" + texto);
+                        }
+                    }
+                }
+            }
+        }
+        return varreduras;
+    }
+}
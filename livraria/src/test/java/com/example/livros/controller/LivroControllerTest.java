@@ -0,0 +1,55 @@
+package com.example.livros.controller;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.example.livros.dto.LivroDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@SpringBootTest(properties = "livraria.aquecimento.habilitado=false")
+@AutoConfigureMockMvc
+class LivroControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void etagDepoisDoPutServeParaOPatch() throws Exception {
+        String criado = mockMvc.perform(post("/livros").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"titulo\":\"Original\"}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        Long id = objectMapper.readValue(criado, LivroDTO.class).getId();
+
+        // O PUT incrementa a versão: a resposta e o cache por ID já trazem a nova
+        mockMvc.perform(put("/livros/{id}", id).contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"titulo\":\"Substituído\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.versao").value(1));
+        String etag = mockMvc.perform(get("/livros/{id}", id))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.titulo").value("Substituído"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(patch("/livros/{id}", id).header(HttpHeaders.IF_MATCH, etag)
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"autor\":\"Alguém\"}"))
+                .andExpect(status().isNoContent())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"2\""));
+    }
+}
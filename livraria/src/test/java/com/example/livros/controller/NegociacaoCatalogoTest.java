@@ -0,0 +1,30 @@
+package com.example.livros.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class NegociacaoCatalogoTest {
+
+    @Test
+    void acceptEncodingRespeitaOsValoresDeQ() {
+        assertThat(LivroController.aceitaGzip("gzip, deflate, br")).isTrue();
+        assertThat(LivroController.aceitaGzip("GZIP;q=0.5")).isTrue();
+        assertThat(LivroController.aceitaGzip("gzip;q=0")).isFalse();
+        assertThat(LivroController.aceitaGzip("gzip; q=0.0, identity")).isFalse();
+        assertThat(LivroController.aceitaGzip("*")).isTrue();
+        assertThat(LivroController.aceitaGzip("*;q=1, gzip;q=0")).isFalse();
+        assertThat(LivroController.aceitaGzip("br, x-gzip")).isTrue();
+        assertThat(LivroController.aceitaGzip("identity")).isFalse();
+        assertThat(LivroController.aceitaGzip(null)).isFalse();
+    }
+
+    @Test
+    void ifNoneMatchAceitaListasEEtagsFracos() {
+        assertThat(LivroController.correspondeEtag("\"abc-gz\"", "\"abc-gz\"")).isTrue();
+        assertThat(LivroController.correspondeEtag("\"abc\"", "\"abc-gz\"")).isFalse();
+        assertThat(LivroController.correspondeEtag("\"x\", W/\"abc\"", "\"abc\"")).isTrue();
+        assertThat(LivroController.correspondeEtag("*", "\"abc\"")).isTrue();
+        assertThat(LivroController.correspondeEtag(null, "\"abc\"")).isFalse();
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.livros.dispositivo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+/**
+ * Aplica a V7 sobre um banco com dados no formato antigo (device_id VARCHAR em cada tabela)
+ */
+class MigracaoDispositivosTest {
+
+    @Test
+    void migraDeviceIdsParaORegistro() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:migracao-" + UUID.randomUUID() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+                "sa", "");
+        Flyway.configure().dataSource(dataSource).target("6").load().migrate();
+
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        LocalDateTime agora = LocalDateTime.now();
+        String favorito = "INSERT INTO favoritos (device_id, google_books_id, titulo, data_criacao) VALUES (?, ?, ?, ?)";
+        jdbc.update(favorito, "aparelho-a", "g1", "T1", agora);
+        jdbc.update(favorito, "aparelho-a", "g2", "T2", agora);
+        jdbc.update(favorito, "aparelho-b", "g1", "T1", agora);
+        String livro = "INSERT INTO tb_livros (titulo, device_id, google_books_id, favorito, data_criacao, versao)"
+                + " VALUES (?, ?, ?, ?, ?, 0)";
+        jdbc.update(livro, "Catálogo", null, null, false, agora);
+        jdbc.update(livro, "Favorito", "aparelho-c", "g3", true, agora);
+        jdbc.update("INSERT INTO tb_livros_arquivo (id, titulo, device_id, google_books_id, data_criacao, data_arquivamento)"
+                + " VALUES (?, ?, ?, ?, ?, ?)", 99L, "Arquivado", "aparelho-a", "g9", agora, agora);
+
+        Flyway.configure().dataSource(dataSource).load().migrate();
+
+        assertThat(jdbc.queryForList("SELECT device_id FROM tb_dispositivos ORDER BY device_id", String.class))
+                .containsExactly("aparelho-a", "aparelho-b", "aparelho-c");
+        List<Map<String, Object>> favoritos = jdbc.queryForList(
+                "SELECT d.device_id, f.google_books_id FROM favoritos f"
+                        + " JOIN tb_dispositivos d ON d.id = f.dispositivo_id ORDER BY f.id");
+        assertThat(favoritos).extracting(linha -> linha.get("device_id") + "/" + linha.get("google_books_id"))
+                .containsExactly("aparelho-a/g1", "aparelho-a/g2", "aparelho-b/g1");
+        assertThat(jdbc.queryForList(
+                "SELECT d.device_id FROM tb_livros l LEFT JOIN tb_dispositivos d ON d.id = l.dispositivo_id ORDER BY l.id",
+                String.class)).containsExactly(null, "aparelho-c");
+        assertThat(jdbc.queryForObject(
+                "SELECT d.device_id FROM tb_livros_arquivo a JOIN tb_dispositivos d ON d.id = a.dispositivo_id",
+                String.class)).isEqualTo("aparelho-a");
+    }
+}
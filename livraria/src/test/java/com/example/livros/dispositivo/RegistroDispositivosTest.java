@@ -0,0 +1,102 @@
+package com.example.livros.dispositivo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.livros.entities.Favorito;
+import com.example.livros.service.FavoritoService;
+import com.example.livros.sharding.ShardExecutor;
+
+/**
+ * Pool de conexões pequeno: o registro não pode exigir uma segunda conexão enquanto a requisição segura a primeira
+ */
+@SpringBootTest(properties = {
+        "livraria.aquecimento.habilitado=false",
+        "spring.datasource.hikari.maximum-pool-size=2",
+        "spring.datasource.hikari.connection-timeout=2000"
+})
+class RegistroDispositivosTest {
+
+    @Autowired
+    private RegistroDispositivos dispositivos;
+
+    @Autowired
+    private ShardExecutor shardExecutor;
+
+    @Autowired
+    private FavoritoService favoritoService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void registroAconteceAntesDaTransacaoDaOperacao() {
+        String deviceId = "registro-" + UUID.randomUUID();
+        assertThatThrownBy(() -> shardExecutor.doDevice(deviceId, false, () -> dispositivos.registrar(deviceId)))
+                .isInstanceOf(IllegalStateException.class);
+
+        long registrado = dispositivos.registrar(deviceId);
+        assertThatThrownBy(() -> shardExecutor.doDevice(deviceId, false, () -> {
+            throw new IllegalStateException("falha na operação depois do registro");
+        })).isInstanceOf(IllegalStateException.class);
+
+        // A chave que ficou no cache existe de fato no banco
+        assertThat(jdbcTemplate.queryForObject("SELECT id FROM tb_dispositivos WHERE device_id = ?", Long.class,
+                deviceId)).isEqualTo(registrado);
+        assertThat(shardExecutor.doDevice(deviceId, true, () -> dispositivos.buscar(deviceId))).contains(registrado);
+    }
+
+    @Test
+    void registrosSimultaneosDevolvemAMesmaChave() throws Exception {
+        String deviceId = "registro-" + UUID.randomUUID();
+        List<Long> obtidas = emParalelo(8, () -> dispositivos.registrar(deviceId));
+
+        assertThat(obtidas).containsOnly(obtidas.get(0));
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM tb_dispositivos WHERE device_id = ?",
+                Integer.class, deviceId)).isEqualTo(1);
+    }
+
+    @Test
+    void rajadaDeDispositivosNovosMaiorQueOPool() throws Exception {
+        List<Favorito> favoritos = emParalelo(16, () -> favoritoService.adicionarFavorito(
+                "rajada-" + UUID.randomUUID(), "g1", "T", null, null, null, null));
+
+        assertThat(favoritos).hasSize(16).allSatisfy(favorito -> assertThat(favorito.getId()).isNotNull());
+    }
+
+    private static <T> List<T> emParalelo(int quantidade, Callable<T> tarefa) throws Exception {
+        CountDownLatch largada = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(quantidade);
+        try {
+            List<Future<T>> futuros = new ArrayList<>();
+            for (int i = 0; i < quantidade; i++) {
+                futuros.add(executor.submit(() -> {
+                    largada.await();
+                    return tarefa.call();
+                }));
+            }
+            largada.countDown();
+            List<T> resultados = new ArrayList<>();
+            for (Future<T> futuro : futuros) {
+                resultados.add(futuro.get());
+            }
+            return resultados;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.livros.escritaadiada;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.example.livros.dispositivo.RegistroDispositivos;
+import com.example.livros.entities.Favorito;
+import com.example.livros.repository.FavoritoRepository;
+import com.example.livros.service.FavoritoService;
+
+@SpringBootTest(properties = {
+        "livraria.favoritos.escrita-adiada.habilitada=true",
+        "livraria.favoritos.escrita-adiada.diario=target/escrita-adiada-teste/favoritos-pendentes.log",
+        "livraria.favoritos.escrita-adiada.intervalo-ms=3600000",
+        "livraria.favoritos.escrita-adiada.maximo-pendentes=4"
+})
+class EscritaAdiadaTest {
+
+    @Autowired
+    private EscritaAdiadaService escritaAdiada;
+
+    @Autowired
+    private FavoritoService favoritoService;
+
+    @Autowired
+    private FavoritoRepository favoritoRepository;
+
+    @Autowired
+    private RegistroDispositivos dispositivos;
+
+    private String deviceId;
+
+    @BeforeEach
+    void novoDispositivo() {
+        escritaAdiada.descarregar();
+        deviceId = "escrita-adiada-" + UUID.randomUUID();
+    }
+
+    private List<Favorito> gravados() {
+        return dispositivos.buscar(deviceId).map(favoritoRepository::findByDispositivoId).orElse(List.of());
+    }
+
+    @Test
+    void toquesSeFundemEAsLeiturasEnxergamOPendente() {
+        favoritoService.adicionarFavorito(deviceId, "g1", "T1", null, null, null, null);
+        favoritoService.removerFavorito(deviceId, "g1");
+        favoritoService.adicionarFavorito(deviceId, "g1", "T1", null, null, null, null);
+        Favorito aceito = favoritoService.adicionarFavorito(deviceId, "g2", "T2", null, null, null, null);
+        favoritoService.removerFavorito(deviceId, "inexistente");
+
+        assertThat(aceito.getId()).isNull();
+        assertThat(gravados()).isEmpty();
+        assertThat(favoritoService.findByDevice(deviceId)).extracting(Favorito::getGoogleBooksId)
+                .containsExactlyInAnyOrder("g1", "g2");
+        assertThat(favoritoService.isLivroFavorito(deviceId, "g1")).isTrue();
+        assertThat(escritaAdiada.getQuantidadePendentes()).isEqualTo(3);
+
+        assertThat(escritaAdiada.descarregar()).isEqualTo(2);
+        assertThat(gravados()).extracting(Favorito::getGoogleBooksId)
+                .containsExactlyInAnyOrder("g1", "g2");
+        assertThat(escritaAdiada.getQuantidadePendentes()).isZero();
+
+        favoritoService.removerFavorito(deviceId, "g1");
+        assertThat(favoritoService.findByDevice(deviceId)).extracting(Favorito::getGoogleBooksId).containsExactly("g2");
+        assertThat(favoritoService.isLivroFavorito(deviceId, "g1")).isFalse();
+        assertThat(escritaAdiada.descarregar()).isEqualTo(1);
+        assertThat(gravados()).hasSize(1);
+    }
+
+    @Test
+    void adicionarERemoverAntesDaDescargaNaoGravaNada() {
+        favoritoService.adicionarFavorito(deviceId, "g1", "T1", null, null, null, null);
+        favoritoService.removerFavorito(deviceId, "g1");
+
+        assertThat(escritaAdiada.descarregar()).isZero();
+        assertThat(gravados()).isEmpty();
+    }
+
+    @Test
+    void comOBufferCheioGravaDeFormaSincrona() {
+        for (int i = 0; i < 4; i++) {
+            assertThat(favoritoService.adicionarFavorito(deviceId, "g" + i, "T", null, null, null, null).getId()).isNull();
+        }
+        Favorito sincrono = favoritoService.adicionarFavorito(deviceId, "g4", "T", null, null, null, null);
+        assertThat(sincrono.getId()).isNotNull();
+        // Um par já pendente continua cabendo
+        favoritoService.removerFavorito(deviceId, "g0");
+        assertThat(escritaAdiada.getQuantidadePendentes()).isEqualTo(4);
+
+        assertThat(escritaAdiada.descarregar()).isEqualTo(3);
+        assertThat(gravados()).extracting(Favorito::getGoogleBooksId)
+                .containsExactlyInAnyOrder("g1", "g2", "g3", "g4");
+    }
+
+    @Test
+    void diarioIgnoraRegistroIncompletoNoFim(@TempDir Path diretorio) throws IOException {
+        Path arquivo = diretorio.resolve("diario.log");
+        try (DiarioFavoritos diario = DiarioFavoritos.abrir(arquivo, 0)) {
+            diario.anexar(OperacaoFavorito.adicionar("d", "g1", "Título", null, "http://capa", null, "2020"));
+            diario.anexar(OperacaoFavorito.remover("d", "g2"));
+            diario.forcar();
+        }
+        long tamanhoValido = Files.size(arquivo);
+        // Queda no meio da escrita: só parte do próximo registro chegou ao disco
+        Files.write(arquivo, new byte[] { 0, 0, 0, 40, 1, 2, 3 }, StandardOpenOption.APPEND);
+
+        DiarioFavoritos.Leitura leitura = DiarioFavoritos.ler(arquivo);
+        assertThat(leitura.tamanhoValido()).isEqualTo(tamanhoValido);
+        assertThat(leitura.operacoes()).containsExactly(
+                OperacaoFavorito.adicionar("d", "g1", "Título", null, "http://capa", null, "2020"),
+                OperacaoFavorito.remover("d", "g2"));
+
+        try (DiarioFavoritos diario = DiarioFavoritos.abrir(arquivo, leitura.tamanhoValido())) {
+            diario.reescrever(List.of(OperacaoFavorito.remover("d", "g3")));
+            // Depois da troca, o que é anexado vai para o arquivo novo
+            diario.anexar(OperacaoFavorito.remover("d", "g4"));
+            diario.forcar();
+        }
+        assertThat(DiarioFavoritos.ler(arquivo).operacoes()).containsExactly(
+                OperacaoFavorito.remover("d", "g3"), OperacaoFavorito.remover("d", "g4"));
+        assertThat(arquivo.resolveSibling("diario.log.tmp")).doesNotExist();
+    }
+
+    @Test
+    void falhaAoReescreverMantemODiarioUtilizavel(@TempDir Path diretorio) throws IOException {
+        Path arquivo = diretorio.resolve("diario.log");
+        // Um diretório no lugar do temporário faz a reescrita falhar
+        Files.createDirectories(diretorio.resolve("diario.log.tmp").resolve("ocupado"));
+        try (DiarioFavoritos diario = DiarioFavoritos.abrir(arquivo, 0)) {
+            diario.anexar(OperacaoFavorito.remover("d", "g1"));
+            assertThatThrownBy(() -> diario.reescrever(List.of())).isInstanceOf(IOException.class);
+            diario.anexar(OperacaoFavorito.remover("d", "g2"));
+            diario.forcar();
+        }
+        assertThat(DiarioFavoritos.ler(arquivo).operacoes()).containsExactly(
+                OperacaoFavorito.remover("d", "g1"), OperacaoFavorito.remover("d", "g2"));
+    }
+}
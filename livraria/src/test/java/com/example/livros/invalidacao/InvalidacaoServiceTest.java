@@ -0,0 +1,97 @@
+package com.example.livros.invalidacao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.livros.dto.LivroDTO;
+import com.example.livros.dto.PopularidadeDTO;
+import com.example.livros.service.FavoritoService;
+import com.example.livros.service.LivroService;
+import com.example.livros.service.RankingFavoritosService;
+import com.example.livros.sharding.ShardRouter;
+
+@SpringBootTest(properties = {
+        "livraria.invalidacao.habilitada=true",
+        "livraria.invalidacao.intervalo-ms=3600000"
+})
+class InvalidacaoServiceTest {
+
+    @Autowired
+    private InvalidacaoService invalidacaoService;
+
+    @Autowired
+    private InvalidacaoBus bus;
+
+    @Autowired
+    private LivroService livroService;
+
+    @Autowired
+    private FavoritoService favoritoService;
+
+    @Autowired
+    private RankingFavoritosService rankingService;
+
+    @Autowired
+    private ShardRouter router;
+
+    @Test
+    void escritasLocaisSaoPublicadasNoOutbox() {
+        invalidacaoService.sondar();
+        long antes = bus.ultimaVersao();
+        String deviceId = "invalidacao-" + UUID.randomUUID();
+
+        LivroDTO livro = livroService.criarLivro(novoLivro("Publicado"));
+        favoritoService.adicionarFavorito(deviceId, "g-publicado", "T", null, null, null, null);
+
+        assertThat(bus.lerApos(antes, 10))
+                .allMatch(invalidacao -> invalidacao.origem().equals(invalidacaoService.getOrigem()))
+                .extracting(Invalidacao::tipo, Invalidacao::chave, Invalidacao::deviceId)
+                .containsExactly(
+                        tuple(Invalidacao.Tipo.LIVRO, livro.getId().toString(), null),
+                        tuple(Invalidacao.Tipo.FAVORITO_ADICIONADO, "g-publicado", deviceId));
+        // Os próprios eventos não são reaplicados
+        assertThat(invalidacaoService.sondar()).isZero();
+    }
+
+    @Test
+    void escritaDeOutraInstanciaInvalidaOCacheLocal() {
+        LivroDTO livro = livroService.criarLivro(novoLivro("Antes"));
+        invalidacaoService.sondar();
+
+        // Outra instância altera o livro e publica a invalidação
+        new JdbcTemplate(router.dataSource(0)).update(
+                "UPDATE tb_livros SET titulo = ?, versao = versao + 1 WHERE id = ?", "Depois", livro.getId());
+        assertThat(livroService.buscarLivroPorId(livro.getId())).get().extracting(LivroDTO::getTitulo).isEqualTo("Antes");
+        bus.publicar(Invalidacao.livro(livro.getId(), "outra-instancia"));
+
+        assertThat(invalidacaoService.sondar()).isEqualTo(1);
+        assertThat(livroService.buscarLivroPorId(livro.getId())).get().extracting(LivroDTO::getTitulo).isEqualTo("Depois");
+    }
+
+    @Test
+    void favoritoDeOutraInstanciaEntraNoRanking() {
+        String googleBooksId = "g-remoto-" + UUID.randomUUID();
+        invalidacaoService.sondar();
+        for (int i = 0; i < 3; i++) {
+            bus.publicar(Invalidacao.favorito("outro-" + i, googleBooksId, true, "outra-instancia"));
+        }
+
+        assertThat(invalidacaoService.sondar()).isEqualTo(3);
+        rankingService.atualizarRankings();
+        assertThat(rankingService.listarPopulares("total", 100)).extracting(PopularidadeDTO::getGoogleBooksId)
+                .contains(googleBooksId);
+    }
+
+    private static LivroDTO novoLivro(String titulo) {
+        LivroDTO dto = new LivroDTO();
+        dto.setTitulo(titulo);
+        return dto;
+    }
+}
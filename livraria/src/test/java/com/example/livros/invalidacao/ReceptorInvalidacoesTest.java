@@ -0,0 +1,162 @@
+package com.example.livros.invalidacao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+/**
+ * Duas "instâncias" lendo o mesmo barramento em memória, com o relógio controlado pelo teste
+ */
+class ReceptorInvalidacoesTest {
+
+    private MemoriaInvalidacaoBus bus;
+    private No a;
+    private No b;
+
+    @BeforeEach
+    void iniciar() {
+        bus = new MemoriaInvalidacaoBus();
+        a = new No("a");
+        b = new No("b");
+        a.receptor.sondar(0);
+        b.receptor.sondar(0);
+    }
+
+    @Test
+    void cadaInstanciaAplicaOsEventosDasOutrasEmOrdem() {
+        bus.publicar(Invalidacao.livro(1L, "a"));
+        bus.publicar(Invalidacao.favorito("d1", "g1", true, "b"));
+        bus.publicar(Invalidacao.livro(2L, "a"));
+
+        assertThat(a.receptor.sondar(100)).isEqualTo(1);
+        assertThat(a.aplicadas).extracting(Invalidacao::chave).containsExactly("g1");
+        assertThat(b.receptor.sondar(100)).isEqualTo(2);
+        assertThat(b.aplicadas).extracting(Invalidacao::idLivro).containsExactly(1L, 2L);
+        assertThat(a.receptor.getUltimaVersao()).isEqualTo(3);
+        assertThat(b.completas).isEmpty();
+    }
+
+    @Test
+    void lacunaEsperaPelaPublicacaoEmAndamento() {
+        long emAndamento = bus.reservar();
+        bus.publicar(Invalidacao.livro(2L, "a"));
+
+        assertThat(b.receptor.sondar(100)).isZero();
+        bus.confirmar(emAndamento, Invalidacao.livro(1L, "a"));
+
+        assertThat(b.receptor.sondar(300)).isEqualTo(2);
+        assertThat(b.aplicadas).extracting(Invalidacao::idLivro).containsExactly(1L, 2L);
+        assertThat(b.completas).isEmpty();
+    }
+
+    @Test
+    void lacunaQueNaoSeFechaInvalidaTudo() {
+        bus.reservar();
+        bus.publicar(Invalidacao.livro(2L, "a"));
+
+        assertThat(b.receptor.sondar(100)).isZero();
+        assertThat(b.receptor.sondar(1099)).isZero();
+        assertThat(b.receptor.sondar(1100)).isEqualTo(1);
+        assertThat(b.completas).containsExactly(ReceptorInvalidacoes.MOTIVO_LACUNA);
+        assertThat(b.receptor.getUltimaVersao()).isEqualTo(2);
+
+        // Eventos removidos pela limpeza antes de a instância lê-los também são uma lacuna
+        bus.publicar(Invalidacao.livro(3L, "a"));
+        bus.publicar(Invalidacao.livro(4L, "a"));
+        bus.limpar(LocalDateTime.now().plusMinutes(1));
+        b.receptor.sondar(2000);
+        assertThat(b.receptor.sondar(3000)).isEqualTo(1);
+        assertThat(b.completas).hasSize(2);
+    }
+
+    @Test
+    void barramentoInacessivelAlemDoLimiteInvalidaTudoACadaSondagem() {
+        b.falhar = true;
+        b.receptor.sondar(4000);
+        assertThat(b.completas).isEmpty();
+
+        b.receptor.sondar(5001);
+        b.receptor.sondar(5201);
+        assertThat(b.completas).containsExactly(ReceptorInvalidacoes.MOTIVO_ATRASO, ReceptorInvalidacoes.MOTIVO_ATRASO);
+        assertThat(b.receptor.getAtrasoMs(5201)).isEqualTo(5201);
+
+        b.falhar = false;
+        bus.publicar(Invalidacao.livro(1L, "a"));
+        assertThat(b.receptor.sondar(5401)).isEqualTo(1);
+        assertThat(b.receptor.getAtrasoMs(5401)).isZero();
+        assertThat(b.completas).hasSize(2);
+    }
+
+    @Test
+    void outboxComAutoIncrementoDePassoDoisNaoGeraLacunas() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:outbox-" + UUID.randomUUID() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+                "sa", "");
+        Flyway.configure().dataSource(dataSource).load().migrate();
+        // Como no shard 0 com vários shards (auto_increment_increment = passo-ids)
+        new JdbcTemplate(dataSource).execute("ALTER TABLE tb_invalidacoes ALTER COLUMN id SET INCREMENT BY 2");
+        OutboxInvalidacaoBus outbox = new OutboxInvalidacaoBus(dataSource);
+        List<Invalidacao> aplicadas = new ArrayList<>();
+        List<String> completas = new ArrayList<>();
+        ReceptorInvalidacoes receptor = new ReceptorInvalidacoes(outbox, "b", 1000, 5000, 100,
+                aplicadas::add, completas::add, 0);
+        receptor.sondar(0);
+
+        outbox.publicar(Invalidacao.livro(1L, "a"));
+        // Uma publicação que falha é desfeita junto com a versão que reservou
+        assertThatThrownBy(() -> outbox.publicar(Invalidacao.livro(2L, null))).isInstanceOf(RuntimeException.class);
+        outbox.publicar(Invalidacao.livro(3L, "a"));
+        outbox.publicar(Invalidacao.favorito("d1", "g1", true, "a"));
+
+        assertThat(receptor.sondar(2000)).isEqualTo(3);
+        assertThat(aplicadas).extracting(Invalidacao::versao).containsExactly(1L, 2L, 3L);
+        assertThat(completas).isEmpty();
+    }
+
+    private final class No {
+
+        final List<Invalidacao> aplicadas = new ArrayList<>();
+        final List<String> completas = new ArrayList<>();
+        final ReceptorInvalidacoes receptor;
+        boolean falhar;
+
+        No(String origem) {
+            InvalidacaoBus transporte = new InvalidacaoBus() {
+                @Override
+                public long publicar(Invalidacao invalidacao) {
+                    return bus.publicar(invalidacao);
+                }
+
+                @Override
+                public List<Invalidacao> lerApos(long versao, int limite) {
+                    if (falhar) {
+                        throw new IllegalStateException("barramento fora do ar");
+                    }
+                    return bus.lerApos(versao, limite);
+                }
+
+                @Override
+                public long ultimaVersao() {
+                    return bus.ultimaVersao();
+                }
+
+                @Override
+                public int limpar(LocalDateTime antesDe) {
+                    return bus.limpar(antesDe);
+                }
+            };
+            receptor = new ReceptorInvalidacoes(transporte, origem, 1000, 5000, 100,
+                    aplicadas::add, completas::add, 0);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.livros.recomendacao;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Mede o tempo de reconstrução e a memória do modelo de co-ocorrência com favoritos sintéticos.
+ *
+ * Não é um teste JUnit (e o nome não termina em Test, então o {@code mvn test} não o executa);
+ * rode à mão após {@code mvn test-compile}:
+ * <pre>
+ * java -Xmx8g -cp target/classes:target/test-classes \
+ *     com.example.livros.recomendacao.ModeloCoocorrenciaBenchmark 10000000 1000000 200000
+ * </pre>
+ * Argumentos: favoritos, dispositivos e livros distintos (popularidade segue uma Zipf).
+ */
+public class ModeloCoocorrenciaBenchmark {
+
+    public static void main(String[] args) {
+        int favoritos = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        int dispositivos = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        int livros = args.length > 2 ? Integer.parseInt(args[2]) : 200_000;
+
+        double[] acumulado = zipf(livros, 1.0);
+        String[] idsLivros = new String[livros];
+        for (int i = 0; i < livros; i++) {
+            idsLivros[i] = "gb-" + Integer.toString(i, 36);
+        }
+        String[] idsDispositivos = new String[dispositivos];
+        for (int i = 0; i < dispositivos; i++) {
+            idsDispositivos[i] = "device-" + Integer.toString(i, 36);
+        }
+
+        long memoriaAntes = memoriaUsada();
+        long inicio = System.nanoTime();
+        SplittableRandom random = new SplittableRandom(42);
+        ModeloCoocorrencia.Construtor construtor = new ModeloCoocorrencia.Construtor(500);
+        for (int i = 0; i < favoritos; i++) {
+            int livro = Arrays.binarySearch(acumulado, random.nextDouble());
+            livro = livro >= 0 ? livro : Math.min(-livro - 1, livros - 1);
+            construtor.adicionar(idsDispositivos[random.nextInt(dispositivos)], idsLivros[livro]);
+        }
+        long fimCarga = System.nanoTime();
+        ModeloCoocorrencia modelo = construtor.construir(ForkJoinPool.commonPool());
+        long fimConstrucao = System.nanoTime();
+        long memoriaDepois = memoriaUsada();
+
+        System.out.printf("favoritos=%d dispositivos=%d livros=%d paralelismo=%d%n",
+                favoritos, modelo.quantidadeDispositivos(), modelo.quantidadeLivros(),
+                ForkJoinPool.commonPool().getParallelism());
+        System.out.printf("carga das cestas: %d ms%n", (fimCarga - inicio) / 1_000_000);
+        System.out.printf("construcao fork-join: %d ms%n", (fimConstrucao - fimCarga) / 1_000_000);
+        System.out.printf("estruturas primitivas: %d MB%n", modelo.estimarBytes() / (1024 * 1024));
+        System.out.printf("heap retido (inclui Strings): %d MB%n", (memoriaDepois - memoriaAntes) / (1024 * 1024));
+
+        long inicioConsultas = System.nanoTime();
+        int consultas = 10_000;
+        for (int i = 0; i < consultas; i++) {
+            modelo.similares(idsLivros[random.nextInt(Math.min(livros, 1000))], 10);
+        }
+        System.out.printf("similares (top-10): %.1f us/consulta%n",
+                (System.nanoTime() - inicioConsultas) / 1_000.0 / consultas);
+    }
+
+    private static double[] zipf(int n, double expoente) {
+        double[] acumulado = new double[n];
+        double soma = 0;
+        for (int i = 0; i < n; i++) {
+            soma += 1.0 / Math.pow(i + 1, expoente);
+            acumulado[i] = soma;
+        }
+        for (int i = 0; i < n; i++) {
+            acumulado[i] /= soma;
+        }
+        return acumulado;
+    }
+
+    private static long memoriaUsada() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
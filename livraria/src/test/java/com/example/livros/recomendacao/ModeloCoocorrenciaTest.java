@@ -0,0 +1,81 @@
+package com.example.livros.recomendacao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.livros.dto.RecomendacaoDTO;
+
+class ModeloCoocorrenciaTest {
+
+    private static final int MAX_CESTA = 4;
+    private static final int LIVROS = 12;
+
+    @Test
+    void atualizacaoIncrementalChegaAoMesmoModeloQueAReconstrucao() {
+        SplittableRandom random = new SplittableRandom(7);
+        ModeloCoocorrencia incremental = ModeloCoocorrencia.vazio(MAX_CESTA);
+        Map<String, Set<String>> favoritos = new HashMap<>();
+        // Cestas pequenas, no limite e acima dele, entrando e saindo da elegibilidade várias vezes
+        for (int i = 0; i < 5_000; i++) {
+            String deviceId = "d" + random.nextInt(6);
+            String livro = "g" + random.nextInt(LIVROS);
+            Set<String> cesta = favoritos.computeIfAbsent(deviceId, k -> new HashSet<>());
+            if (random.nextInt(100) < 55) {
+                incremental.adicionar(deviceId, livro);
+                cesta.add(livro);
+            } else {
+                incremental.remover(deviceId, livro);
+                cesta.remove(livro);
+            }
+        }
+
+        ModeloCoocorrencia.Construtor construtor = new ModeloCoocorrencia.Construtor(MAX_CESTA);
+        favoritos.forEach((deviceId, cesta) -> cesta.forEach(livro -> construtor.adicionar(deviceId, livro)));
+        ModeloCoocorrencia reconstruido = construtor.construir(ForkJoinPool.commonPool());
+
+        for (int i = 0; i < LIVROS; i++) {
+            assertThat(relacionados(incremental, "g" + i)).as("g" + i).isEqualTo(relacionados(reconstruido, "g" + i));
+        }
+        assertThat(incremental.quantidadeDispositivos()).isEqualTo(reconstruido.quantidadeDispositivos());
+    }
+
+    @Test
+    void cestaQueCruzaOLimiteDeixaDeContarParesEVoltaAContar() {
+        ModeloCoocorrencia modelo = ModeloCoocorrencia.vazio(MAX_CESTA);
+        for (int i = 0; i < MAX_CESTA; i++) {
+            modelo.adicionar("d", "g" + i);
+        }
+        assertThat(relacionados(modelo, "g0")).containsOnlyKeys("g1", "g2", "g3");
+
+        modelo.adicionar("d", "g4");
+        assertThat(relacionados(modelo, "g0")).isEmpty();
+
+        modelo.remover("d", "g4");
+        assertThat(relacionados(modelo, "g0")).containsEntry("g1", 1).containsEntry("g3", 1).hasSize(3);
+    }
+
+    @Test
+    void limiteMuitoGrandeNaoAlocaOHeapPeloLimite() {
+        ModeloCoocorrencia modelo = ModeloCoocorrencia.vazio(MAX_CESTA);
+        modelo.adicionar("d", "g0");
+        modelo.adicionar("d", "g1");
+        assertThat(modelo.similares("g0", Integer.MAX_VALUE)).extracting(RecomendacaoDTO::getGoogleBooksId)
+                .containsExactly("g1");
+    }
+
+    private static Map<String, Integer> relacionados(ModeloCoocorrencia modelo, String livro) {
+        Map<String, Integer> coocorrencias = new HashMap<>();
+        List<RecomendacaoDTO> similares = modelo.similares(livro, LIVROS);
+        similares.forEach(recomendacao -> coocorrencias.put(recomendacao.getGoogleBooksId(), recomendacao.getCoocorrencias()));
+        return coocorrencias;
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.livros.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mockingDetails;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.stubbing.Answer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import com.example.livros.dto.LivroDTO;
+import com.example.livros.repository.LivroRepository;
+
+@SpringBootTest(properties = "livraria.aquecimento.habilitado=false")
+class CacheLivroPorIdTest {
+
+    @Autowired
+    private LivroService livroService;
+
+    @MockitoSpyBean
+    private LivroRepository livroRepository;
+
+    @Test
+    void leituraAntigaNaoVoltaAoCacheDepoisDaInvalidacao() throws Exception {
+        // Só a thread "leitor" fica presa depois de ler; o stub é feito antes de qualquer escrita porque
+        // as facetas chamam findById em segundo plano a cada alteração, e stubbing concorrente não é seguro
+        CountDownLatch lido = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        // O spy de um repositório JPA delega pela resposta padrão; callRealMethod não alcança o proxy
+        Answer<?> real = mockingDetails(livroRepository).getMockCreationSettings().getDefaultAnswer();
+        doAnswer(invocacao -> {
+            Object linha = real.answer(invocacao);
+            if (Thread.currentThread().getName().equals("leitor")) {
+                lido.countDown();
+                liberar.await(10, TimeUnit.SECONDS);
+            }
+            return linha;
+        }).when(livroRepository).findById(any());
+
+        LivroDTO novo = new LivroDTO();
+        novo.setTitulo("Antes");
+        Long id = livroService.criarLivro(novo).getId();
+        livroService.atualizarParcialmente(id, 0, Map.of("autor", "Alguém"));
+
+        // A leitura carrega a linha antiga e só tenta colocá-la no cache depois que o PATCH confirmou
+        AtomicReference<LivroDTO> lidoAntes = new AtomicReference<>();
+        Thread leitor = new Thread(() -> lidoAntes.set(livroService.buscarLivroPorId(id).orElseThrow()), "leitor");
+        leitor.start();
+        assertThat(lido.await(10, TimeUnit.SECONDS)).isTrue();
+
+        livroService.atualizarParcialmente(id, 1, Map.of("titulo", "Depois"));
+        liberar.countDown();
+        leitor.join();
+
+        assertThat(lidoAntes.get().getTitulo()).isEqualTo("Antes");
+        assertThat(livroService.buscarLivroPorId(id)).get().extracting(LivroDTO::getTitulo).isEqualTo("Depois");
+    }
+}
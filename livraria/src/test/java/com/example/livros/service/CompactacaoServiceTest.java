@@ -0,0 +1,55 @@
+package com.example.livros.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.example.livros.repository.LivroRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+@SpringBootTest(properties = {
+        "livraria.compactacao.tamanho-lote=3",
+        "livraria.compactacao.pausa-entre-lotes-ms=0",
+        "livraria.compactacao.arquivar=true"
+})
+class CompactacaoServiceTest {
+
+    @Autowired
+    private CompactacaoService compactacaoService;
+
+    @Autowired
+    private LivroService livroService;
+
+    @Autowired
+    private LivroRepository livroRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void removeEmLotesApenasFavoritosDesmarcados() {
+        compactacaoService.compactar();
+        String deviceId = "compactacao-" + UUID.randomUUID();
+        for (int i = 0; i < 10; i++) {
+            livroService.adicionarFavorito(deviceId, "livro-" + i, "Título " + i, null, null, null, null);
+        }
+        for (int i = 0; i < 7; i++) {
+            livroService.removerFavorito(deviceId, "livro-" + i);
+        }
+        long totalAntes = livroRepository.count();
+        double linhasAntes = meterRegistry.get("livraria.compactacao.linhas").counter().count();
+
+        assertThat(compactacaoService.compactar()).isEqualTo(7);
+
+        assertThat(livroRepository.count()).isEqualTo(totalAntes - 7);
+        assertThat(livroService.findByDevice(deviceId)).hasSize(3);
+        assertThat(meterRegistry.get("livraria.compactacao.linhas").counter().count()).isEqualTo(linhasAntes + 7);
+        assertThat(meterRegistry.get("livraria.compactacao.duracao").timer().count()).isGreaterThanOrEqualTo(2);
+        assertThat(compactacaoService.compactar()).isZero();
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.livros.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.livros.dto.PopularidadeDTO;
+import com.example.livros.sharding.ShardExecutor;
+
+class RankingFavoritosServiceTest {
+
+    private static final long MINUTO = 60_000L;
+    private static final long HORA = 60 * MINUTO;
+
+    @Test
+    void janelaSomaSoOsBucketsDentroDoIntervalo() {
+        RankingFavoritosService.Janela janela = new RankingFavoritosService.Janela(60, MINUTO);
+        long inicio = 1_000 * HORA;
+        janela.adicionar("a", 1, inicio);
+        janela.adicionar("a", 1, inicio + 30 * MINUTO);
+        janela.adicionar("b", 2, inicio + 59 * MINUTO);
+        janela.adicionar("a", -1, inicio + 59 * MINUTO);
+
+        assertThat(janela.somar(60, inicio + 59 * MINUTO)).containsEntry("a", 1L).containsEntry("b", 2L);
+        assertThat(janela.somar(10, inicio + 59 * MINUTO)).containsEntry("a", -1L).containsEntry("b", 2L);
+        // Uma hora depois do primeiro evento ele já saiu da janela
+        assertThat(janela.somar(60, inicio + 60 * MINUTO)).containsEntry("a", 0L);
+    }
+
+    @Test
+    void bucketReaproveitadoNaoMisturaEpocas() {
+        RankingFavoritosService.Janela janela = new RankingFavoritosService.Janela(60, MINUTO);
+        long inicio = 1_000 * HORA;
+        janela.adicionar("a", 5, inicio);
+        // Mesma posição do anel, uma volta depois
+        janela.adicionar("a", 1, inicio + HORA);
+        assertThat(janela.somar(60, inicio + HORA)).containsEntry("a", 1L);
+
+        // Evento atrasado de uma época que já saiu do anel: descartado, não cai no bucket novo
+        janela.adicionar("a", 7, inicio);
+        assertThat(janela.somar(60, inicio + HORA)).containsEntry("a", 1L);
+    }
+
+    @Test
+    void somasConcorrentesNaViradaDoBucketNaoSePerdem() throws InterruptedException {
+        RankingFavoritosService.Janela janela = new RankingFavoritosService.Janela(60, MINUTO);
+        long inicio = 1_000 * HORA;
+        janela.adicionar("a", 1, inicio - HORA);
+        int threads = 8;
+        int porThread = 10_000;
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Thread> trabalhadores = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    largada.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                for (int i = 0; i < porThread; i++) {
+                    janela.adicionar("a", 1, inicio + (i % 2) * MINUTO);
+                }
+            });
+            thread.start();
+            trabalhadores.add(thread);
+        }
+        largada.countDown();
+        for (Thread thread : trabalhadores) {
+            thread.join();
+        }
+        assertThat(janela.somar(60, inicio + MINUTO)).containsEntry("a", (long) threads * porThread);
+    }
+
+    @Test
+    void rankingDevolveOsTopKEmOrdemPorJanela() {
+        RankingFavoritosService ranking = new RankingFavoritosService();
+        ReflectionTestUtils.setField(ranking, "topK", 3);
+        long agora = 1_000 * HORA;
+        for (int livro = 1; livro <= 5; livro++) {
+            for (int i = 0; i < livro; i++) {
+                ranking.registrar("livro-" + livro, 1, agora - 2 * HORA);
+            }
+        }
+        ranking.registrar("recente", 1, agora);
+        ranking.registrar("recente", 1, agora);
+        ranking.registrar("removido", 1, agora);
+        ranking.registrar("removido", -1, agora);
+
+        ranking.atualizarRankings(agora);
+
+        assertThat(ranking.listarPopulares("total", 10)).extracting(PopularidadeDTO::getGoogleBooksId)
+                .containsExactly("livro-5", "livro-4", "livro-3");
+        assertThat(ranking.listarPopulares("total", 2)).hasSize(2);
+        assertThat(ranking.listarPopulares("1h", 10)).extracting(PopularidadeDTO::getGoogleBooksId)
+                .containsExactly("recente");
+        assertThat(ranking.listarPopulares("24h", 10)).extracting(PopularidadeDTO::getFavoritos)
+                .containsExactly(5L, 4L, 3L);
+        assertThatThrownBy(() -> ranking.listarPopulares("2h", 10)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void reconciliacaoNaoPerdeFavoritosFeitosDuranteAContagem() {
+        RankingFavoritosService ranking = new RankingFavoritosService();
+        ReflectionTestUtils.setField(ranking, "topK", 10);
+        ShardExecutor shardExecutor = Mockito.mock(ShardExecutor.class);
+        ReflectionTestUtils.setField(ranking, "shardExecutor", shardExecutor);
+        long agora = 1_000 * HORA;
+        ranking.registrar("a", 1, agora);
+        ranking.registrar("a", 1, agora);
+        ranking.registrar("sumido", 1, agora);
+
+        // O banco tem 5 favoritos de "a" e 1 de "b"; um favorito de "c" chega enquanto a contagem roda
+        Mockito.when(shardExecutor.emTodos(ArgumentMatchers.anyBoolean(), ArgumentMatchers.any()))
+                .thenAnswer(invocacao -> {
+                    ranking.registrar("c", 1, agora);
+                    return List.of(new Object[] { "a", 5L }, new Object[] { "b", 1L });
+                });
+        ranking.reconciliar();
+        ranking.atualizarRankings(agora);
+
+        assertThat(ranking.listarPopulares("total", 10)).extracting(PopularidadeDTO::getGoogleBooksId,
+                PopularidadeDTO::getFavoritos).containsExactly(
+                        tuple("a", 5L),
+                        tuple("b", 1L),
+                        tuple("c", 1L));
+    }
+
+    @Test
+    void topKMenorQueUmERecusadoNaInicializacao() {
+        RankingFavoritosService ranking = new RankingFavoritosService();
+        ReflectionTestUtils.setField(ranking, "topK", 0);
+        assertThatThrownBy(ranking::validar).isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("livraria.ranking.top-k");
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.livros.sharding;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.livros.dto.LivroDTO;
+import com.example.livros.entities.Favorito;
+import com.example.livros.service.FavoritoService;
+import com.example.livros.service.LivroService;
+
+/**
+ * Três shards H2, vindos de uma topologia anterior com dois (resharding em andamento)
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:shard0;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "livraria.sharding.shards[0].url=jdbc:h2:mem:shard1;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "livraria.sharding.shards[0].username=sa",
+        "livraria.sharding.shards[1].url=jdbc:h2:mem:shard2;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "livraria.sharding.shards[1].username=sa",
+        "livraria.sharding.total-anterior=2",
+        "livraria.sharding.pausa-migracao-ms=0"
+})
+class ShardingTest {
+
+    @Autowired
+    private FavoritoService favoritoService;
+
+    @Autowired
+    private ShardRouter router;
+
+    @Autowired
+    private ReshardingService reshardingService;
+
+    @Autowired
+    private LivroService livroService;
+
+    @Test
+    void distribuiFavoritosEMigraDispositivosDoShardAntigo() {
+        assertThat(router.total()).isEqualTo(3);
+
+        for (int i = 0; i < 30; i++) {
+            favoritoService.adicionarFavorito("dispositivo-" + i, "livro-" + (i % 5), "Título " + i,
+                    null, null, null, null);
+        }
+        for (int shard = 0; shard < 3; shard++) {
+            assertThat(contar(shard, "dispositivo-%")).isPositive();
+        }
+        assertThat(favoritoService.findAll()).hasSize(30);
+        assertThat(favoritoService.findByGoogleBooksId("livro-0")).hasSize(6);
+
+        // Dispositivo cujo dono mudou e que ainda tem linhas no shard antigo
+        String deviceId = dispositivoQueMudouDeShard();
+        int antigo = ShardRouter.shard(deviceId, 2);
+        int novo = router.shardDoDevice(deviceId);
+        JdbcTemplate jdbcAntigo = new JdbcTemplate(router.dataSource(antigo));
+        jdbcAntigo.update("INSERT INTO tb_dispositivos (device_id, data_criacao) VALUES (?, ?)", deviceId, LocalDateTime.now());
+        Long chaveAntiga = jdbcAntigo.queryForObject(
+                "SELECT id FROM tb_dispositivos WHERE device_id = ?", Long.class, deviceId);
+        jdbcAntigo.update(
+                "INSERT INTO favoritos (id, dispositivo_id, google_books_id, titulo, data_criacao) VALUES (?, ?, ?, ?, ?)",
+                1_000_000L, chaveAntiga, "livro-antigo", "Antigo", LocalDateTime.now());
+        // Linha antiga com um ID que no destino já pertence a outro favorito (IDs densos de antes do
+        // auto_increment_offset): não pode ser descartada como se já tivesse sido copiada
+        JdbcTemplate jdbcNovo = new JdbcTemplate(router.dataSource(novo));
+        Long idOcupado = jdbcNovo.queryForObject("SELECT MIN(id) FROM favoritos", Long.class);
+        jdbcAntigo.update(
+                "INSERT INTO favoritos (id, dispositivo_id, google_books_id, titulo, data_criacao) VALUES (?, ?, ?, ?, ?)",
+                idOcupado, chaveAntiga, "livro-colisao", "Colisão", LocalDateTime.now());
+
+        assertThat(favoritoService.isLivroFavorito(deviceId, "livro-antigo")).isTrue();
+        assertThat(favoritoService.findByDevice(deviceId)).extracting(Favorito::getGoogleBooksId)
+                .containsExactlyInAnyOrder("livro-antigo", "livro-colisao");
+
+        // Uma execução anterior copiou uma das linhas para o destino (com outro ID) e caiu antes de apagá-la da origem
+        jdbcNovo.update("INSERT INTO tb_dispositivos (device_id, data_criacao) VALUES (?, ?)", deviceId, LocalDateTime.now());
+        jdbcNovo.update(
+                "INSERT INTO favoritos (dispositivo_id, google_books_id, titulo, data_criacao) VALUES (?, ?, ?, ?)",
+                jdbcNovo.queryForObject("SELECT id FROM tb_dispositivos WHERE device_id = ?", Long.class, deviceId),
+                "livro-antigo", "Antigo", LocalDateTime.now());
+
+        reshardingService.migrar();
+
+        assertThat(contar(antigo, deviceId)).isZero();
+        assertThat(contar(novo, deviceId)).isEqualTo(2);
+        assertThat(favoritoService.findByDevice(deviceId)).extracting(Favorito::getGoogleBooksId)
+                .containsExactlyInAnyOrder("livro-antigo", "livro-colisao");
+        List<Favorito> todos = favoritoService.findAll();
+        assertThat(todos).hasSize(32);
+        assertThat(todos).extracting(Favorito::getDeviceId)
+                .allMatch(id -> contar(router.shardDoDevice(id), id) > 0);
+    }
+
+    @Test
+    void buscaPorIdNaoEscolheUmShardQualquerQuandoOIdSeRepete() {
+        // Os shards H2 não têm auto_increment_offset: o mesmo ID pode existir em dois deles
+        String deviceA = dispositivoNoShard(1);
+        String deviceB = dispositivoNoShard(2);
+        long id = 2_000_000L;
+        try {
+            inserirFavorito(1, deviceA, id, "livro-a");
+            inserirFavorito(2, deviceB, id, "livro-b");
+
+            assertThat(favoritoService.findById(id, deviceA)).get()
+                    .extracting(Favorito::getGoogleBooksId).isEqualTo("livro-a");
+            assertThat(favoritoService.findById(id, deviceB)).get()
+                    .extracting(Favorito::getGoogleBooksId).isEqualTo("livro-b");
+            assertThatThrownBy(() -> favoritoService.findById(id, null)).isInstanceOf(IllegalStateException.class);
+
+            favoritoService.delete(id, deviceB);
+            assertThat(favoritoService.findById(id, null)).get()
+                    .extracting(Favorito::getGoogleBooksId).isEqualTo("livro-a");
+
+            // tb_livros: a busca por ID passa por todos os shards, como listarLivros
+            inserirLivro(2, id, "Só no shard 2");
+            assertThat(livroService.buscarLivroPorId(id)).get().extracting(LivroDTO::getTitulo).isEqualTo("Só no shard 2");
+            inserirLivro(0, id + 1, "No shard 0");
+            inserirLivro(1, id + 1, "No shard 1");
+            assertThatThrownBy(() -> livroService.buscarLivroPorId(id + 1)).isInstanceOf(IllegalStateException.class);
+            assertThatThrownBy(() -> livroService.buscarLivrosPorIds(List.of(id, id + 1)))
+                    .isInstanceOf(IllegalStateException.class);
+        } finally {
+            for (int shard = 0; shard < 3; shard++) {
+                JdbcTemplate jdbc = new JdbcTemplate(router.dataSource(shard));
+                jdbc.update("DELETE FROM favoritos WHERE id = ?", id);
+                jdbc.update("DELETE FROM tb_livros WHERE id IN (?, ?)", id, id + 1);
+            }
+        }
+    }
+
+    private void inserirFavorito(int shard, String deviceId, long id, String googleBooksId) {
+        JdbcTemplate jdbc = new JdbcTemplate(router.dataSource(shard));
+        jdbc.update("MERGE INTO tb_dispositivos (device_id, data_criacao) KEY (device_id) VALUES (?, ?)",
+                deviceId, LocalDateTime.now());
+        jdbc.update(
+                "INSERT INTO favoritos (id, dispositivo_id, google_books_id, titulo, data_criacao) VALUES (?, ?, ?, ?, ?)",
+                id, jdbc.queryForObject("SELECT id FROM tb_dispositivos WHERE device_id = ?", Long.class, deviceId),
+                googleBooksId, googleBooksId, LocalDateTime.now());
+    }
+
+    private void inserirLivro(int shard, long id, String titulo) {
+        new JdbcTemplate(router.dataSource(shard)).update(
+                "INSERT INTO tb_livros (id, titulo, favorito, data_criacao) VALUES (?, ?, FALSE, ?)",
+                id, titulo, LocalDateTime.now());
+    }
+
+    private String dispositivoNoShard(int shard) {
+        for (int i = 0; ; i++) {
+            String deviceId = "repetido-" + i;
+            if (router.shardDoDevice(deviceId) == shard) {
+                return deviceId;
+            }
+        }
+    }
+
+    private String dispositivoQueMudouDeShard() {
+        for (int i = 0; ; i++) {
+            String deviceId = "migrado-" + i;
+            if (router.shardAnterior(deviceId) != null) {
+                return deviceId;
+            }
+        }
+    }
+
+    private int contar(int shard, String deviceId) {
+        return new JdbcTemplate(router.dataSource(shard)).queryForObject(
+                "SELECT COUNT(*) FROM favoritos f JOIN tb_dispositivos d ON d.id = f.dispositivo_id WHERE d.device_id LIKE ?",
+                Integer.class, deviceId);
+    }
+}
@@ -7,7 +7,7 @@ export const API_ENDPOINTS = {
     BASE: `${API_BASE_URL}/livros`,
     BUSCA_TITULO: (titulo: string) => `${API_BASE_URL}/livros/busca/titulo?titulo=${encodeURIComponent(titulo)}`,
     BUSCA_AUTOR: (autor: string) => `${API_BASE_URL}/livros/busca/autor?autor=${encodeURIComponent(autor)}`,
-    BUSCA_GENERO: (genero: string) => `${API_BASE_URL}/livros/busca/genero?genero=${encodeURIComponent(genero)}`,
+    NAVEGAR: `${API_BASE_URL}/livros/navegar`,
     POR_ID: (id: number) => `${API_BASE_URL}/livros/${id}`,
     STATUS: `${API_BASE_URL}/livros/status`,
   },
@@ -24,6 +24,14 @@ export interface LivroBackend {
   descricao: string;
 }
 
+// Página de GET /livros/navegar: livros filtrados por gênero/data e contagens por gênero e década
+export interface NavegacaoBackend {
+  livros: LivroBackend[];
+  proximaPagina: string | null;
+  generos: Record<string, number>;
+  decadas: Record<string, number>;
+}
+
 // Tipos de status válidos para os livros
 export type BookStatus = 'available' | 'withdrawal' | 'rented';
 
@@ -1,7 +1,7 @@
 import { useState } from 'react';
 import axios from 'axios';
 import AsyncStorage from '@react-native-async-storage/async-storage';
-import { API_BASE_URL, API_ENDPOINTS, LivroBackend, mapExternalBookToInternal } from '../constants/Api';
+import { API_BASE_URL, API_ENDPOINTS, LivroBackend, NavegacaoBackend, mapExternalBookToInternal } from '../constants/Api';
 
 export interface UseLivroServiceResult {
   livros: any[];
@@ -127,14 +127,14 @@ const useLivroService = (): UseLivroServiceResult => {
     }
   };
 
-  // Função para buscar livros por gênero
+  // Função para buscar livros por gênero (primeira página de GET /livros/navegar, filtrada no backend)
   const buscarPorGenero = async (genero: string): Promise<any[]> => {
     setIsLoading(true);
     setError(null);
     
     try {
-      const response = await axios.get<LivroBackend[]>(API_ENDPOINTS.LIVROS.BUSCA_GENERO(genero));
-      const livrosMapeados = response.data.map(mapExternalBookToInternal);
+      const response = await axios.get<NavegacaoBackend>(API_ENDPOINTS.LIVROS.NAVEGAR, { params: { genero, limite: 100 } });
+      const livrosMapeados = response.data.livros.map(mapExternalBookToInternal);
       return livrosMapeados;
     } catch (err) {
       console.error(`Erro ao buscar livros do gênero "${genero}":`, err);